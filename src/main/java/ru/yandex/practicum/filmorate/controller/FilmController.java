@@ -1,15 +1,22 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.service.FilmService;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Collection;
+import java.util.List;
 
 @Slf4j
 @RequiredArgsConstructor
@@ -17,7 +24,10 @@ import java.util.Collection;
 @RequestMapping("/films")
 public class FilmController {
 
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
     private final FilmService filmService;
+    private final ObjectMapper objectMapper;
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
@@ -41,9 +51,36 @@ public class FilmController {
     }
 
     @GetMapping
-    public Collection<Film> findAll() {
-        log.info("Запрос списка всех фильмов");
-        return filmService.findAll();
+    public ResponseEntity<? extends Collection<Film>> findAll(@RequestParam(required = false) Integer limit,
+                                                              @RequestParam(required = false) String after,
+                                                              @RequestParam(required = false) List<Long> ids) {
+        if (ids != null) {
+            if (limit != null || after != null) {
+                throw new ValidationException("Параметр ids нельзя сочетать с limit и after");
+            }
+            log.info("Запрос фильмов по списку id: {}", ids);
+            return ResponseEntity.ok(filmService.findByIds(ids));
+        }
+        if (limit == null && after == null) {
+            log.info("Запрос списка всех фильмов");
+            return ResponseEntity.ok(filmService.findAll());
+        }
+        log.info("Запрос страницы фильмов: limit={}, after={}", limit, after);
+        return filmService.findPage(after, limit).toResponseEntity();
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportFilms() {
+        log.info("Запрос выгрузки каталога фильмов в NDJSON");
+        StreamingResponseBody body = out -> filmService.exportAll(film -> {
+            try {
+                out.write(objectMapper.writeValueAsBytes(film));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
     }
 
     @GetMapping("/{id}")
@@ -89,6 +126,16 @@ public class FilmController {
         return filmService.getCommonFilms(userId, friendId);
     }
 
+    @GetMapping("/{id}/similar")
+    public Collection<Film> getSimilarFilms(@PathVariable Long id,
+                                            @RequestParam(defaultValue = "10") int count) {
+        if (count < 0) {
+            throw new ValidationException("Количество фильмов не может быть отрицательным");
+        }
+        log.info("Запрос похожих фильмов: filmId={}, count={}", id, count);
+        return filmService.getSimilarFilms(id, count);
+    }
+
     @GetMapping("/director/{directorId}")
     public Collection<Film> getFilmsByDirectorIdSortedByLikesOrYear(
             @PathVariable Long directorId,
@@ -1,23 +1,63 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.service.RecommendationService;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Collection;
+import java.util.List;
 
+@Slf4j
 @RequiredArgsConstructor
 @RestController
 @RequestMapping("/users")
 public class RecommendationController {
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
     private final RecommendationService recommendationService;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Рекомендации для списка пользователей, по строке NDJSON на пользователя.
+     */
+    @PostMapping("/recommendations:batch")
+    public ResponseEntity<StreamingResponseBody> getRecommendationsBatch(@RequestBody List<Long> userIds) {
+        if (userIds.contains(null)) {
+            throw new ValidationException("Список пользователей не может содержать null");
+        }
+        log.info("Пакетный запрос рекомендаций для {} пользователей", userIds.size());
+        StreamingResponseBody body = out -> recommendationService.getRecommendationsBatch(userIds, recommendations -> {
+            try {
+                out.write(objectMapper.writeValueAsBytes(recommendations));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
+    }
 
     @GetMapping("/{id}/recommendations")
-    public Collection<Film> getRecommendations(@PathVariable Long id) {
-        return recommendationService.getRecommendations(id);
+    public Collection<Film> getRecommendations(@PathVariable Long id,
+                                               @RequestParam(required = false) String mode) {
+        if (mode == null) {
+            return recommendationService.getRecommendations(id);
+        }
+        return recommendationService.getRecommendations(id, RecommendationService.parseMode(mode));
     }
 }
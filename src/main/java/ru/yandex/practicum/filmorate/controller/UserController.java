@@ -4,13 +4,19 @@ import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import ru.yandex.practicum.filmorate.interfaces.FeedService;
 import ru.yandex.practicum.filmorate.model.FeedEvent;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FeedStream;
+import ru.yandex.practicum.filmorate.service.TimelineService;
 import ru.yandex.practicum.filmorate.service.UserService;
 
 import java.util.Collection;
+import java.util.List;
 
 @Slf4j
 @RequiredArgsConstructor
@@ -19,6 +25,8 @@ import java.util.Collection;
 public class UserController {
     private final UserService userService;
     private final FeedService feedService;
+    private final FeedStream feedStream;
+    private final TimelineService timelineService;
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
@@ -32,8 +40,12 @@ public class UserController {
     }
 
     @GetMapping
-    public Collection<User> findAll() {
-        return userService.findAll();
+    public ResponseEntity<? extends Collection<User>> findAll(@RequestParam(required = false) Integer limit,
+                                                              @RequestParam(required = false) String after) {
+        if (limit == null && after == null) {
+            return ResponseEntity.ok(userService.findAll());
+        }
+        return userService.findPage(after, limit).toResponseEntity();
     }
 
     @GetMapping("/{id}")
@@ -71,9 +83,44 @@ public class UserController {
         return userService.getMutualFriends(id, otherId);
     }
 
+    /**
+     * Лента постранично: по умолчанию первые {@code PageCursor.DEFAULT_LIMIT} событий,
+     * id последнего отданного события приходит в заголовке {@code X-Next-Cursor}.
+     * Вся история целиком — только с {@code all=true}.
+     */
     @GetMapping("/{id}/feed")
-    public Collection<FeedEvent> getFeed(@PathVariable long id) {
+    public ResponseEntity<? extends Collection<FeedEvent>> getFeed(@PathVariable long id,
+                                                                   @RequestParam(required = false) Integer limit,
+                                                                   @RequestParam(required = false) Long afterEventId,
+                                                                   @RequestParam(required = false) Long sinceTimestamp,
+                                                                   @RequestParam(defaultValue = "false") boolean all) {
         userService.getUserById(id);
-        return feedService.getFeedEvents(id);
+        if (all) {
+            return ResponseEntity.ok(feedService.getFeedEvents(id));
+        }
+        return feedService.getFeedPage(id, afterEventId, sinceTimestamp, limit).toResponseEntity();
     }
-}
\ No newline at end of file
+
+    /**
+     * Новые события ленты по Server-Sent Events. С заголовком {@code Last-Event-ID}
+     * сначала отдаются события после этого id.
+     */
+    @GetMapping(path = "/{id}/feed/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamFeed(@PathVariable long id,
+                                 @RequestHeader(name = "Last-Event-ID", required = false) Long lastEventId) {
+        userService.getUserById(id);
+        return feedStream.subscribe(id, lastEventId);
+    }
+
+    /**
+     * События друзей пользователя, новые первыми. Id последнего отданного события
+     * приходит в {@code X-Next-Cursor}, его передают в {@code beforeEventId}.
+     */
+    @GetMapping("/{id}/timeline")
+    public ResponseEntity<List<FeedEvent>> getTimeline(@PathVariable long id,
+                                                       @RequestParam(required = false) Integer limit,
+                                                       @RequestParam(required = false) Long beforeEventId) {
+        userService.getUserById(id);
+        return timelineService.getTimeline(id, beforeEventId, limit).toResponseEntity();
+    }
+}
@@ -5,6 +5,7 @@ import ru.yandex.practicum.filmorate.model.Film;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.Collection;
+import java.util.Map;
 import java.util.Set;
 
 public interface DirectorRepository {
@@ -12,10 +13,14 @@ public interface DirectorRepository {
 
     Set<Director> loadDirectors(Long filmId);
 
+    Map<Long, Set<Director>> loadDirectors(Collection<Long> filmIds);
+
     void addDirectorFromResultSet(ResultSet rs, Film film) throws SQLException;
 
     Collection<Director> findAll();
 
+    Map<Long, Set<Long>> findFilmIdsByDirector();
+
     Director findById(Long id);
 
     Director createDirector(Director director);
@@ -1,25 +1,55 @@
 package ru.yandex.practicum.filmorate.interfaces;
 
 import ru.yandex.practicum.filmorate.model.FeedEvent;
-import ru.yandex.practicum.filmorate.model.Review;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
 
 public interface FeedRepository {
 
     public Collection<FeedEvent> findFeedEventsByUserId(Long userId);
 
-    public void saveReview(Review review);
-
-    public void updateReview(Review review);
-
-    public void deleteReview(Review review);
-
-    public void saveFriend(Long userId, Long friendId);
-
-    public void removerFriend(Long userId, Long friendId);
-
-    public void saveLike(Long filmId, Long userId);
-
-    public void removeLike(Long filmId, Long userId);
-}
\ No newline at end of file
+    /**
+     * События пользователя с {@code event_id > afterEventId} и, если задано,
+     * {@code timestamp >= sinceTimestamp}, по возрастанию id, не больше {@code limit}.
+     */
+    public List<FeedEvent> findFeedEventsPage(Long userId, long afterEventId, Long sinceTimestamp, int limit);
+
+    /**
+     * Последние события пользователя с {@code event_id < beforeEventId}, новые первыми,
+     * не больше {@code limit}.
+     */
+    public List<FeedEvent> findFeedEventsBefore(Long userId, long beforeEventId, int limit);
+
+    /**
+     * Вставляет события одной пачкой и проставляет им {@code eventId}.
+     */
+    public void saveAll(List<FeedEvent> events);
+
+    /**
+     * Удаляет все события пользователя: из ленты и из архивной сводки.
+     */
+    public void deleteByUserId(Long userId);
+
+    /**
+     * Удаляет корзины событий с номером меньше {@code bucket}.
+     */
+    public int deleteBucketsBefore(int bucket);
+
+    /**
+     * Схлопывает пары ADD/REMOVE из корзин целиком старше {@code beforeTimestamp}, ещё не
+     * пройденных прошлыми запусками, в архивную сводку. Удаляет пачками; {@code onRemoved}
+     * получает id удалённых событий каждой пачки в её транзакции. Возвращает число
+     * удалённых событий.
+     */
+    public int compactPairs(long beforeTimestamp, Consumer<List<Long>> onRemoved);
+
+    /**
+     * Участвует ли хранилище в транзакции вызывающего. Изменения в нетранзакционном
+     * хранилище откатом не отменить, поэтому их применяют только после коммита.
+     */
+    public default boolean isTransactional() {
+        return true;
+    }
+}
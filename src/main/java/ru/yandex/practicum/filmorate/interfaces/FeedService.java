@@ -2,6 +2,7 @@ package ru.yandex.practicum.filmorate.interfaces;
 
 import ru.yandex.practicum.filmorate.model.FeedEvent;
 import ru.yandex.practicum.filmorate.model.Review;
+import ru.yandex.practicum.filmorate.response.CursorPage;
 
 import java.util.Collection;
 
@@ -9,6 +10,8 @@ public interface FeedService {
 
     public Collection<FeedEvent> getFeedEvents(Long userId);
 
+    public CursorPage<FeedEvent> getFeedPage(Long userId, Long afterEventId, Long sinceTimestamp, Integer limit);
+
     public void saveReview(Review review);
 
     public void updateReview(Review review);
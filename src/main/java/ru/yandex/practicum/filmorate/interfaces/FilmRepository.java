@@ -1,7 +1,11 @@
 package ru.yandex.practicum.filmorate.interfaces;
 
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmPopularity;
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public interface FilmRepository {
 
@@ -9,23 +13,21 @@ public interface FilmRepository {
 
     public Collection<Film> findAll();
 
+    public List<Film> findPage(long afterId, int limit);
+
+    public void exportAll(Consumer<Film> consumer);
+
     public Film getFilmById(Long id);
 
+    public List<Film> findByIds(Collection<Long> filmIds);
+
     public Film save(Film film);
 
     public void deleteById(Long id);
 
-    public Collection<Film> findPopularFilms(Long count);
-
-    public Collection<Film> findPopular(Long count, Long genreId, Long year);
+    public List<FilmPopularity> findFilmPopularity();
 
-    public Collection<Film> findCommonFilms(Long userId, Long friendId);
+    public Map<Long, String> findTitles();
 
     public Collection<Film> getFilmsByDirectorId(Long directorId, String sortBy);
-
-    public Collection<Film> searchFilmsByTitle(String query);
-
-    public Collection<Film> searchFilmsByDirector(String query);
-
-    public Collection<Film> searchFilmsByTitleAndDirector(String query);
 }
\ No newline at end of file
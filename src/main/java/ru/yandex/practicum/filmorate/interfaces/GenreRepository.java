@@ -5,6 +5,7 @@ import ru.yandex.practicum.filmorate.model.Genre;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.Collection;
+import java.util.Map;
 import java.util.Set;
 
 public interface GenreRepository {
@@ -17,6 +18,8 @@ public interface GenreRepository {
 
     public void addGenreFromResultSet(ResultSet rs, Film film) throws SQLException;
 
+    public Map<Long, Set<Genre>> loadGenres(Collection<Long> filmIds);
+
     public void saveFilmGenres(Film film);
 
     public void updateFilmGenres(Film film);
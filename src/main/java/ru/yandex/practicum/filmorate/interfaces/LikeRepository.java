@@ -1,15 +1,28 @@
 package ru.yandex.practicum.filmorate.interfaces;
 
 import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.model.LikesCountDrift;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface LikeRepository {
 
     public List<Like> findLikesByFilmId(Long filmId);
 
-    public void addLike(Long filmId, Long userId);
+    public List<Like> findLikesByFilmIds(Collection<Long> filmIds);
+
+    public void forEachLike(Consumer<Like> consumer);
+
+    public boolean addLike(Long filmId, Long userId);
 
     public void removeLike(Long filmId, Long userId);
 
     public Long getLikesCountForFilm(Long filmId);
+
+    public List<Long> findFilmIdsLikedByUser(Long userId);
+
+    public List<LikesCountDrift> findLikesCountDrift();
+
+    public void repairLikesCounts(Collection<Long> filmIds);
 }
\ No newline at end of file
@@ -0,0 +1,50 @@
+package ru.yandex.practicum.filmorate.interfaces;
+
+import ru.yandex.practicum.filmorate.model.FeedEvent;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Материализованные ленты друзей: копия события автора у каждого, кто его добавил в друзья.
+ */
+public interface TimelineRepository {
+
+    /**
+     * Раскладывает события всем, у кого автор события в друзьях. Повторная раскладка
+     * того же события ничего не меняет.
+     */
+    public void fanOut(List<FeedEvent> events);
+
+    /**
+     * Добавляет события в ленту одного пользователя.
+     */
+    public void addToTimeline(long followerId, List<FeedEvent> events);
+
+    public void removeAuthor(long followerId, long authorId);
+
+    public void removeEvents(List<Long> eventIds);
+
+    /**
+     * Удаляет из всех лент события с {@code timestamp < beforeTimestamp}.
+     */
+    public int deleteBefore(long beforeTimestamp);
+
+    /**
+     * Ленту пользователя с {@code event_id < beforeEventId}, новые события первыми.
+     */
+    public List<FeedEvent> findTimelinePage(long followerId, long beforeEventId, int limit);
+
+    /**
+     * Кто из {@code authorIds} есть в друзьях у {@code followerId}.
+     */
+    public List<Long> findFollowedAmong(long followerId, Collection<Long> authorIds);
+
+    public int countFollowers(long authorId);
+
+    /**
+     * Пользователи, которых добавили в друзья больше {@code followers} человек.
+     */
+    public Set<Long> findAuthorsWithFollowersOver(int followers);
+}
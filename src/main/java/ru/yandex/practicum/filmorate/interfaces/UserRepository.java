@@ -5,6 +5,7 @@ import ru.yandex.practicum.filmorate.model.User;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.Collection;
+import java.util.List;
 
 public interface UserRepository {
 
@@ -16,6 +17,8 @@ public interface UserRepository {
 
     public Collection<User> findAll();
 
+    public List<User> findPage(long afterId, int limit);
+
     public User getUserById(Long id);
 
     public User save(User user);
@@ -0,0 +1,13 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Value;
+
+import java.util.Set;
+
+@Value
+public class FilmPopularity {
+    Long filmId;
+    Long likesCount;
+    Integer releaseYear;
+    Set<Long> genreIds;
+}
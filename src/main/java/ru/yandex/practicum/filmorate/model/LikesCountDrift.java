@@ -0,0 +1,10 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Value;
+
+@Value
+public class LikesCountDrift {
+    Long filmId;
+    Long storedCount;
+    Long actualCount;
+}
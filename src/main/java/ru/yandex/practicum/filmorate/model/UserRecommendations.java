@@ -0,0 +1,11 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Value;
+
+import java.util.List;
+
+@Value
+public class UserRecommendations {
+    Long userId;
+    List<Film> films;
+}
@@ -0,0 +1,90 @@
+package ru.yandex.practicum.filmorate.repository;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.interfaces.FilmRepository;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmPopularity;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * {@link FilmRepository} с кэшем {@link #getFilmById}. Остальные запросы
+ * идут напрямую в {@link JdbcFilmRepository}; изменения фильма сбрасывают кэш.
+ */
+@Primary
+@Repository
+public class CachingFilmRepository implements FilmRepository {
+    private final FilmRepository delegate;
+    private final FilmCache filmCache;
+
+    public CachingFilmRepository(@Qualifier("jdbcFilmRepository") FilmRepository delegate, FilmCache filmCache) {
+        this.delegate = delegate;
+        this.filmCache = filmCache;
+    }
+
+    @Override
+    public Film getFilmById(Long id) {
+        return filmCache.get(id, delegate::getFilmById);
+    }
+
+    @Override
+    public Film save(Film film) {
+        Film saved = delegate.save(film);
+        filmCache.evict(saved.getId());
+        return saved;
+    }
+
+    @Override
+    public Film update(Film film) {
+        Film updated = delegate.update(film);
+        filmCache.evict(film.getId());
+        return updated;
+    }
+
+    @Override
+    public void deleteById(Long id) {
+        delegate.deleteById(id);
+        filmCache.evict(id);
+    }
+
+    @Override
+    public Collection<Film> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public List<Film> findPage(long afterId, int limit) {
+        return delegate.findPage(afterId, limit);
+    }
+
+    @Override
+    public void exportAll(Consumer<Film> consumer) {
+        delegate.exportAll(consumer);
+    }
+
+    @Override
+    public List<Film> findByIds(Collection<Long> filmIds) {
+        return delegate.findByIds(filmIds);
+    }
+
+    @Override
+    public List<FilmPopularity> findFilmPopularity() {
+        return delegate.findFilmPopularity();
+    }
+
+    @Override
+    public Map<Long, String> findTitles() {
+        return delegate.findTitles();
+    }
+
+    @Override
+    public Collection<Film> getFilmsByDirectorId(Long directorId, String sortBy) {
+        return delegate.getFilmsByDirectorId(directorId, sortBy);
+    }
+
+}
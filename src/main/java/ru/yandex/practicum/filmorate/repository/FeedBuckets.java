@@ -0,0 +1,29 @@
+package ru.yandex.practicum.filmorate.repository;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+/**
+ * Месячные корзины событий ленты: номер корзины — {@code yyyymm} по UTC.
+ */
+public final class FeedBuckets {
+
+    private FeedBuckets() {
+    }
+
+    public static int bucketOf(long timestamp) {
+        LocalDate date = Instant.ofEpochMilli(timestamp).atZone(ZoneOffset.UTC).toLocalDate();
+        return date.getYear() * 100 + date.getMonthValue();
+    }
+
+    /**
+     * Начало корзины в миллисекундах.
+     */
+    public static long startOf(int bucket) {
+        return LocalDate.of(bucket / 100, bucket % 100, 1)
+                .atStartOfDay(ZoneOffset.UTC)
+                .toInstant()
+                .toEpochMilli();
+    }
+}
@@ -0,0 +1,213 @@
+package ru.yandex.practicum.filmorate.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.model.Mpa;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Ограниченный LRU-кэш фильмов по id. Хранит копии, поэтому изменения
+ * возвращённого объекта не попадают в кэш. Сброс внутри транзакции
+ * повторяется после её завершения, чтобы не оставить в кэше версию,
+ * прочитанную до коммита или откатанную.
+ */
+@Slf4j
+@Component
+@ManagedResource(description = "Кэш фильмов по id")
+public class FilmCache {
+    private final int maxSize;
+    private final Map<Long, Film> films;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final Map<Long, Load> loads = new HashMap<>();
+    private long generation;
+
+    /**
+     * Загрузка фильма, идущая мимо кэша. Сброс фильма помечает её устаревшей.
+     */
+    private static final class Load {
+        private int loaders;
+        private boolean stale;
+    }
+
+    public FilmCache(@Value("${filmorate.film-cache.max-size:10000}") int maxSize) {
+        this.maxSize = maxSize;
+        this.films = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Film> eldest) {
+                if (size() > FilmCache.this.maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Возвращает фильм из кэша или загружает его. Результат загрузки не кэшируется,
+     * если за время запроса к базе этот фильм или весь кэш были сброшены.
+     */
+    public Film get(Long filmId, Function<Long, Film> loader) {
+        long loadGeneration;
+        Load load;
+        synchronized (this) {
+            Film cached = films.get(filmId);
+            if (cached != null) {
+                hits.incrementAndGet();
+                return copyOf(cached);
+            }
+            loadGeneration = generation;
+            load = loads.computeIfAbsent(filmId, k -> new Load());
+            load.loaders++;
+        }
+        misses.incrementAndGet();
+        Film loaded = null;
+        try {
+            loaded = loader.apply(filmId);
+        } finally {
+            Film copy = loaded == null ? null : copyOf(loaded);
+            synchronized (this) {
+                if (--load.loaders == 0 && loads.get(filmId) == load) {
+                    loads.remove(filmId);
+                }
+                if (copy != null && !load.stale && loadGeneration == generation) {
+                    films.put(filmId, copy);
+                }
+            }
+        }
+        return loaded;
+    }
+
+    public void evict(Long filmId) {
+        evictAll(List.of(filmId));
+    }
+
+    public void evictAll(Iterable<Long> filmIds) {
+        removeKeys(filmIds);
+        afterCompletion(() -> removeKeys(filmIds));
+    }
+
+    /**
+     * Сбрасывает фильмы, у которых среди режиссёров есть указанный.
+     */
+    public void evictByDirector(Long directorId) {
+        invalidate(cached -> cached.getDirectors().stream().anyMatch(d -> directorId.equals(d.getId())));
+    }
+
+    @ManagedOperation(description = "Очистить кэш")
+    public void clear() {
+        invalidate(cached -> true);
+    }
+
+    @ManagedAttribute(description = "Попадания")
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    @ManagedAttribute(description = "Промахи")
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    @ManagedAttribute(description = "Вытеснения по размеру")
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    @ManagedAttribute(description = "Сбросы при изменении данных")
+    public long getInvalidationCount() {
+        return invalidations.get();
+    }
+
+    @ManagedAttribute(description = "Текущий размер")
+    public synchronized int getSize() {
+        return films.size();
+    }
+
+    @ManagedAttribute(description = "Максимальный размер")
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    private void invalidate(Predicate<Film> predicate) {
+        removeIf(predicate);
+        afterCompletion(() -> removeIf(predicate));
+    }
+
+    private static void afterCompletion(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    action.run();
+                }
+            });
+        }
+    }
+
+    private synchronized void removeKeys(Iterable<Long> filmIds) {
+        for (Long filmId : filmIds) {
+            Load load = loads.remove(filmId);
+            if (load != null) {
+                load.stale = true;
+            }
+            if (films.remove(filmId) != null) {
+                invalidations.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Перебирает весь кэш, поэтому нужен только для сброса по режиссёру и полной очистки.
+     */
+    private synchronized void removeIf(Predicate<Film> predicate) {
+        generation++;
+        films.values().removeIf(film -> {
+            if (predicate.test(film)) {
+                invalidations.incrementAndGet();
+                return true;
+            }
+            return false;
+        });
+    }
+
+    private static Film copyOf(Film film) {
+        Film copy = new Film();
+        copy.setId(film.getId());
+        copy.setName(film.getName());
+        copy.setDescription(film.getDescription());
+        copy.setReleaseDate(film.getReleaseDate());
+        copy.setDuration(film.getDuration());
+        Mpa mpa = film.getMpa();
+        copy.setMpa(mpa == null ? null : new Mpa(mpa.getId(), mpa.getName()));
+        copy.setGenres(new LinkedHashSet<>(film.getGenres()));
+        copy.setDirectors(film.getDirectors().stream()
+                .map(d -> new Director(d.getId(), d.getDirectorName()))
+                .collect(Collectors.toSet()));
+        for (Like like : film.getLikes()) {
+            copy.addLike(like.getIdFilm(), like.getIdUser());
+        }
+        return copy;
+    }
+}
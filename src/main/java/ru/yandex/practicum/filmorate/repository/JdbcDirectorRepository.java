@@ -33,6 +33,12 @@ public class JdbcDirectorRepository implements DirectorRepository {
                     "JOIN film_directors fd ON d.director_id = fd.director_id " +
                     "WHERE fd.film_id = :filmId";
 
+    private static final String SELECT_DIRECTORS_FOR_FILMS_SQL =
+            "SELECT fd.film_id, d.director_id, d.director_name FROM directors d " +
+                    "JOIN film_directors fd ON d.director_id = fd.director_id " +
+                    "WHERE fd.film_id IN (:filmIds) " +
+                    "ORDER BY fd.film_id, d.director_id";
+
     private static final String SELECT_DIRECTOR_BY_ID = "SELECT * FROM directors WHERE director_id = :id";
 
     @Override
@@ -72,6 +78,22 @@ public class JdbcDirectorRepository implements DirectorRepository {
         }));
     }
 
+    @Override
+    public Map<Long, Set<Director>> loadDirectors(Collection<Long> filmIds) {
+        Map<Long, Set<Director>> directorsByFilm = new HashMap<>();
+        if (filmIds == null || filmIds.isEmpty()) {
+            return directorsByFilm;
+        }
+        MapSqlParameterSource params = new MapSqlParameterSource("filmIds", filmIds);
+        jdbc.query(SELECT_DIRECTORS_FOR_FILMS_SQL, params, rs -> {
+            Director director = new Director();
+            director.setId(rs.getLong("director_id"));
+            director.setDirectorName(rs.getString("director_name"));
+            directorsByFilm.computeIfAbsent(rs.getLong("film_id"), k -> new LinkedHashSet<>()).add(director);
+        });
+        return directorsByFilm;
+    }
+
     @Override
     public void addDirectorFromResultSet(ResultSet rs, Film film) throws SQLException {
         long directorId = rs.getLong("director_id");
@@ -95,6 +117,16 @@ public class JdbcDirectorRepository implements DirectorRepository {
         });
     }
 
+    @Override
+    public Map<Long, Set<Long>> findFilmIdsByDirector() {
+        Map<Long, Set<Long>> filmIdsByDirector = new HashMap<>();
+        jdbc.query("SELECT director_id, film_id FROM film_directors", rs -> {
+            filmIdsByDirector.computeIfAbsent(rs.getLong("director_id"), k -> new HashSet<>())
+                    .add(rs.getLong("film_id"));
+        });
+        return filmIdsByDirector;
+    }
+
     @Override
     public Director findById(Long id) {
         log.info("Возврат режиссера по id: {}", id);
@@ -1,112 +1,302 @@
 package ru.yandex.practicum.filmorate.repository;
 
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.yandex.practicum.filmorate.interfaces.FeedRepository;
 import ru.yandex.practicum.filmorate.model.FeedEvent;
 import ru.yandex.practicum.filmorate.model.EventType;
 import ru.yandex.practicum.filmorate.model.Operation;
-import ru.yandex.practicum.filmorate.model.Review;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
+/**
+ * События ленты в H2. Таблица разбита на месячные корзины колонкой {@code bucket}
+ * (см. {@link FeedBuckets}): чтения берут только корзины внутри окна хранения,
+ * а устаревшие корзины удаляются целиком. Хранилище по умолчанию,
+ * {@code filmorate.feed.storage=jdbc}.
+ */
 @Slf4j
 @Repository
-@RequiredArgsConstructor
+@ConditionalOnProperty(name = "filmorate.feed.storage", havingValue = "jdbc", matchIfMissing = true)
 public class JdbcFeedRepository implements FeedRepository {
+    private static final int DELETE_CHUNK = 1000;
+    private static final int COMPACT_CHUNK = 500;
+    private static final String INSERT_SQL = "INSERT INTO feed_events (user_id, event_type, operation, " +
+            "entity_id, timestamp, bucket) VALUES (:userId, :eventType, :operation, :entityId, :timestamp, :bucket)";
+    private static final String ARCHIVE_SQL = "MERGE INTO feed_event_archive a " +
+            "USING (VALUES (CAST(:userId AS BIGINT), CAST(:bucket AS INT), CAST(:eventType AS VARCHAR(10)), " +
+            "CAST(:entityId AS BIGINT), CAST(:pairs AS INT))) s(user_id, bucket, event_type, entity_id, pairs) " +
+            "ON a.user_id = s.user_id AND a.bucket = s.bucket AND a.event_type = s.event_type " +
+            "AND a.entity_id = s.entity_id " +
+            "WHEN MATCHED THEN UPDATE SET a.collapsed_pairs = a.collapsed_pairs + s.pairs " +
+            "WHEN NOT MATCHED THEN INSERT (user_id, bucket, event_type, entity_id, collapsed_pairs) " +
+            "VALUES (s.user_id, s.bucket, s.event_type, s.entity_id, s.pairs)";
+    private static final RowMapper<FeedEvent> FEED_EVENT_MAPPER = (rs, rowNum) -> {
+        FeedEvent event = new FeedEvent();
+        event.setEventId(rs.getLong("event_id"));
+        event.setUserId(rs.getLong("user_id"));
+        event.setEventType(EventType.valueOf(rs.getString("event_type")));
+        event.setOperation(Operation.valueOf(rs.getString("operation")));
+        event.setEntityId(rs.getLong("entity_id"));
+        event.setTimestamp(rs.getLong("timestamp"));
+        return event;
+    };
+
     private final NamedParameterJdbcOperations jdbc;
-    private static final String eventSql = "INSERT INTO feed_events (user_id, event_type, operation, entity_id, " +
-            "timestamp) VALUES (:userId, 'REVIEW', 'ADD', :reviewId, :timestamp)";
-    private static final String eventSqlForUpdate = "INSERT INTO feed_events (user_id, event_type, operation, " +
-            "entity_id, timestamp) VALUES (:userId, 'REVIEW', 'UPDATE', :reviewId, :timestamp)";
-    private static final String eventSqlForDelete = "INSERT INTO feed_events (user_id, event_type, operation, " +
-            "entity_id, timestamp) VALUES (:userId, 'REVIEW', 'REMOVE', :reviewId, :timestamp)";
+    private final Duration retention;
+    private final TransactionTemplate transactionTemplate;
+
+    public JdbcFeedRepository(NamedParameterJdbcOperations jdbc, PlatformTransactionManager transactionManager,
+                              @Value("${filmorate.feed.retention:P365D}") Duration retention) {
+        this.jdbc = jdbc;
+        this.retention = retention;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
 
     @Override
     public Collection<FeedEvent> findFeedEventsByUserId(Long userId) {
         String sql = "SELECT * FROM feed_events " +
-                "WHERE user_id = :userId " +
+                "WHERE user_id = :userId AND bucket >= :hotBucket " +
                 "ORDER BY event_id ASC";
 
-        return jdbc.query(sql, new MapSqlParameterSource("userId", userId), (rs, rowNum) -> {
-            FeedEvent event = new FeedEvent();
-            event.setEventId(rs.getLong("event_id"));
-            event.setUserId(rs.getLong("user_id"));
-            event.setEventType(EventType.valueOf(rs.getString("event_type")));
-            event.setOperation(Operation.valueOf(rs.getString("operation")));
-            event.setEntityId(rs.getLong("entity_id"));
-            event.setTimestamp(rs.getLong("timestamp"));
-            return event;
-        });
+        return jdbc.query(sql, new MapSqlParameterSource()
+                .addValue("userId", userId)
+                .addValue("hotBucket", hotBucket()), FEED_EVENT_MAPPER);
     }
 
     @Override
-    public void saveReview(Review review) {
-        jdbc.update(eventSql, new MapSqlParameterSource()
-                .addValue("userId", review.getUserId())
-                .addValue("reviewId", review.getReviewId())
-                .addValue("timestamp", System.currentTimeMillis()));
-        log.info("Событие добавление отзыва добавлено: review_id={}, user_id={}", review.getReviewId(),
-                review.getUserId());
+    public List<FeedEvent> findFeedEventsPage(Long userId, long afterEventId, Long sinceTimestamp, int limit) {
+        String sql = "SELECT * FROM feed_events " +
+                "WHERE user_id = :userId AND event_id > :afterEventId AND bucket >= :hotBucket " +
+                (sinceTimestamp != null ? "AND timestamp >= :sinceTimestamp " : "") +
+                "ORDER BY event_id ASC " +
+                "LIMIT :limit";
+
+        return jdbc.query(sql, new MapSqlParameterSource()
+                .addValue("userId", userId)
+                .addValue("afterEventId", afterEventId)
+                .addValue("sinceTimestamp", sinceTimestamp)
+                .addValue("hotBucket", hotBucket())
+                .addValue("limit", limit), FEED_EVENT_MAPPER);
     }
 
     @Override
-    public void updateReview(Review review) {
-        jdbc.update(eventSqlForUpdate, new MapSqlParameterSource()
-                .addValue("userId", review.getUserId())
-                .addValue("reviewId", review.getReviewId())
-                .addValue("timestamp", System.currentTimeMillis()));
+    public List<FeedEvent> findFeedEventsBefore(Long userId, long beforeEventId, int limit) {
+        String sql = "SELECT * FROM feed_events " +
+                "WHERE user_id = :userId AND event_id < :beforeEventId AND bucket >= :hotBucket " +
+                "ORDER BY event_id DESC " +
+                "LIMIT :limit";
+
+        return jdbc.query(sql, new MapSqlParameterSource()
+                .addValue("userId", userId)
+                .addValue("beforeEventId", beforeEventId)
+                .addValue("hotBucket", hotBucket())
+                .addValue("limit", limit), FEED_EVENT_MAPPER);
     }
 
+    /**
+     * Пачка вставляется одной транзакцией: при ошибке в базе не остаётся её части.
+     */
     @Override
-    public void deleteReview(Review review) {
-        jdbc.update(eventSqlForDelete, new MapSqlParameterSource()
-                .addValue("userId", review.getUserId())
-                .addValue("reviewId", review.getReviewId())
-                .addValue("timestamp", System.currentTimeMillis()));
-        log.info("Событие удление отзыва добавлено: review_id={}, user_id={}", review.getReviewId(),
-                review.getUserId());
+    @Transactional
+    public void saveAll(List<FeedEvent> events) {
+        SqlParameterSource[] batch = events.stream()
+                .map(event -> new MapSqlParameterSource()
+                        .addValue("userId", event.getUserId())
+                        .addValue("eventType", event.getEventType().name())
+                        .addValue("operation", event.getOperation().name())
+                        .addValue("entityId", event.getEntityId())
+                        .addValue("timestamp", event.getTimestamp())
+                        .addValue("bucket", FeedBuckets.bucketOf(event.getTimestamp())))
+                .toArray(SqlParameterSource[]::new);
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbc.batchUpdate(INSERT_SQL, batch, keyHolder, new String[]{"event_id"});
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < keys.size(); i++) {
+            events.get(i).setEventId(((Number) keys.get(i).values().iterator().next()).longValue());
+        }
+        log.debug("Записано событий ленты: {}", events.size());
     }
 
-    public void saveFriend(Long userId, Long friendId) {
-        String sql = "INSERT INTO feed_events (user_id, event_type, operation, entity_id, timestamp) " +
-                "VALUES (:userId, 'FRIEND', 'ADD', :friendId, :timestamp)";
-        MapSqlParameterSource params = new MapSqlParameterSource()
-                .addValue("userId", userId)
-                .addValue("friendId", friendId)
-                .addValue("timestamp", System.currentTimeMillis());
-        jdbc.update(sql, params);
+    /**
+     * Внешние ключи и так удаляют события вместе с пользователем; явное удаление нужно,
+     * если пользователь ещё не удалён в этой транзакции.
+     */
+    @Override
+    public void deleteByUserId(Long userId) {
+        MapSqlParameterSource params = new MapSqlParameterSource("userId", userId);
+        jdbc.update("DELETE FROM feed_events WHERE user_id = :userId", params);
+        jdbc.update("DELETE FROM feed_event_archive WHERE user_id = :userId", params);
     }
 
-    public void removerFriend(Long userId, Long friendId) {
-        String sql = "INSERT INTO feed_events (user_id, event_type, operation, entity_id, timestamp) " +
-                "VALUES (:userId, 'FRIEND', 'REMOVE', :friendId, :timestamp)";
-        MapSqlParameterSource params = new MapSqlParameterSource()
-                .addValue("userId", userId)
-                .addValue("friendId", friendId)
-                .addValue("timestamp", System.currentTimeMillis());
-        jdbc.update(sql, params);
+    @Override
+    public int deleteBucketsBefore(int bucket) {
+        int deleted = jdbc.update("DELETE FROM feed_events WHERE bucket < :bucket",
+                new MapSqlParameterSource("bucket", bucket));
+        log.info("Удалено событий ленты из корзин раньше {}: {}", bucket, deleted);
+        return deleted;
     }
 
-    public void saveLike(Long filmId, Long userId) {
-        String sql = "INSERT INTO feed_events (user_id, event_type, operation, entity_id, timestamp) " +
-                "VALUES (:userId, 'LIKE', 'ADD', :filmId, :timestamp)";
-        MapSqlParameterSource params = new MapSqlParameterSource()
-                .addValue("userId", userId)
-                .addValue("filmId", filmId)
-                .addValue("timestamp", System.currentTimeMillis());
-        jdbc.update(sql, params);
+    /**
+     * Проходит корзины, целиком старше {@code beforeTimestamp}, начиная с первой после
+     * отметки прошлого запуска в {@code feed_compaction}. В корзине берёт объекты,
+     * удалённые в ней, пачками по {@value #COMPACT_CHUNK} и схлопывает их цепочки от ADD
+     * до REMOVE вместе с UPDATE между ними; ADD может лежать в более ранней корзине.
+     * Каждая пачка — своя транзакция, отметка сдвигается после корзины. В архив пишется
+     * число схлопнутых пар по корзине ADD.
+     */
+    @Override
+    public int compactPairs(long beforeTimestamp, Consumer<List<Long>> onRemoved) {
+        int lastBucket = FeedBuckets.bucketOf(beforeTimestamp) - 1;
+        int removed = 0;
+        Integer bucket = nextBucket(compactedBucket());
+        while (bucket != null && bucket <= lastBucket) {
+            removed += compactBucket(bucket, onRemoved);
+            jdbc.update("MERGE INTO feed_compaction KEY (id) VALUES (1, :bucket)",
+                    new MapSqlParameterSource("bucket", bucket));
+            bucket = nextBucket(bucket);
+        }
+        log.info("Схлопывание ленты дошло до корзины {}, удалено событий: {}", lastBucket, removed);
+        return removed;
     }
 
-    public void removeLike(Long filmId, Long userId) {
-        String sql = "INSERT INTO feed_events (user_id, event_type, operation, entity_id, timestamp) " +
-                "VALUES (:userId, 'LIKE', 'REMOVE', :filmId, :timestamp)";
-        MapSqlParameterSource params = new MapSqlParameterSource()
-                .addValue("userId", userId)
-                .addValue("filmId", filmId)
-                .addValue("timestamp", System.currentTimeMillis());
-        jdbc.update(sql, params);
+    private int hotBucket() {
+        return FeedBuckets.bucketOf(System.currentTimeMillis() - retention.toMillis());
+    }
+
+    private int compactedBucket() {
+        return jdbc.query("SELECT compacted_bucket FROM feed_compaction WHERE id = 1",
+                rs -> rs.next() ? rs.getInt(1) : 0);
+    }
+
+    private Integer nextBucket(int afterBucket) {
+        return jdbc.queryForObject("SELECT MIN(bucket) FROM feed_events WHERE bucket > :afterBucket",
+                new MapSqlParameterSource("afterBucket", afterBucket), Integer.class);
+    }
+
+    private int compactBucket(int bucket, Consumer<List<Long>> onRemoved) {
+        String sql = "SELECT DISTINCT user_id, event_type, entity_id FROM feed_events " +
+                "WHERE bucket = :bucket AND operation = 'REMOVE' " +
+                "AND (user_id, event_type, entity_id) > (:afterUserId, :afterEventType, :afterEntityId) " +
+                "ORDER BY user_id, event_type, entity_id " +
+                "LIMIT :limit";
+        int removed = 0;
+        Object[] after = {0L, "", 0L};
+        List<Object[]> objects;
+        do {
+            objects = jdbc.query(sql, new MapSqlParameterSource()
+                    .addValue("bucket", bucket)
+                    .addValue("afterUserId", after[0])
+                    .addValue("afterEventType", after[1])
+                    .addValue("afterEntityId", after[2])
+                    .addValue("limit", COMPACT_CHUNK), (rs, rowNum) -> new Object[]{
+                    rs.getLong("user_id"), rs.getString("event_type"), rs.getLong("entity_id")});
+            if (objects.isEmpty()) {
+                break;
+            }
+            List<Object[]> chunk = objects;
+            removed += transactionTemplate.execute(status -> compactChains(bucket, chunk, onRemoved));
+            after = objects.getLast();
+        } while (objects.size() == COMPACT_CHUNK);
+        return removed;
+    }
+
+    private int compactChains(int bucket, List<Object[]> objects, Consumer<List<Long>> onRemoved) {
+        String sql = "SELECT event_id, user_id, event_type, operation, entity_id, bucket FROM feed_events " +
+                "WHERE user_id IN (:userIds) AND bucket <= :bucket " +
+                "AND (user_id, event_type, entity_id) IN (:objects) " +
+                "ORDER BY user_id, event_type, entity_id, event_id";
+        PairCollector pairs = new PairCollector();
+        jdbc.query(sql, new MapSqlParameterSource()
+                .addValue("userIds", objects.stream().map(object -> object[0]).distinct().toList())
+                .addValue("bucket", bucket)
+                .addValue("objects", objects), pairs);
+
+        List<Long> removed = pairs.removed;
+        for (int from = 0; from < removed.size(); from += DELETE_CHUNK) {
+            List<Long> chunk = removed.subList(from, Math.min(from + DELETE_CHUNK, removed.size()));
+            jdbc.update("DELETE FROM feed_events WHERE event_id IN (:ids)", new MapSqlParameterSource("ids", chunk));
+        }
+        jdbc.batchUpdate(ARCHIVE_SQL, pairs.archive.entrySet().stream()
+                .map(entry -> new MapSqlParameterSource()
+                        .addValue("userId", entry.getKey().userId())
+                        .addValue("eventType", entry.getKey().eventType())
+                        .addValue("entityId", entry.getKey().entityId())
+                        .addValue("bucket", entry.getKey().bucket())
+                        .addValue("pairs", entry.getValue()))
+                .toArray(SqlParameterSource[]::new));
+        onRemoved.accept(removed);
+        log.debug("Схлопнуто пар ADD/REMOVE в корзине {}: {}, удалено событий: {}", bucket,
+                pairs.archive.values().stream().mapToInt(Integer::intValue).sum(), removed.size());
+        return removed.size();
+    }
+
+    /**
+     * Собирает цепочки ADD [UPDATE...] REMOVE по строкам, упорядоченным по
+     * (пользователь, тип, объект, id).
+     */
+    private static final class PairCollector implements RowCallbackHandler {
+        private final List<Long> removed = new ArrayList<>();
+        private final Map<ArchiveKey, Integer> archive = new HashMap<>();
+        private final List<Long> open = new ArrayList<>();
+        private ArchiveKey openKey;
+
+        private record ArchiveKey(long userId, String eventType, long entityId, int bucket) {
+            boolean sameObject(long userId, String eventType, long entityId) {
+                return this.userId == userId && this.eventType.equals(eventType) && this.entityId == entityId;
+            }
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            long eventId = rs.getLong("event_id");
+            long userId = rs.getLong("user_id");
+            String eventType = rs.getString("event_type");
+            long entityId = rs.getLong("entity_id");
+            if (openKey != null && !openKey.sameObject(userId, eventType, entityId)) {
+                open.clear();
+                openKey = null;
+            }
+            switch (Operation.valueOf(rs.getString("operation"))) {
+                case ADD -> {
+                    open.clear();
+                    open.add(eventId);
+                    openKey = new ArchiveKey(userId, eventType, entityId, rs.getInt("bucket"));
+                }
+                case UPDATE -> {
+                    if (!open.isEmpty()) {
+                        open.add(eventId);
+                    }
+                }
+                case REMOVE -> {
+                    if (!open.isEmpty()) {
+                        removed.addAll(open);
+                        removed.add(eventId);
+                        open.clear();
+                        archive.merge(openKey, 1, Integer::sum);
+                    }
+                }
+            }
+        }
     }
-}
\ No newline at end of file
+}
@@ -7,6 +7,7 @@ import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.ResultSetExtractor;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
@@ -14,12 +15,13 @@ import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.interfaces.*;
 import ru.yandex.practicum.filmorate.model.Director;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmPopularity;
 import ru.yandex.practicum.filmorate.model.Like;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.Duration;
 import java.util.*;
-import java.util.function.Function;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -31,9 +33,29 @@ public class JdbcFilmRepository implements FilmRepository {
     private final GenreRepository genreRepository;
     private final LikeRepository likeRepository;
     private final DirectorRepository directorRepository;
-    private final ResultSetExtractor<Collection<Film>> filmsExtractor;
     private final ResultSetExtractor<Film> filmExtractor;
 
+    private static final int ID_BATCH_SIZE = 1000;
+
+    private static final String SELECT_FILMS = """
+            SELECT
+                f.film_id,
+                f.films_name,
+                f.description,
+                f.release_date,
+                f.duration,
+                f.mpa_id,
+                m.mpa_name
+            FROM films f
+            LEFT JOIN mpa m ON f.mpa_id = m.mpa_id
+            """;
+
+    /**
+     * Выгрузка идёт страницами по film_id: в памяти одновременно не больше одной страницы
+     * фильмов с жанрами, режиссерами и лайками.
+     */
+    private static final int EXPORT_PAGE_SIZE = 500;
+
     @Autowired
     public JdbcFilmRepository(
             NamedParameterJdbcOperations jdbcOperations,
@@ -47,37 +69,9 @@ public class JdbcFilmRepository implements FilmRepository {
         this.genreRepository = genreRepository;
         this.likeRepository = likeRepository;
         this.directorRepository = directorRepository;
-        this.filmsExtractor = createFilmsExtractor();
         this.filmExtractor = createFilmExtractor();
     }
 
-    private ResultSetExtractor<Collection<Film>> createFilmsExtractor() {
-        return rs -> {
-            Map<Long, Film> films = new LinkedHashMap<>();
-            while (rs.next()) {
-                Long filmId = rs.getLong("film_id");
-                Film film = films.get(filmId);
-                if (film == null) {
-                    film = mapRow(rs);
-                    films.put(filmId, film);
-                }
-                log.info("Добавляю жанры");
-                genreRepository.addGenreFromResultSet(rs, film);
-
-                log.info("Добавляю режиссеров");
-                directorRepository.addDirectorFromResultSet(rs, film);
-
-                Long userId = rs.getLong("user_id");
-                log.info("Ищу лайки");
-                if (userId != 0 && !rs.wasNull()) {
-                    log.info("Добавляю лайк для фильма {} от пользователя {}", filmId, userId);
-                    film.addLike(filmId, userId);
-                }
-            }
-            return new ArrayList<>(films.values());
-        };
-    }
-
     private ResultSetExtractor<Film> createFilmExtractor() {
         return rs -> {
             Film film = null;
@@ -121,6 +115,37 @@ public class JdbcFilmRepository implements FilmRepository {
         film.setDirectors(directors);
     }
 
+    /**
+     * Загружает базовые строки фильмов одним запросом, а жанры, режиссеров и лайки
+     * догружает отдельными запросами по всему набору id, без декартова произведения.
+     */
+    private List<Film> loadFilms(String sql, SqlParameterSource params) {
+        List<Film> films = jdbcOperations.query(sql, params, (rs, rowNum) -> mapRow(rs));
+        loadChildren(films);
+        return films;
+    }
+
+    private void loadChildren(List<Film> films) {
+        if (films.isEmpty()) {
+            return;
+        }
+        Map<Long, Film> filmsById = new LinkedHashMap<>();
+        films.forEach(film -> filmsById.put(film.getId(), film));
+        List<Long> ids = new ArrayList<>(filmsById.keySet());
+
+        for (int from = 0; from < ids.size(); from += ID_BATCH_SIZE) {
+            List<Long> batch = ids.subList(from, Math.min(from + ID_BATCH_SIZE, ids.size()));
+            log.info("Догружаю жанры, режиссеров и лайки для {} фильмов", batch.size());
+
+            genreRepository.loadGenres(batch).forEach((filmId, genres) ->
+                    genres.forEach(filmsById.get(filmId)::addGenres));
+            directorRepository.loadDirectors(batch).forEach((filmId, directors) ->
+                    filmsById.get(filmId).getDirectors().addAll(directors));
+            likeRepository.findLikesByFilmIds(batch).forEach(like ->
+                    filmsById.get(like.getIdFilm()).addLike(like.getIdFilm(), like.getIdUser()));
+        }
+    }
+
     @Override
     public Film getFilmById(Long id) {
         log.info("Ищем фильм по id: {}", id);
@@ -158,39 +183,67 @@ public class JdbcFilmRepository implements FilmRepository {
     @Override
     public Collection<Film> findAll() {
         log.info("Запускаю метод findAll");
-        String sql = "SELECT " +
-                "f.film_id, " +
-                "f.films_name, " +
-                "f.description, " +
-                "f.release_date, " +
-                "f.duration, " +
-                "f.mpa_id, " +
-                "m.mpa_name, " +
-                "g.genre_id, " +
-                "g.genre_name, " +
-                "l.user_id, " +
-                "d.director_id, " +
-                "d.director_name " +
-                "FROM films f " +
-                "LEFT JOIN mpa m ON f.mpa_id = m.mpa_id " +
-                "LEFT JOIN film_genre fg ON f.film_id = fg.film_id " +
-                "LEFT JOIN genre g ON fg.genre_id = g.genre_id " +
-                "LEFT JOIN likes l ON f.film_id = l.film_id " +
-                "LEFT JOIN film_directors fd ON f.film_id = fd.film_id " +
-                "LEFT JOIN directors d ON fd.director_id = d.director_id " +
-                "ORDER BY f.film_id";
-        return jdbcOperations.query(sql, filmsExtractor);
+        return loadFilms(SELECT_FILMS + "ORDER BY f.film_id", new MapSqlParameterSource());
+    }
+
+    @Override
+    public List<Film> findPage(long afterId, int limit) {
+        log.info("Получаю страницу фильмов после id={}, limit={}", afterId, limit);
+        String sql = SELECT_FILMS + "WHERE f.film_id > :after ORDER BY f.film_id LIMIT :limit";
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("after", afterId)
+                .addValue("limit", limit);
+        return loadFilms(sql, params);
     }
 
     @Override
+    public List<Film> findByIds(Collection<Long> filmIds) {
+        if (filmIds == null || filmIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(filmIds));
+        Map<Long, Film> filmMap = new HashMap<>();
+        for (int from = 0; from < ids.size(); from += ID_BATCH_SIZE) {
+            List<Long> batch = ids.subList(from, Math.min(from + ID_BATCH_SIZE, ids.size()));
+            jdbcOperations.query(SELECT_FILMS + "WHERE f.film_id IN (:filmIds)",
+                    new MapSqlParameterSource("filmIds", batch),
+                    rs -> {
+                        Film film = mapRow(rs);
+                        filmMap.put(film.getId(), film);
+                    });
+        }
+        List<Film> films = ids.stream()
+                .map(filmMap::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        loadChildren(films);
+        return films;
+    }
+
+    @Override
+    public void exportAll(Consumer<Film> consumer) {
+        log.info("Запускаю потоковую выгрузку фильмов");
+        long after = 0;
+        List<Film> page;
+        do {
+            page = findPage(after, EXPORT_PAGE_SIZE);
+            page.forEach(consumer);
+            if (!page.isEmpty()) {
+                after = page.getLast().getId();
+            }
+        } while (page.size() == EXPORT_PAGE_SIZE);
+    }
+
+    /**
+     * Топ фильмов одним SQL-запросом. Сервис берёт рейтинг из {@code PopularityIndex};
+     * запрос остаётся эталоном для его тестов и базовой линией {@code PopularFilmsBenchmark}.
+     */
     public Collection<Film> findPopularFilms(Long count) {
         log.info("Получаю популярные фильмы: {}", count);
 
-        String popularIdsSql = "SELECT f.film_id, COUNT(l.user_id) as likes_count " +
+        String popularIdsSql = "SELECT f.film_id " +
                 "FROM films f " +
-                "LEFT JOIN likes l ON f.film_id = l.film_id " +
-                "GROUP BY f.film_id " +
-                "ORDER BY likes_count DESC " +
+                "ORDER BY f.likes_count DESC, f.film_id " +
                 "LIMIT :count";
 
         MapSqlParameterSource params = new MapSqlParameterSource();
@@ -202,59 +255,23 @@ public class JdbcFilmRepository implements FilmRepository {
                 (rs, rowNum) -> rs.getLong("film_id")
         );
 
-        if (popularFilmIds.isEmpty()) {
-            return Collections.emptyList();
-        }
-
-        String filmsSql = "SELECT " +
-                "f.film_id, " +
-                "f.films_name, " +
-                "f.description, " +
-                "f.release_date, " +
-                "f.duration, " +
-                "f.mpa_id, " +
-                "m.mpa_name, " +
-                "g.genre_id, " +
-                "g.genre_name, " +
-                "d.director_id, " +
-                "d.director_name, " +
-                "l.user_id " +
-                "FROM films f " +
-                "LEFT JOIN mpa m ON f.mpa_id = m.mpa_id " +
-                "LEFT JOIN film_genre fg ON f.film_id = fg.film_id " +
-                "LEFT JOIN genre g ON fg.genre_id = g.genre_id " +
-                "LEFT JOIN film_directors fd ON f.film_id = fd.film_id " +
-                "LEFT JOIN directors d ON fd.director_id = d.director_id " +
-                "LEFT JOIN likes l ON f.film_id = l.film_id " +
-                "WHERE f.film_id IN (:filmIds)";
-
-        MapSqlParameterSource filmsParams = new MapSqlParameterSource();
-        filmsParams.addValue("filmIds", popularFilmIds);
-
-        Collection<Film> films = jdbcOperations.query(filmsSql, filmsParams, filmsExtractor);
-        Map<Long, Film> filmMap = films.stream()
-                .collect(Collectors.toMap(Film::getId, Function.identity()));
-
-        return popularFilmIds.stream()
-                .map(filmMap::get)
-                .filter(Objects::nonNull)
-                .collect(Collectors.toList());
+        return findByIds(popularFilmIds);
     }
 
-    @Override
+    /**
+     * Топ с фильтрами по жанру и году в SQL, эталон для разделов {@code PopularityIndex}.
+     */
     public Collection<Film> findPopular(Long count, Long genreId, Long year) {
         log.info("Получаю популярные фильмы c фильтрами: count={}, genreId={}, year={}", count, genreId, year);
 
         String popularIdsSql = """
-        SELECT f.film_id, COUNT(DISTINCT l.user_id) AS likes_count
+        SELECT f.film_id
         FROM films f
-        LEFT JOIN likes l ON l.film_id = f.film_id
         WHERE (:genreId IS NULL OR EXISTS (
             SELECT 1 FROM film_genre fg WHERE fg.film_id = f.film_id AND fg.genre_id = :genreId
         ))
         AND (:year IS NULL OR EXTRACT(YEAR FROM f.release_date) = :year)
-        GROUP BY f.film_id
-        ORDER BY likes_count DESC, f.film_id
+        ORDER BY f.likes_count DESC, f.film_id
         LIMIT :count
     """;
 
@@ -270,73 +287,46 @@ public class JdbcFilmRepository implements FilmRepository {
                 (rs, rowNum) -> rs.getLong("film_id")
         );
 
-        if (popularFilmIds.isEmpty()) {
-            return Collections.emptyList();
-        }
-
-        String filmsSql = """
-        SELECT
-            f.film_id,
-            f.films_name,
-            f.description,
-            f.release_date,
-            f.duration,
-            f.mpa_id,
-            m.mpa_name,
-            g.genre_id,
-            g.genre_name,
-            d.director_id,
-            d.director_name,
-            l.user_id
-        FROM films f
-        LEFT JOIN mpa m ON f.mpa_id = m.mpa_id
-        LEFT JOIN film_genre fg ON f.film_id = fg.film_id
-        LEFT JOIN genre g ON fg.genre_id = g.genre_id
-        LEFT JOIN film_directors fd ON f.film_id = fd.film_id
-        LEFT JOIN directors d ON fd.director_id = d.director_id
-        LEFT JOIN likes l ON f.film_id = l.film_id
-        WHERE f.film_id IN (:filmIds)
-        ORDER BY f.film_id
-    """;
-
-        MapSqlParameterSource filmsParams = new MapSqlParameterSource()
-                .addValue("filmIds", popularFilmIds);
-
-        Collection<Film> films = jdbcOperations.query(filmsSql, filmsParams, filmsExtractor);
-
-        Map<Long, Film> filmMap = films.stream()
-                .collect(Collectors.toMap(Film::getId, Function.identity()));
+        return findByIds(popularFilmIds);
+    }
 
-        return popularFilmIds.stream()
-                .map(filmMap::get)
-                .filter(Objects::nonNull)
-                .collect(Collectors.toList());
+    @Override
+    public List<FilmPopularity> findFilmPopularity() {
+        String sql = """
+                SELECT f.film_id, EXTRACT(YEAR FROM f.release_date) AS release_year,
+                       (SELECT COUNT(*) FROM likes l WHERE l.film_id = f.film_id) AS likes_count
+                FROM films f
+                ORDER BY f.film_id
+                """;
+        Map<Long, Set<Long>> genreIdsByFilm = new HashMap<>();
+        jdbcOperations.query("SELECT film_id, genre_id FROM film_genre", rs -> {
+            genreIdsByFilm.computeIfAbsent(rs.getLong("film_id"), k -> new HashSet<>())
+                    .add(rs.getLong("genre_id"));
+        });
+        return jdbcOperations.query(sql, (rs, rowNum) -> {
+            long filmId = rs.getLong("film_id");
+            int year = rs.getInt("release_year");
+            return new FilmPopularity(filmId, rs.getLong("likes_count"), rs.wasNull() ? null : year,
+                    genreIdsByFilm.getOrDefault(filmId, Set.of()));
+        });
     }
 
     @Override
+    public Map<Long, String> findTitles() {
+        Map<Long, String> titles = new HashMap<>();
+        jdbcOperations.query("SELECT film_id, films_name FROM films", rs -> {
+            titles.put(rs.getLong("film_id"), rs.getString("films_name"));
+        });
+        return titles;
+    }
+
+    /**
+     * Общие фильмы через лайки в базе. Сервис пересекает множества {@code UserLikesIndex},
+     * а этот запрос меряется как базовая линия в {@code CommonFilmsBenchmark}.
+     */
     public Collection<Film> findCommonFilms(Long userId, Long friendId) {
         log.info("Получаю общие фильмы для пользователей userId={}, friendId={}", userId, friendId);
-        String sql = """
-                SELECT
-                  f.film_id,
-                  f.films_name,
-                  f.description,
-                  f.release_date,
-                  f.duration,
-                  f.mpa_id,
-                  m.mpa_name,
-                  g.genre_id,
-                  g.genre_name,
-                  d.director_id,
-                  d.director_name,
-                  l.user_id
-                FROM films f
-                LEFT JOIN mpa m ON f.mpa_id = m.mpa_id
-                LEFT JOIN film_genre fg ON f.film_id = fg.film_id
-                LEFT JOIN genre g ON fg.genre_id = g.genre_id
-                LEFT JOIN film_directors fd ON f.film_id = fd.film_id
-                LEFT JOIN directors d ON fd.director_id = d.director_id
-                LEFT JOIN likes l ON f.film_id = l.film_id
+        String sql = SELECT_FILMS + """
                 WHERE EXISTS (
                     SELECT 1 FROM likes l1 WHERE l1.film_id = f.film_id AND l1.user_id = :userId
                 )
@@ -350,7 +340,7 @@ public class JdbcFilmRepository implements FilmRepository {
                 .addValue("userId", userId)
                 .addValue("friendId", friendId);
 
-        return jdbcOperations.query(sql, params, filmsExtractor);
+        return loadFilms(sql, params);
     }
 
     @Override
@@ -442,117 +432,61 @@ public class JdbcFilmRepository implements FilmRepository {
         directorRepository.findById(directorId);
         log.info("Получаю фильмы по id режиссера : {}", directorId);
         log.info("Сортирую по : {}", sortBy);
-        String sql;
+        String orderBy;
         if ("likes".equals(sortBy)) {
-            sql = """
-                    SELECT
-                    f.film_id,
-                    f.films_name,
-                    f.description,
-                    f.release_date,
-                    f.duration,
-                    f.mpa_id,
-                    m.mpa_name,
-                    d.director_id,
-                    d.director_name,
-                    g.genre_id,
-                    g.genre_name,
-                    l.user_id,
-                    COUNT(l.user_id) OVER (PARTITION BY f.film_id) AS likes_count
-                    FROM films f
-                    LEFT JOIN mpa m ON f.mpa_id = m.mpa_id
-                    LEFT JOIN film_directors fd ON f.film_id = fd.film_id
-                    LEFT JOIN directors d ON fd.director_id = d.director_id
-                    LEFT JOIN film_genre fg ON f.film_id = fg.film_id
-                    LEFT JOIN genre g ON fg.genre_id = g.genre_id
-                    LEFT JOIN likes l ON f.film_id = l.film_id
-                    WHERE d.director_id = :directorId
-                    ORDER BY likes_count DESC
-                    """;
+            orderBy = "ORDER BY f.likes_count DESC, f.film_id";
         } else if ("year".equals(sortBy)) {
-            sql = """
-                    SELECT
-                    f.film_id,
-                    f.films_name,
-                    f.description,
-                    f.release_date,
-                    f.duration,
-                    f.mpa_id,
-                    m.mpa_name,
-                    d.director_id,
-                    d.director_name,
-                    g.genre_id,
-                    g.genre_name,
-                    l.user_id AS like_user_id
-                    FROM films f
-                    LEFT JOIN mpa m ON f.mpa_id = m.mpa_id
-                    LEFT JOIN film_directors fd ON f.film_id = fd.film_id
-                    LEFT JOIN directors d ON fd.director_id = d.director_id
-                    LEFT JOIN film_genre fg ON f.film_id = fg.film_id
-                    LEFT JOIN genre g ON fg.genre_id = g.genre_id
-                    LEFT JOIN likes l ON f.film_id = l.film_id
-                    WHERE d.director_id = :directorId
-                    ORDER BY EXTRACT(YEAR FROM f.release_date)
-                    """;
+            orderBy = "ORDER BY EXTRACT(YEAR FROM f.release_date), f.film_id";
         } else {
             throw new IllegalArgumentException("Неизвестный параметр для сортировки: " + sortBy);
         }
-        Map<String, Object> params = Map.of("directorId", directorId);
-        return jdbcOperations.query(sql, params, filmsExtractor);
+        String sql = SELECT_FILMS + """
+                WHERE EXISTS (
+                    SELECT 1 FROM film_directors fd WHERE fd.film_id = f.film_id AND fd.director_id = :directorId
+                )
+                """ + orderBy;
+        return loadFilms(sql, new MapSqlParameterSource("directorId", directorId));
     }
 
-    @Override
+    /**
+     * Поиск по названию через LIKE. В работе {@code FilmSearchIndex}; запрос служит
+     * эталоном выдачи в тестах сервиса, как и два соседних.
+     */
     public Collection<Film> searchFilmsByTitle(String query) {
-        String sql = "SELECT f.*, m.mpa_name, g.genre_id, g.genre_name, d.director_id, d.director_name, l.user_id, " +
-                "COUNT(l.user_id) OVER (PARTITION BY f.film_id) AS likes_count " +
-                "FROM films f " +
-                "LEFT JOIN mpa m ON f.mpa_id = m.mpa_id " +
-                "LEFT JOIN film_genre fg ON f.film_id = fg.film_id " +
-                "LEFT JOIN genre g ON fg.genre_id = g.genre_id " +
-                "LEFT JOIN film_directors fd ON f.film_id = fd.film_id " +
-                "LEFT JOIN directors d ON fd.director_id = d.director_id " +
-                "LEFT JOIN likes l ON f.film_id = l.film_id " +
+        String sql = SELECT_FILMS +
                 "WHERE (:query = '' OR LOWER(f.films_name) LIKE LOWER('%' || :query || '%')) " +
-                "ORDER BY likes_count DESC, f.film_id";
+                "ORDER BY f.likes_count DESC, f.film_id";
 
         MapSqlParameterSource params = new MapSqlParameterSource("query", query);
-        return jdbcOperations.query(sql, params, filmsExtractor);
+        return loadFilms(sql, params);
     }
 
-    @Override
+    /**
+     * Эталонный поиск по имени режиссёра.
+     */
     public Collection<Film> searchFilmsByDirector(String query) {
-        String sql = "SELECT f.*, m.mpa_name, g.genre_id, g.genre_name, d.director_id, d.director_name, l.user_id, " +
-                "COUNT(l.user_id) OVER (PARTITION BY f.film_id) AS likes_count " +
-                "FROM films f " +
-                "LEFT JOIN mpa m ON f.mpa_id = m.mpa_id " +
-                "LEFT JOIN film_genre fg ON f.film_id = fg.film_id " +
-                "LEFT JOIN genre g ON fg.genre_id = g.genre_id " +
-                "LEFT JOIN film_directors fd ON f.film_id = fd.film_id " +
-                "LEFT JOIN directors d ON fd.director_id = d.director_id " +
-                "LEFT JOIN likes l ON f.film_id = l.film_id " +
-                "WHERE (:query = '' OR LOWER(d.director_name) LIKE LOWER('%' || :query || '%')) " +
-                "ORDER BY likes_count DESC, f.film_id";
+        String sql = SELECT_FILMS +
+                "WHERE (:query = '' OR EXISTS (SELECT 1 FROM film_directors fd " +
+                "JOIN directors d ON fd.director_id = d.director_id " +
+                "WHERE fd.film_id = f.film_id AND LOWER(d.director_name) LIKE LOWER('%' || :query || '%'))) " +
+                "ORDER BY f.likes_count DESC, f.film_id";
 
         MapSqlParameterSource params = new MapSqlParameterSource("query", query);
-        return jdbcOperations.query(sql, params, filmsExtractor);
+        return loadFilms(sql, params);
     }
 
-    @Override
+    /**
+     * Эталонный поиск по названию или режиссёру.
+     */
     public Collection<Film> searchFilmsByTitleAndDirector(String query) {
-        String sql = "SELECT f.*, m.mpa_name, g.genre_id, g.genre_name, d.director_id, d.director_name, l.user_id, " +
-                "COUNT(l.user_id) OVER (PARTITION BY f.film_id) AS likes_count " +
-                "FROM films f " +
-                "LEFT JOIN mpa m ON f.mpa_id = m.mpa_id " +
-                "LEFT JOIN film_genre fg ON f.film_id = fg.film_id " +
-                "LEFT JOIN genre g ON fg.genre_id = g.genre_id " +
-                "LEFT JOIN film_directors fd ON f.film_id = fd.film_id " +
-                "LEFT JOIN directors d ON fd.director_id = d.director_id " +
-                "LEFT JOIN likes l ON f.film_id = l.film_id " +
-                "WHERE (:query = '' OR (LOWER(f.films_name) LIKE LOWER('%' || :query || '%') " +
-                "OR LOWER(d.director_name) LIKE LOWER('%' || :query || '%'))) " +
-                "ORDER BY likes_count DESC, f.film_id";
+        String sql = SELECT_FILMS +
+                "WHERE (:query = '' OR LOWER(f.films_name) LIKE LOWER('%' || :query || '%') " +
+                "OR EXISTS (SELECT 1 FROM film_directors fd " +
+                "JOIN directors d ON fd.director_id = d.director_id " +
+                "WHERE fd.film_id = f.film_id AND LOWER(d.director_name) LIKE LOWER('%' || :query || '%'))) " +
+                "ORDER BY f.likes_count DESC, f.film_id";
 
         MapSqlParameterSource params = new MapSqlParameterSource("query", query);
-        return jdbcOperations.query(sql, params, filmsExtractor);
+        return loadFilms(sql, params);
     }
-}
\ No newline at end of file
+}
@@ -4,9 +4,10 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.dao.DataAccessException;
-import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
 import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.interfaces.GenreRepository;
@@ -15,73 +16,82 @@ import ru.yandex.practicum.filmorate.model.Genre;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 @Slf4j
 @Repository
 @Qualifier("jdbcGenreRepository")
+@ManagedResource(description = "Справочник жанров")
 @RequiredArgsConstructor
 public class JdbcGenreRepository implements GenreRepository {
     private final NamedParameterJdbcOperations jdbcOperations;
 
+    private volatile Map<Long, Genre> snapshot;
+
     @Override
     public Genre findById(Long genreId) {
-        String sql = "SELECT * FROM genre WHERE genre_id = :genre_id";
-        log.info("Собираю жанры");
-        try {
-            return jdbcOperations.queryForObject(
-                    sql,
-                    new MapSqlParameterSource("genre_id", genreId),
-                    (rs, rowNum) -> new Genre(
-                            rs.getLong("genre_id"),
-                            rs.getString("genre_name"))
-            );
-        } catch (EmptyResultDataAccessException e) {
-            log.info("Поймал ошибку " + e.getMessage());
+        Genre genre = snapshot().get(genreId);
+        if (genre == null) {
+            log.info("Жанр {} не найден", genreId);
             throw new NotFoundException("Один или несколько жанров не найдены");
         }
+        return genre;
     }
 
     @Override
     public Collection<Genre> findAll() {
-        String sql = "SELECT * FROM genre ORDER BY genre_id";
-        return jdbcOperations.query(sql, (rs, rowNum) ->
-                new Genre(rs.getLong("genre_id"), rs.getString("genre_name")));
+        return List.copyOf(snapshot().values());
     }
 
     @Override
     public void validateGenres(Set<Genre> genres) {
         if (genres == null || genres.isEmpty()) return;
 
-        Set<Long> genreIds = genres.stream()
+        Map<Long, Genre> known = snapshot();
+        Set<Long> unknownIds = genres.stream()
                 .map(Genre::getId)
+                .filter(id -> !known.containsKey(id))
                 .collect(Collectors.toSet());
 
-        log.info("Валидирую жанры: {}", genreIds);
+        if (!unknownIds.isEmpty()) {
+            log.warn("Жанры не найдены: {}", unknownIds);
+            throw new NotFoundException("Один или несколько жанров не существуют");
+        }
+    }
 
-        String sql = "SELECT COUNT(*) FROM genre WHERE genre_id IN (:genre_id)";
-        try {
-            Integer count = jdbcOperations.queryForObject(
-                    sql,
-                    new MapSqlParameterSource("genre_id", genreIds),
-                    Integer.class
-            );
-
-            if (count == null) {
-                log.warn("COUNT(*) вернул null для жанров: {}", genreIds);
-                count = 0;
-            }
+    /**
+     * Перечитывает справочник из базы. Нужен только после ручного изменения таблицы genre:
+     * приложение её не меняет.
+     */
+    @ManagedOperation(description = "Перечитать справочник жанров")
+    public void reload() {
+        String sql = "SELECT genre_id, genre_name FROM genre ORDER BY genre_id";
+        Map<Long, Genre> loaded = new LinkedHashMap<>();
+        jdbcOperations.query(sql, rs -> {
+            loaded.put(rs.getLong("genre_id"), new Genre(rs.getLong("genre_id"), rs.getString("genre_name")));
+        });
+        snapshot = Collections.unmodifiableMap(loaded);
+        log.info("Справочник жанров загружен: {} записей", loaded.size());
+    }
 
-            if (count != genreIds.size()) {
-                throw new NotFoundException("Один или несколько жанров не существуют");
+    private Map<Long, Genre> snapshot() {
+        Map<Long, Genre> current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                if (snapshot == null) {
+                    reload();
+                }
+                current = snapshot;
             }
-        } catch (EmptyResultDataAccessException e) {
-            log.error("Ошибка при валидации жанров: {}", genreIds, e);
-            throw new NotFoundException("Ошибка при проверке жанров");
         }
+        return current;
     }
 
     @Override
@@ -103,6 +113,24 @@ public class JdbcGenreRepository implements GenreRepository {
         film.addGenres(genre);
     }
 
+    @Override
+    public Map<Long, Set<Genre>> loadGenres(Collection<Long> filmIds) {
+        Map<Long, Set<Genre>> genresByFilm = new HashMap<>();
+        if (filmIds == null || filmIds.isEmpty()) return genresByFilm;
+
+        Map<Long, Genre> known = snapshot();
+        String sql = "SELECT film_id, genre_id FROM film_genre " +
+                "WHERE film_id IN (:filmIds) " +
+                "ORDER BY film_id, genre_id";
+        jdbcOperations.query(sql, new MapSqlParameterSource("filmIds", filmIds), rs -> {
+            Genre genre = known.get(rs.getLong("genre_id"));
+            if (genre != null) {
+                genresByFilm.computeIfAbsent(rs.getLong("film_id"), k -> new LinkedHashSet<>()).add(genre);
+            }
+        });
+        return genresByFilm;
+    }
+
     @Override
     public void saveFilmGenres(Film film) {
         log.info("Сохраняю жанры фмльма");
@@ -6,11 +6,15 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.interfaces.FeedService;
 import ru.yandex.practicum.filmorate.interfaces.LikeRepository;
 import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.model.LikesCountDrift;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 @Slf4j
 @Repository
@@ -35,7 +39,32 @@ public class JdbcLikeRepository implements LikeRepository {
     }
 
     @Override
-    public void addLike(Long filmId, Long userId) {
+    public List<Like> findLikesByFilmIds(Collection<Long> filmIds) {
+        if (filmIds == null || filmIds.isEmpty()) {
+            return List.of();
+        }
+        String sql = "SELECT film_id, user_id FROM likes WHERE film_id IN (:filmIds)";
+
+        return jdbcOperations.query(
+                sql,
+                new MapSqlParameterSource("filmIds", filmIds),
+                (rs, rowNum) -> new Like(
+                        rs.getLong("film_id"),
+                        rs.getLong("user_id")
+                )
+        );
+    }
+
+    @Override
+    public void forEachLike(Consumer<Like> consumer) {
+        jdbcOperations.query("SELECT film_id, user_id FROM likes", rs -> {
+            consumer.accept(new Like(rs.getLong("film_id"), rs.getLong("user_id")));
+        });
+    }
+
+    @Override
+    @Transactional
+    public boolean addLike(Long filmId, Long userId) {
         String checkLikeSql = "SELECT COUNT(*) FROM likes WHERE film_id = :film_id AND user_id = :user_id";
         Integer likeCount = jdbcOperations.queryForObject(
                 checkLikeSql,
@@ -46,7 +75,7 @@ public class JdbcLikeRepository implements LikeRepository {
         );
         if (likeCount > 0) {
             feedService.saveLike(filmId, userId);
-            return;
+            return false;
         } else {
             String sql = "INSERT INTO likes (film_id, user_id) VALUES (:film_id, :user_id)";
             jdbcOperations.update(
@@ -55,12 +84,15 @@ public class JdbcLikeRepository implements LikeRepository {
                             .addValue("film_id", filmId)
                             .addValue("user_id", userId)
             );
+            changeLikesCount(filmId, 1);
             log.info("Лайк добавлен: film_id={}, user_id={}", filmId, userId);
             feedService.saveLike(filmId, userId);
+            return true;
         }
     }
 
     @Override
+    @Transactional
     public void removeLike(Long filmId, Long userId) {
         String sql = "DELETE FROM likes WHERE film_id = :film_id AND user_id = :user_id";
         int rowsUpdated = jdbcOperations.update(sql, new MapSqlParameterSource()
@@ -70,6 +102,7 @@ public class JdbcLikeRepository implements LikeRepository {
         if (rowsUpdated == 0) {
             throw new NotFoundException("Пользователь или фильм не найдены");
         }
+        changeLikesCount(filmId, -1);
         feedService.removeLike(filmId, userId);
     }
 
@@ -82,4 +115,45 @@ public class JdbcLikeRepository implements LikeRepository {
                 Long.class
         );
     }
-}
\ No newline at end of file
+
+    @Override
+    public List<Long> findFilmIdsLikedByUser(Long userId) {
+        String sql = "SELECT film_id FROM likes WHERE user_id = :user_id";
+        return jdbcOperations.queryForList(sql, new MapSqlParameterSource("user_id", userId), Long.class);
+    }
+
+    @Override
+    public List<LikesCountDrift> findLikesCountDrift() {
+        String sql = "SELECT f.film_id, f.likes_count, COUNT(l.user_id) AS actual_count " +
+                "FROM films f " +
+                "LEFT JOIN likes l ON f.film_id = l.film_id " +
+                "GROUP BY f.film_id, f.likes_count " +
+                "HAVING f.likes_count <> COUNT(l.user_id) " +
+                "ORDER BY f.film_id";
+        return jdbcOperations.query(sql, (rs, rowNum) -> new LikesCountDrift(
+                rs.getLong("film_id"),
+                rs.getLong("likes_count"),
+                rs.getLong("actual_count")
+        ));
+    }
+
+    @Override
+    @Transactional
+    public void repairLikesCounts(Collection<Long> filmIds) {
+        if (filmIds == null || filmIds.isEmpty()) {
+            return;
+        }
+        String sql = "UPDATE films SET likes_count = " +
+                "(SELECT COUNT(*) FROM likes l WHERE l.film_id = films.film_id) " +
+                "WHERE film_id IN (:filmIds)";
+        int updated = jdbcOperations.update(sql, new MapSqlParameterSource("filmIds", filmIds));
+        log.info("Пересчитан счетчик лайков для {} фильмов", updated);
+    }
+
+    private void changeLikesCount(Long filmId, int delta) {
+        String sql = "UPDATE films SET likes_count = likes_count + :delta WHERE film_id = :film_id";
+        jdbcOperations.update(sql, new MapSqlParameterSource()
+                .addValue("delta", delta)
+                .addValue("film_id", filmId));
+    }
+}
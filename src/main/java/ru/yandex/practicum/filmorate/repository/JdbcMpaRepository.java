@@ -3,47 +3,69 @@ package ru.yandex.practicum.filmorate.repository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.dao.EmptyResultDataAccessException;
-import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
 import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.interfaces.MpaRepository;
 import ru.yandex.practicum.filmorate.model.Mpa;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 @Slf4j
 @Repository
 @Qualifier("jdbcMpaRepository")
+@ManagedResource(description = "Справочник MPA")
 @RequiredArgsConstructor
 public class JdbcMpaRepository implements MpaRepository {
     private final NamedParameterJdbcOperations jdbcOperations;
 
+    private volatile Map<Long, Mpa> snapshot;
+
     public Mpa findById(Long mpaId) {
-        String sql = "SELECT * FROM mpa WHERE mpa_id = :mpa_id";
-        try {
-            log.info("Запрос в базу {}", mpaId);
-            return jdbcOperations.queryForObject(
-                    sql,
-                    new MapSqlParameterSource("mpa_id", mpaId),
-                    (rs, rowNum) -> new Mpa(
-                            rs.getLong("mpa_id"),
-                            rs.getString("mpa_name"))
-
-            );
-        } catch (EmptyResultDataAccessException e) {
-            log.info("Ошибка {}", e.getMessage());
+        Mpa mpa = snapshot().get(mpaId);
+        if (mpa == null) {
+            log.info("MPA рейтинг {} не найден", mpaId);
             throw new NotFoundException("MPA рейтинг не найден");
         }
+        return new Mpa(mpa.getId(), mpa.getName());
     }
 
     public Collection<Mpa> mpaGetAll() {
-        String sql = "SELECT * FROM mpa GROUP BY mpa_id";
-        return jdbcOperations.query(
-                sql, (rs, rowNum) -> new Mpa(
-                        rs.getLong("mpa_id"),
-                        rs.getString("mpa_name")
-                ));
+        return snapshot().values().stream()
+                .map(mpa -> new Mpa(mpa.getId(), mpa.getName()))
+                .toList();
+    }
+
+    /**
+     * Перечитывает справочник из базы. Нужен только после ручного изменения таблицы mpa:
+     * приложение её не меняет.
+     */
+    @ManagedOperation(description = "Перечитать справочник MPA")
+    public void reload() {
+        String sql = "SELECT mpa_id, mpa_name FROM mpa ORDER BY mpa_id";
+        Map<Long, Mpa> loaded = new LinkedHashMap<>();
+        jdbcOperations.query(sql, rs -> {
+            loaded.put(rs.getLong("mpa_id"), new Mpa(rs.getLong("mpa_id"), rs.getString("mpa_name")));
+        });
+        snapshot = Collections.unmodifiableMap(loaded);
+        log.info("Справочник MPA загружен: {} записей", loaded.size());
+    }
+
+    private Map<Long, Mpa> snapshot() {
+        Map<Long, Mpa> current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                if (snapshot == null) {
+                    reload();
+                }
+                current = snapshot;
+            }
+        }
+        return current;
     }
-}
\ No newline at end of file
+}
@@ -7,81 +7,77 @@ import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
 import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.interfaces.RecommendationRepository;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
-import java.util.Optional;
-import java.util.stream.Collectors;
 
+/**
+ * Рекомендации на лету. Кандидаты в соседи берутся через индекс «фильм → лайкнувшие»
+ * только по фильмам, которые лайкнул сам пользователь. Поэтому работа зависит от размера
+ * его окрестности, а не от размера всей таблицы лайков.
+ */
 @Repository
 @Qualifier("jdbcRecommendationRepository")
 @RequiredArgsConstructor
 public class JdbcRecommendationRepository implements RecommendationRepository {
+    private static final String CO_LIKERS = "SELECT l.user_id FROM likes l " +
+            "WHERE l.film_id IN (SELECT film_id FROM likes WHERE user_id = :userId) AND l.user_id <> :userId";
 
     private final NamedParameterJdbcOperations jdbcOperations;
 
     @Override
     public List<Long> findRecommendedFilmIdsForUser(Long userId) {
-        List<Long> uLikesList = jdbcOperations.query(
-                "SELECT film_id FROM likes WHERE user_id = :userId",
-                new MapSqlParameterSource("userId", userId),
-                (rs, rowNum) -> rs.getLong("film_id")
-        );
-        Set<Long> uLikes = new HashSet<>(uLikesList);
+        MapSqlParameterSource params = new MapSqlParameterSource("userId", userId);
+        Set<Long> uLikes = new HashSet<>(jdbcOperations.query(
+                "SELECT film_id FROM likes WHERE user_id = :userId", params,
+                (rs, rowNum) -> rs.getLong("film_id")));
         if (uLikes.isEmpty()) return List.of();
 
-        Map<Long, Set<Long>> likesByUser = new HashMap<>();
+        LongIntHashMap common = new LongIntHashMap(64);
+        jdbcOperations.query(CO_LIKERS, params, rs -> {
+            common.addTo(rs.getLong("user_id"), 1);
+        });
+        if (common.size() == 0) return List.of();
+
+        // Лучший сосед: больше общих лайков, затем больше «лишних», затем больший id
+        long[] best = {-1, 0, 0};
         jdbcOperations.query(
-                "SELECT user_id, film_id FROM likes WHERE user_id <> :userId",
-                new MapSqlParameterSource("userId", userId),
+                "SELECT user_id, COUNT(*) AS total FROM likes WHERE user_id IN (SELECT DISTINCT user_id FROM (" +
+                        CO_LIKERS + ")) GROUP BY user_id",
+                params,
                 rs -> {
                     long otherId = rs.getLong("user_id");
-                    long filmId = rs.getLong("film_id");
-                    likesByUser.computeIfAbsent(otherId, k -> new HashSet<>()).add(filmId);
-                }
-        );
-
-        record SimilarityScore(long userId, int common, int extra) {}
-
-        Optional<Long> bestUserIdOpt = likesByUser.entrySet().stream()
-                .map(e -> {
-                    long otherId = e.getKey();
-                    Set<Long> otherLikes = e.getValue();
-                    int common = (int) otherLikes.stream().filter(uLikes::contains).count();
-                    int extra = (int) otherLikes.stream().filter(f -> !uLikes.contains(f)).count();
-                    return new SimilarityScore(otherId, common, extra);
-                })
-                .filter(sc -> sc.common() > 0 && sc.extra() > 0)
-                .max(Comparator
-                        .comparingInt(SimilarityScore::common)
-                        .thenComparingInt(SimilarityScore::extra)
-                        .thenComparingLong(SimilarityScore::userId)
-                )
-                .map(SimilarityScore::userId);
+                    int c = common.get(otherId);
+                    int extra = rs.getInt("total") - c;
+                    if (c == 0 || extra == 0) return;
+                    if (best[0] < 0 || c > best[1] || c == best[1] && (extra > best[2]
+                            || extra == best[2] && otherId > best[0])) {
+                        best[0] = otherId;
+                        best[1] = c;
+                        best[2] = extra;
+                    }
+                });
+        if (best[0] < 0) return List.of();
 
-        if (bestUserIdOpt.isEmpty()) return List.of();
-        long bestUserId = bestUserIdOpt.get();
-
-        List<Long> candidates = likesByUser.getOrDefault(bestUserId, Set.of()).stream()
+        List<Long> candidates = jdbcOperations.query(
+                        "SELECT film_id FROM likes WHERE user_id = :userId",
+                        new MapSqlParameterSource("userId", best[0]),
+                        (rs, rowNum) -> rs.getLong("film_id")).stream()
                 .filter(f -> !uLikes.contains(f))
                 .toList();
         if (candidates.isEmpty()) return List.of();
 
-        MapSqlParameterSource params = new MapSqlParameterSource().addValue("filmIds", candidates);
-        List<Map<String, Object>> rows = jdbcOperations.queryForList(
+        LongIntHashMap popularity = new LongIntHashMap(candidates.size());
+        jdbcOperations.query(
                 "SELECT film_id, COUNT(user_id) AS cnt FROM likes WHERE film_id IN (:filmIds) GROUP BY film_id",
-                params
-        );
-        Map<Long, Integer> popularity = rows.stream().collect(Collectors.toMap(
-                r -> ((Number) r.get("film_id")).longValue(),
-                r -> ((Number) r.get("cnt")).intValue()
-        ));
+                new MapSqlParameterSource("filmIds", candidates),
+                rs -> {
+                    popularity.addTo(rs.getLong("film_id"), rs.getInt("cnt"));
+                });
 
         return candidates.stream()
                 .sorted(Comparator
-                        .comparing((Long id) -> popularity.getOrDefault(id, 0)).reversed()
+                        .comparingInt((Long id) -> popularity.get(id)).reversed()
                         .thenComparing(Long::longValue))
                 .toList();
     }
@@ -0,0 +1,124 @@
+package ru.yandex.practicum.filmorate.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.interfaces.TimelineRepository;
+import ru.yandex.practicum.filmorate.model.EventType;
+import ru.yandex.practicum.filmorate.model.FeedEvent;
+import ru.yandex.practicum.filmorate.model.Operation;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+@Repository
+@RequiredArgsConstructor
+public class JdbcTimelineRepository implements TimelineRepository {
+    private static final int DELETE_CHUNK = 1000;
+    private static final String FAN_OUT_SQL = "MERGE INTO timeline_events (follower_id, event_id, author_id, " +
+            "event_type, operation, entity_id, timestamp) KEY (follower_id, event_id) " +
+            "SELECT f.user_id, :eventId, :userId, :eventType, :operation, :entityId, :timestamp " +
+            "FROM friendship f WHERE f.friend_id = :userId";
+    private static final String ADD_SQL = "MERGE INTO timeline_events (follower_id, event_id, author_id, " +
+            "event_type, operation, entity_id, timestamp) KEY (follower_id, event_id) " +
+            "VALUES (:followerId, :eventId, :userId, :eventType, :operation, :entityId, :timestamp)";
+    private static final RowMapper<FeedEvent> TIMELINE_EVENT_MAPPER = (rs, rowNum) -> {
+        FeedEvent event = new FeedEvent();
+        event.setEventId(rs.getLong("event_id"));
+        event.setUserId(rs.getLong("author_id"));
+        event.setEventType(EventType.valueOf(rs.getString("event_type")));
+        event.setOperation(Operation.valueOf(rs.getString("operation")));
+        event.setEntityId(rs.getLong("entity_id"));
+        event.setTimestamp(rs.getLong("timestamp"));
+        return event;
+    };
+
+    private final NamedParameterJdbcOperations jdbc;
+
+    @Override
+    public void fanOut(List<FeedEvent> events) {
+        jdbc.batchUpdate(FAN_OUT_SQL, events.stream()
+                .map(JdbcTimelineRepository::eventParams)
+                .toArray(SqlParameterSource[]::new));
+    }
+
+    @Override
+    public void addToTimeline(long followerId, List<FeedEvent> events) {
+        jdbc.batchUpdate(ADD_SQL, events.stream()
+                .map(event -> eventParams(event).addValue("followerId", followerId))
+                .toArray(SqlParameterSource[]::new));
+    }
+
+    @Override
+    public void removeAuthor(long followerId, long authorId) {
+        String sql = "DELETE FROM timeline_events WHERE follower_id = :followerId AND author_id = :authorId";
+        jdbc.update(sql, new MapSqlParameterSource()
+                .addValue("followerId", followerId)
+                .addValue("authorId", authorId));
+    }
+
+    @Override
+    public void removeEvents(List<Long> eventIds) {
+        for (int from = 0; from < eventIds.size(); from += DELETE_CHUNK) {
+            List<Long> chunk = eventIds.subList(from, Math.min(from + DELETE_CHUNK, eventIds.size()));
+            jdbc.update("DELETE FROM timeline_events WHERE event_id IN (:ids)", new MapSqlParameterSource("ids", chunk));
+        }
+    }
+
+    @Override
+    public int deleteBefore(long beforeTimestamp) {
+        return jdbc.update("DELETE FROM timeline_events WHERE timestamp < :beforeTimestamp",
+                new MapSqlParameterSource("beforeTimestamp", beforeTimestamp));
+    }
+
+    @Override
+    public List<FeedEvent> findTimelinePage(long followerId, long beforeEventId, int limit) {
+        String sql = "SELECT * FROM timeline_events " +
+                "WHERE follower_id = :followerId AND event_id < :beforeEventId " +
+                "ORDER BY event_id DESC " +
+                "LIMIT :limit";
+        return jdbc.query(sql, new MapSqlParameterSource()
+                .addValue("followerId", followerId)
+                .addValue("beforeEventId", beforeEventId)
+                .addValue("limit", limit), TIMELINE_EVENT_MAPPER);
+    }
+
+    @Override
+    public List<Long> findFollowedAmong(long followerId, Collection<Long> authorIds) {
+        if (authorIds.isEmpty()) {
+            return List.of();
+        }
+        String sql = "SELECT friend_id FROM friendship WHERE user_id = :followerId AND friend_id IN (:authorIds)";
+        return jdbc.queryForList(sql, new MapSqlParameterSource()
+                .addValue("followerId", followerId)
+                .addValue("authorIds", authorIds), Long.class);
+    }
+
+    @Override
+    public int countFollowers(long authorId) {
+        String sql = "SELECT COUNT(*) FROM friendship WHERE friend_id = :authorId";
+        Integer count = jdbc.queryForObject(sql, new MapSqlParameterSource("authorId", authorId), Integer.class);
+        return count != null ? count : 0;
+    }
+
+    @Override
+    public Set<Long> findAuthorsWithFollowersOver(int followers) {
+        String sql = "SELECT friend_id FROM friendship GROUP BY friend_id HAVING COUNT(*) > :followers";
+        return new HashSet<>(jdbc.queryForList(sql, new MapSqlParameterSource("followers", followers), Long.class));
+    }
+
+    private static MapSqlParameterSource eventParams(FeedEvent event) {
+        return new MapSqlParameterSource()
+                .addValue("eventId", event.getEventId())
+                .addValue("userId", event.getUserId())
+                .addValue("eventType", event.getEventType().name())
+                .addValue("operation", event.getOperation().name())
+                .addValue("entityId", event.getEntityId())
+                .addValue("timestamp", event.getTimestamp());
+    }
+}
@@ -17,6 +17,7 @@ import ru.yandex.practicum.filmorate.model.User;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.Collection;
+import java.util.List;
 import java.util.Objects;
 
 @Slf4j
@@ -69,6 +70,10 @@ public class JdbcUserRepository implements UserRepository {
         SqlParameterSource params = new MapSqlParameterSource("userId", id);
         jdbcOperations.update(deleteFriendships, params);
 
+        String decrementLikesCount = "UPDATE films SET likes_count = likes_count - 1 " +
+                "WHERE film_id IN (SELECT film_id FROM likes WHERE user_id = :userId)";
+        jdbcOperations.update(decrementLikesCount, params);
+
         String deleteLikes = "DELETE FROM likes WHERE user_id = :userId";
         jdbcOperations.update(deleteLikes, params);
 
@@ -94,6 +99,26 @@ public class JdbcUserRepository implements UserRepository {
         return jdbcOperations.query(sql, this::makeUser);
     }
 
+    @Override
+    public List<User> findPage(long afterId, int limit) {
+        String sql = """
+        SELECT
+            user_id,
+            email,
+            login,
+            name,
+            birthday
+        FROM users
+        WHERE user_id > :after
+        ORDER BY user_id
+        LIMIT :limit
+        """;
+        SqlParameterSource params = new MapSqlParameterSource()
+                .addValue("after", afterId)
+                .addValue("limit", limit);
+        return jdbcOperations.query(sql, params, this::makeUser);
+    }
+
     @Override
     public User getUserById(Long id) {
         String sql = "SELECT " +
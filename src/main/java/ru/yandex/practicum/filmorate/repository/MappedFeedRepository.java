@@ -0,0 +1,503 @@
+package ru.yandex.practicum.filmorate.repository;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.interfaces.FeedRepository;
+import ru.yandex.practicum.filmorate.model.EventType;
+import ru.yandex.practicum.filmorate.model.FeedEvent;
+import ru.yandex.practicum.filmorate.model.Operation;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.LongPredicate;
+import java.util.function.LongUnaryOperator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Лента в файлах: события дописываются записями фиксированного размера в сегменты,
+ * отображённые в память. Сегмент хранит одну месячную корзину, так что окно хранения
+ * соблюдается удалением файлов целиком. Для каждого пользователя в памяти лежат позиции
+ * его записей по возрастанию id: чтение страницы — двоичный поиск и последовательный
+ * проход без обращения к чужим записям. Для каждой корзины открыт свой сегмент, поэтому
+ * события на стыке месяцев не плодят новых файлов. При старте сегменты перечитываются
+ * и индекс позиций восстанавливается, а счётчик id продолжается с границы, сохранённой
+ * в {@code feed.meta}.
+ *
+ * <p>Запись — {@code event_id, user_id, entity_id, timestamp} по 8 байт и по байту на
+ * тип и операцию. {@code event_id} пишется последним, нулевой id означает конец данных
+ * в сегменте. Схлопывание пар ADD/REMOVE не поддерживается: сегменты только
+ * дописываются, а события удалённого пользователя гасятся нулевым {@code user_id} на месте.
+ * Включается {@code filmorate.feed.storage=mapped}.
+ *
+ * <p>Хранилище не участвует в транзакциях базы и переживает её перезапуск. Поэтому оно
+ * требует постоянной базы: в базе в памяти id пользователей после рестарта начнутся
+ * заново, и новые пользователи получат чужие ленты. С {@code jdbc:h2:mem:} приложение
+ * не стартует.
+ */
+@Slf4j
+@Repository
+@ConditionalOnProperty(name = "filmorate.feed.storage", havingValue = "mapped")
+public class MappedFeedRepository implements FeedRepository {
+    static final int RECORD_SIZE = 34;
+    private static final String META_FILE = "feed.meta";
+    private static final Pattern SEGMENT_NAME = Pattern.compile("feed-(\\d{6})-(\\d+)\\.seg");
+    private static final long DELETED_USER = 0;
+    private static final EventType[] EVENT_TYPES = EventType.values();
+    private static final Operation[] OPERATIONS = Operation.values();
+
+    private final Path directory;
+    private final int segmentRecords;
+    private final Duration retention;
+    private final boolean sync;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<Integer, Segment> segments = new TreeMap<>();
+    private final Map<Long, Positions> positionsByUser = new HashMap<>();
+    private final Map<Integer, Segment> openByBucket = new HashMap<>();
+    private long lastEventId;
+    private long reservedEventId;
+    private int nextSeq = 1;
+
+    private static final class Segment {
+        private final int seq;
+        private final int bucket;
+        private final Path path;
+        private final MappedByteBuffer buffer;
+        private final int capacity;
+        private int count;
+
+        private Segment(int seq, int bucket, Path path, MappedByteBuffer buffer) {
+            this.seq = seq;
+            this.bucket = bucket;
+            this.path = path;
+            this.buffer = buffer;
+            this.capacity = buffer.capacity() / RECORD_SIZE;
+        }
+    }
+
+    public MappedFeedRepository(@Value("${filmorate.feed.mapped.directory:./db/feed}") Path directory,
+                                @Value("${filmorate.feed.mapped.segment-records:1048576}") int segmentRecords,
+                                @Value("${filmorate.feed.retention:P365D}") Duration retention,
+                                @Value("${filmorate.feed.mapped.sync:false}") boolean sync,
+                                @Value("${spring.datasource.url:}") String datasourceUrl) {
+        if (datasourceUrl.startsWith("jdbc:h2:mem:")) {
+            throw new IllegalStateException("Файловая лента переживает рестарт и не работает с базой в памяти: "
+                    + datasourceUrl);
+        }
+        this.directory = directory;
+        this.segmentRecords = segmentRecords;
+        this.retention = retention;
+        this.sync = sync;
+        load();
+    }
+
+    /**
+     * Сбрасывает отображённые страницы на диск и запоминает точный последний id.
+     */
+    @PreDestroy
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            segments.values().forEach(segment -> segment.buffer.force());
+            writeMeta(lastEventId);
+            reservedEventId = lastEventId;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Collection<FeedEvent> findFeedEventsByUserId(Long userId) {
+        lock.readLock().lock();
+        try {
+            Positions positions = positionsByUser.get(userId);
+            if (positions == null) {
+                return List.of();
+            }
+            int hotBucket = hotBucket();
+            List<FeedEvent> events = new ArrayList<>(positions.size);
+            for (int i = 0; i < positions.size; i++) {
+                Segment segment = segment(positions.values[i]);
+                if (segment.bucket >= hotBucket) {
+                    events.add(read(segment, slot(positions.values[i])));
+                }
+            }
+            return events;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<FeedEvent> findFeedEventsPage(Long userId, long afterEventId, Long sinceTimestamp, int limit) {
+        lock.readLock().lock();
+        try {
+            Positions positions = positionsByUser.get(userId);
+            if (positions == null) {
+                return List.of();
+            }
+            int hotBucket = hotBucket();
+            List<FeedEvent> events = new ArrayList<>(Math.min(limit, positions.size));
+            for (int i = firstAfter(positions, afterEventId); i < positions.size && events.size() < limit; i++) {
+                Segment segment = segment(positions.values[i]);
+                if (segment.bucket < hotBucket) {
+                    continue;
+                }
+                FeedEvent event = read(segment, slot(positions.values[i]));
+                if (sinceTimestamp == null || event.getTimestamp() >= sinceTimestamp) {
+                    events.add(event);
+                }
+            }
+            return events;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<FeedEvent> findFeedEventsBefore(Long userId, long beforeEventId, int limit) {
+        lock.readLock().lock();
+        try {
+            Positions positions = positionsByUser.get(userId);
+            if (positions == null) {
+                return List.of();
+            }
+            int hotBucket = hotBucket();
+            List<FeedEvent> events = new ArrayList<>(Math.min(limit, positions.size));
+            for (int i = firstAfter(positions, beforeEventId - 1) - 1; i >= 0 && events.size() < limit; i--) {
+                Segment segment = segment(positions.values[i]);
+                if (segment.bucket >= hotBucket) {
+                    events.add(read(segment, slot(positions.values[i])));
+                }
+            }
+            return events;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void saveAll(List<FeedEvent> events) {
+        lock.writeLock().lock();
+        try {
+            Set<Segment> touched = sync ? new HashSet<>() : null;
+            for (FeedEvent event : events) {
+                int bucket = FeedBuckets.bucketOf(event.getTimestamp());
+                Segment segment = openByBucket.get(bucket);
+                if (segment == null || segment.count == segment.capacity) {
+                    segment = createSegment(bucket);
+                    openByBucket.put(bucket, segment);
+                }
+                if (lastEventId == reservedEventId) {
+                    reserveEventIds();
+                }
+                long eventId = ++lastEventId;
+                int slot = segment.count;
+                int offset = slot * RECORD_SIZE;
+                MappedByteBuffer buffer = segment.buffer;
+                buffer.putLong(offset + 8, event.getUserId());
+                buffer.putLong(offset + 16, event.getEntityId());
+                buffer.putLong(offset + 24, event.getTimestamp());
+                buffer.put(offset + 32, (byte) event.getEventType().ordinal());
+                buffer.put(offset + 33, (byte) event.getOperation().ordinal());
+                buffer.putLong(offset, eventId);
+                segment.count++;
+                positionsByUser.computeIfAbsent(event.getUserId(), k -> new Positions())
+                        .add(position(segment.seq, slot));
+                event.setEventId(eventId);
+                if (touched != null) {
+                    touched.add(segment);
+                }
+            }
+            if (touched != null) {
+                touched.forEach(segment -> segment.buffer.force());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void deleteByUserId(Long userId) {
+        lock.writeLock().lock();
+        try {
+            Positions positions = positionsByUser.remove(userId);
+            if (positions == null) {
+                return;
+            }
+            Set<Segment> touched = new HashSet<>();
+            for (int i = 0; i < positions.size; i++) {
+                Segment segment = segment(positions.values[i]);
+                segment.buffer.putLong(slot(positions.values[i]) * RECORD_SIZE + 8, DELETED_USER);
+                touched.add(segment);
+            }
+            if (sync) {
+                touched.forEach(segment -> segment.buffer.force());
+            }
+            log.info("Погашено событий ленты пользователя {}: {}", userId, positions.size);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean isTransactional() {
+        return false;
+    }
+
+    @Override
+    public int deleteBucketsBefore(int bucket) {
+        lock.writeLock().lock();
+        try {
+            Set<Integer> expired = new HashSet<>();
+            int deleted = 0;
+            for (Segment segment : segments.values()) {
+                if (segment.bucket < bucket) {
+                    expired.add(segment.seq);
+                    deleted += segment.count;
+                }
+            }
+            if (expired.isEmpty()) {
+                return 0;
+            }
+            positionsByUser.values().removeIf(positions -> {
+                positions.removeIf(position -> expired.contains(seq(position)));
+                return positions.size == 0;
+            });
+            for (Integer seq : expired) {
+                Segment segment = segments.remove(seq);
+                openByBucket.remove(segment.bucket, segment);
+                Files.deleteIfExists(segment.path);
+            }
+            log.info("Удалено сегментов ленты из корзин раньше {}: {}, событий: {}", bucket, expired.size(), deleted);
+            return deleted;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось удалить сегмент ленты", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int compactPairs(long beforeTimestamp, Consumer<List<Long>> onRemoved) {
+        log.debug("Схлопывание пар в файловой ленте не поддерживается");
+        return 0;
+    }
+
+    private void load() {
+        List<Path> files;
+        try {
+            Files.createDirectories(directory);
+            try (Stream<Path> list = Files.list(directory)) {
+                files = list.filter(path -> SEGMENT_NAME.matcher(path.getFileName().toString()).matches())
+                        .sorted(Comparator.comparingInt(MappedFeedRepository::seqOf))
+                        .toList();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось открыть каталог ленты " + directory, e);
+        }
+        for (Path path : files) {
+            Matcher matcher = SEGMENT_NAME.matcher(path.getFileName().toString());
+            matcher.matches();
+            Segment segment = new Segment(Integer.parseInt(matcher.group(2)), Integer.parseInt(matcher.group(1)),
+                    path, map(path, 0));
+            while (segment.count < segment.capacity) {
+                int offset = segment.count * RECORD_SIZE;
+                long eventId = segment.buffer.getLong(offset);
+                if (eventId == 0) {
+                    break;
+                }
+                long userId = segment.buffer.getLong(offset + 8);
+                if (userId != DELETED_USER) {
+                    positionsByUser.computeIfAbsent(userId, k -> new Positions())
+                            .add(position(segment.seq, segment.count));
+                }
+                lastEventId = Math.max(lastEventId, eventId);
+                segment.count++;
+            }
+            segments.put(segment.seq, segment);
+            openByBucket.put(segment.bucket, segment);
+            nextSeq = segment.seq + 1;
+        }
+        positionsByUser.values().forEach(positions -> positions.sortBy(this::eventId));
+        lastEventId = Math.max(lastEventId, readMeta());
+        reservedEventId = lastEventId;
+        log.info("Файловая лента открыта: {} сегментов, последний id {}", segments.size(), lastEventId);
+    }
+
+    /**
+     * Резервирует следующий блок id и сохраняет его верхнюю границу. После сбоя
+     * счётчик продолжается с границы, поэтому id не повторяются, даже если
+     * сегменты с последними событиями уже удалены по окну хранения.
+     */
+    private void reserveEventIds() {
+        reservedEventId = lastEventId + segmentRecords;
+        writeMeta(reservedEventId);
+    }
+
+    private long readMeta() {
+        Path path = directory.resolve(META_FILE);
+        try {
+            return Files.exists(path) ? ByteBuffer.wrap(Files.readAllBytes(path)).getLong() : 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать " + path, e);
+        }
+    }
+
+    private void writeMeta(long eventId) {
+        Path path = directory.resolve(META_FILE);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(Long.BYTES).putLong(0, eventId), 0);
+            channel.force(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось записать " + path, e);
+        }
+    }
+
+    private Segment createSegment(int bucket) {
+        int seq = nextSeq++;
+        Path path = directory.resolve(String.format("feed-%06d-%d.seg", bucket, seq));
+        Segment segment = new Segment(seq, bucket, path, map(path, segmentRecords));
+        segments.put(seq, segment);
+        return segment;
+    }
+
+    /**
+     * Отображает файл сегмента; новый файл создаётся на {@code records} записей.
+     */
+    private static MappedByteBuffer map(Path path, int records) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            long size = Math.max(channel.size(), (long) records * RECORD_SIZE);
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size - size % RECORD_SIZE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось отобразить сегмент ленты " + path, e);
+        }
+    }
+
+    private static FeedEvent read(Segment segment, int slot) {
+        int offset = slot * RECORD_SIZE;
+        MappedByteBuffer buffer = segment.buffer;
+        FeedEvent event = new FeedEvent();
+        event.setEventId(buffer.getLong(offset));
+        event.setUserId(buffer.getLong(offset + 8));
+        event.setEntityId(buffer.getLong(offset + 16));
+        event.setTimestamp(buffer.getLong(offset + 24));
+        event.setEventType(EVENT_TYPES[buffer.get(offset + 32)]);
+        event.setOperation(OPERATIONS[buffer.get(offset + 33)]);
+        return event;
+    }
+
+    /**
+     * Индекс первой позиции с id больше {@code eventId}.
+     */
+    private int firstAfter(Positions positions, long eventId) {
+        int low = 0;
+        int high = positions.size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (eventId(positions.values[middle]) <= eventId) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private long eventId(long position) {
+        return segment(position).buffer.getLong(slot(position) * RECORD_SIZE);
+    }
+
+    private Segment segment(long position) {
+        return segments.get(seq(position));
+    }
+
+    private int hotBucket() {
+        return FeedBuckets.bucketOf(System.currentTimeMillis() - retention.toMillis());
+    }
+
+    private static long position(int seq, int slot) {
+        return (long) seq << 32 | slot;
+    }
+
+    private static int seq(long position) {
+        return (int) (position >>> 32);
+    }
+
+    private static int slot(long position) {
+        return (int) position;
+    }
+
+    private static int seqOf(Path path) {
+        Matcher matcher = SEGMENT_NAME.matcher(path.getFileName().toString());
+        matcher.matches();
+        return Integer.parseInt(matcher.group(2));
+    }
+
+    /**
+     * Позиции записей одного пользователя по возрастанию id.
+     */
+    private static final class Positions {
+        private long[] values = new long[4];
+        private int size;
+
+        private void add(long position) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = position;
+        }
+
+        /**
+         * Восстанавливает порядок по id: события на стыке месяцев пишутся
+         * в два открытых сегмента вперемешку.
+         */
+        private void sortBy(LongUnaryOperator eventId) {
+            for (int i = 1; i < size; i++) {
+                if (eventId.applyAsLong(values[i - 1]) > eventId.applyAsLong(values[i])) {
+                    Long[] boxed = Arrays.stream(values, 0, size).boxed().toArray(Long[]::new);
+                    Arrays.sort(boxed, Comparator.comparingLong(eventId::applyAsLong));
+                    for (int j = 0; j < size; j++) {
+                        values[j] = boxed[j];
+                    }
+                    return;
+                }
+            }
+        }
+
+        private void removeIf(LongPredicate predicate) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (!predicate.test(values[i])) {
+                    values[kept++] = values[i];
+                }
+            }
+            size = kept;
+        }
+    }
+}
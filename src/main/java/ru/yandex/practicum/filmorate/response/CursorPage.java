@@ -0,0 +1,22 @@
+package ru.yandex.practicum.filmorate.response;
+
+import lombok.Value;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+
+@Value
+public class CursorPage<T> {
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    List<T> items;
+    String nextCursor;
+
+    public ResponseEntity<List<T>> toResponseEntity() {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (nextCursor != null) {
+            response.header(NEXT_CURSOR_HEADER, nextCursor);
+        }
+        return response.body(items);
+    }
+}
@@ -0,0 +1,256 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.interfaces.RecommendationRepository;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Рекомендации по матричной факторизации лайков (implicit ALS). Лайк считается
+ * наблюдением с уверенностью {@code 1 + alpha}, отсутствие лайка — нулём с уверенностью 1.
+ * Факторы пользователей и фильмов лежат в плоских массивах {@code float[]} по
+ * {@code factors} значений на строку. Обучение идёт параллельно при старте и по расписанию.
+ *
+ * <p>Выдача — {@code topK} фильмов с наибольшим скалярным произведением факторов,
+ * без уже лайкнутых. Пользователи, которых не было при обучении, получают пустой список.
+ * Бин создаётся при {@code filmorate.recommendations.engine=als}.
+ */
+@Slf4j
+@Component
+@Qualifier("alsRecommender")
+@ConditionalOnProperty(name = "filmorate.recommendations.engine", havingValue = "als")
+public class AlsRecommender implements RecommendationRepository {
+    private final UserLikesIndex userLikesIndex;
+    private final RecommendationCache recommendationCache;
+    private final int factors;
+    private final int iterations;
+    private final double regularization;
+    private final double alpha;
+    private final int topK;
+    private final ForkJoinPool pool;
+    private volatile Model model = Model.EMPTY;
+
+    /**
+     * Обученная модель: строка {@code i} массива факторов занимает
+     * {@code [i * factors, (i + 1) * factors)}.
+     */
+    record Model(Map<Long, Integer> userRows, long[] filmIds, float[] userFactors, float[] filmFactors) {
+        static final Model EMPTY = new Model(Map.of(), new long[0], new float[0], new float[0]);
+    }
+
+    public AlsRecommender(UserLikesIndex userLikesIndex,
+                          RecommendationCache recommendationCache,
+                          @Value("${filmorate.recommendations.als.factors:32}") int factors,
+                          @Value("${filmorate.recommendations.als.iterations:10}") int iterations,
+                          @Value("${filmorate.recommendations.als.regularization:0.1}") double regularization,
+                          @Value("${filmorate.recommendations.als.alpha:40}") double alpha,
+                          @Value("${filmorate.recommendations.als.top-k:20}") int topK,
+                          @Value("${filmorate.recommendations.parallelism:0}") int parallelism) {
+        this.userLikesIndex = userLikesIndex;
+        this.recommendationCache = recommendationCache;
+        this.factors = factors;
+        this.iterations = iterations;
+        this.regularization = regularization;
+        this.alpha = alpha;
+        this.topK = topK;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Обучает модель заново по общей матрице {@link UserLikesIndex} и сбрасывает кэш
+     * рекомендаций. Обучение идёт по снимку матрицы и лайки не задерживает.
+     */
+    @PostConstruct
+    @Scheduled(cron = "${filmorate.recommendations.als.train-cron:0 0 4 * * *}")
+    public void train() {
+        long started = System.currentTimeMillis();
+        Map<Long, Integer> userRows = new HashMap<>();
+        Map<Long, Integer> filmRows = new HashMap<>();
+        // ненулевые клетки матрицы: пользователь likes[0][i] лайкнул фильм likes[1][i]
+        int[][] likes = {new int[1024], new int[1024]};
+        int[] likesCount = {0};
+        UserLikesIndex.Snapshot snapshot = userLikesIndex.snapshot();
+        snapshot.likesByUser().forEach((user, films) -> films.forEach((int film) -> {
+            if (likesCount[0] == likes[0].length) {
+                likes[0] = Arrays.copyOf(likes[0], likes[0].length * 2);
+                likes[1] = Arrays.copyOf(likes[1], likes[1].length * 2);
+            }
+            likes[0][likesCount[0]] = userRows.computeIfAbsent((long) user, k -> userRows.size());
+            likes[1][likesCount[0]] = filmRows.computeIfAbsent((long) film, k -> filmRows.size());
+            likesCount[0]++;
+        }));
+        int users = userRows.size();
+        int films = filmRows.size();
+        int[][] filmsByUser = adjacency(users, likes[0], likes[1], likesCount[0]);
+        int[][] usersByFilm = adjacency(films, likes[1], likes[0], likesCount[0]);
+
+        SplittableRandom random = new SplittableRandom(42);
+        float[] userFactors = new float[users * factors];
+        float[] filmFactors = new float[films * factors];
+        for (int i = 0; i < filmFactors.length; i++) {
+            filmFactors[i] = (float) (random.nextDouble() * 0.01);
+        }
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            solve(filmsByUser, filmFactors, userFactors);
+            solve(usersByFilm, userFactors, filmFactors);
+        }
+
+        long[] filmIds = new long[films];
+        filmRows.forEach((filmId, row) -> filmIds[row] = filmId);
+        model = new Model(Map.copyOf(userRows), filmIds, userFactors, filmFactors);
+        recommendationCache.clear();
+        log.info("ALS обучена: {} пользователей, {} фильмов, {} лайков за {} мс",
+                users, films, likesCount[0], System.currentTimeMillis() - started);
+    }
+
+    @Override
+    public List<Long> findRecommendedFilmIdsForUser(Long userId) {
+        Model current = model;
+        Integer row = current.userRows().get(userId);
+        if (row == null) {
+            return List.of();
+        }
+        RoaringBitmap liked = userLikesIndex.likedFilms(userId);
+        record Scored(long filmId, float score) {
+        }
+        PriorityQueue<Scored> top = new PriorityQueue<>(topK + 1, (a, b) -> a.score() != b.score()
+                ? Float.compare(a.score(), b.score())
+                : Long.compare(b.filmId(), a.filmId()));
+        for (int film = 0; film < current.filmIds().length; film++) {
+            long filmId = current.filmIds()[film];
+            if (liked.contains(Math.toIntExact(filmId))) {
+                continue;
+            }
+            float score = 0;
+            for (int k = 0; k < factors; k++) {
+                score += current.userFactors()[row * factors + k] * current.filmFactors()[film * factors + k];
+            }
+            top.add(new Scored(filmId, score));
+            if (top.size() > topK) {
+                top.poll();
+            }
+        }
+        Long[] filmIds = new Long[top.size()];
+        for (int i = filmIds.length - 1; i >= 0; i--) {
+            filmIds[i] = top.poll().filmId();
+        }
+        return List.of(filmIds);
+    }
+
+    /**
+     * Один полушаг ALS: при фиксированных факторах {@code fixed} находит каждую строку
+     * {@code target} из системы {@code (FᵀF + alpha * Fᵤᵀ Fᵤ + λI) x = (1 + alpha) Fᵤᵀ 1}.
+     */
+    private void solve(int[][] rows, float[] fixed, float[] target) {
+        double[] gram = new double[factors * factors];
+        for (int offset = 0; offset < fixed.length; offset += factors) {
+            for (int i = 0; i < factors; i++) {
+                for (int j = 0; j <= i; j++) {
+                    gram[i * factors + j] += fixed[offset + i] * fixed[offset + j];
+                }
+            }
+        }
+        try {
+            pool.submit(() -> IntStream.range(0, rows.length).parallel().forEach(row -> {
+                double[] a = gram.clone();
+                double[] b = new double[factors];
+                for (int i = 0; i < factors; i++) {
+                    a[i * factors + i] += regularization;
+                }
+                for (int column : rows[row]) {
+                    int offset = column * factors;
+                    for (int i = 0; i < factors; i++) {
+                        double yi = fixed[offset + i];
+                        b[i] += (1 + alpha) * yi;
+                        for (int j = 0; j <= i; j++) {
+                            a[i * factors + j] += alpha * yi * fixed[offset + j];
+                        }
+                    }
+                }
+                choleskySolve(a, b);
+                for (int i = 0; i < factors; i++) {
+                    target[row * factors + i] = (float) b[i];
+                }
+            })).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Обучение ALS прервано", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Ошибка обучения ALS", e.getCause());
+        }
+    }
+
+    /**
+     * Решает {@code a x = b} для симметричной положительно определённой матрицы, заданной
+     * нижним треугольником. Результат записывается в {@code b}, {@code a} портится.
+     */
+    private void choleskySolve(double[] a, double[] b) {
+        int n = factors;
+        for (int j = 0; j < n; j++) {
+            double diagonal = a[j * n + j];
+            for (int k = 0; k < j; k++) {
+                diagonal -= a[j * n + k] * a[j * n + k];
+            }
+            diagonal = Math.sqrt(diagonal);
+            a[j * n + j] = diagonal;
+            for (int i = j + 1; i < n; i++) {
+                double value = a[i * n + j];
+                for (int k = 0; k < j; k++) {
+                    value -= a[i * n + k] * a[j * n + k];
+                }
+                a[i * n + j] = value / diagonal;
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            double value = b[i];
+            for (int k = 0; k < i; k++) {
+                value -= a[i * n + k] * b[k];
+            }
+            b[i] = value / a[i * n + i];
+        }
+        for (int i = n - 1; i >= 0; i--) {
+            double value = b[i];
+            for (int k = i + 1; k < n; k++) {
+                value -= a[k * n + i] * b[k];
+            }
+            b[i] = value / a[i * n + i];
+        }
+    }
+
+    private static int[][] adjacency(int size, int[] rows, int[] columns, int count) {
+        int[] counts = new int[size];
+        for (int i = 0; i < count; i++) {
+            counts[rows[i]]++;
+        }
+        int[][] adjacency = new int[size][];
+        for (int i = 0; i < size; i++) {
+            adjacency[i] = new int[counts[i]];
+        }
+        int[] filled = new int[size];
+        for (int i = 0; i < count; i++) {
+            adjacency[rows[i]][filled[rows[i]]++] = columns[i];
+        }
+        return adjacency;
+    }
+}
@@ -0,0 +1,95 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Рекомендации по содержанию для тех, кому соседи ничего не дали. Из лайков
+ * пользователя собирается вес каждого жанра и режиссёра. Кандидаты берутся из списков
+ * «жанр → фильмы» {@link PopularityIndex} (первые {@code POSTING_LIMIT} по популярности)
+ * и «режиссёр → фильмы» {@link FilmSearchIndex} для {@code TOP_FEATURES} самых весомых
+ * жанров и режиссёров. Порядок: сумма весов совпавших жанров и режиссёров, затем
+ * популярность, затем id. Без лайков — просто самые популярные фильмы.
+ */
+@Component
+public class ColdStartRecommender {
+    private static final int TOP_FEATURES = 3;
+    private static final int POSTING_LIMIT = 100;
+
+    private final UserLikesIndex userLikesIndex;
+    private final PopularityIndex popularityIndex;
+    private final FilmSearchIndex searchIndex;
+    private final int limit;
+
+    public ColdStartRecommender(UserLikesIndex userLikesIndex, PopularityIndex popularityIndex,
+                                FilmSearchIndex searchIndex,
+                                @Value("${filmorate.recommendations.cold-start.limit:10}") int limit) {
+        this.userLikesIndex = userLikesIndex;
+        this.popularityIndex = popularityIndex;
+        this.searchIndex = searchIndex;
+        this.limit = limit;
+    }
+
+    public List<Long> recommend(long userId) {
+        RoaringBitmap liked = userLikesIndex.likedFilms(userId);
+        if (liked.isEmpty()) {
+            return popularityIndex.top(limit);
+        }
+        Map<Long, Integer> genreWeights = new HashMap<>();
+        Map<Long, Integer> directorWeights = new HashMap<>();
+        liked.forEach((int filmId) -> {
+            popularityIndex.genreIds(filmId).forEach(genreId -> genreWeights.merge(genreId, 1, Integer::sum));
+            searchIndex.directorIds(filmId).forEach(directorId -> directorWeights.merge(directorId, 1, Integer::sum));
+        });
+
+        Set<Long> candidates = new LinkedHashSet<>();
+        strongest(genreWeights).forEach(genreId -> candidates.addAll(popularityIndex.top(POSTING_LIMIT, genreId, null)));
+        strongest(directorWeights).forEach(directorId -> candidates.addAll(searchIndex.filmIdsByDirector(directorId)));
+        candidates.removeIf(filmId -> liked.contains(Math.toIntExact(filmId)));
+        if (candidates.isEmpty()) {
+            return popularityIndex.top(limit + liked.getCardinality()).stream()
+                    .filter(filmId -> !liked.contains(Math.toIntExact(filmId)))
+                    .limit(limit)
+                    .toList();
+        }
+
+        record Scored(long filmId, int score, long likes) {
+        }
+        return candidates.stream()
+                .map(filmId -> new Scored(filmId,
+                        weight(popularityIndex.genreIds(filmId), genreWeights)
+                                + weight(searchIndex.directorIds(filmId), directorWeights),
+                        popularityIndex.likes(filmId)))
+                .sorted(Comparator.comparingInt(Scored::score).reversed()
+                        .thenComparing(Comparator.comparingLong(Scored::likes).reversed())
+                        .thenComparingLong(Scored::filmId))
+                .limit(limit)
+                .map(Scored::filmId)
+                .toList();
+    }
+
+    private static List<Long> strongest(Map<Long, Integer> weights) {
+        return weights.entrySet().stream()
+                .sorted(Map.Entry.<Long, Integer>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(TOP_FEATURES)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    private static int weight(Set<Long> features, Map<Long, Integer> weights) {
+        int weight = 0;
+        for (Long feature : features) {
+            weight += weights.getOrDefault(feature, 0);
+        }
+        return weight;
+    }
+}
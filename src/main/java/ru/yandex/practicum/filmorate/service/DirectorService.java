@@ -4,6 +4,7 @@ import lombok.AllArgsConstructor;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.interfaces.DirectorRepository;
 import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.repository.FilmCache;
 
 import java.util.Collection;
 
@@ -12,6 +13,8 @@ import java.util.Collection;
 public class DirectorService {
 
     DirectorRepository directorRepository;
+    FilmCache filmCache;
+    FilmSearchIndex searchIndex;
 
     public Collection<Director> findAll() {
         return directorRepository.findAll();
@@ -22,15 +25,22 @@ public class DirectorService {
     }
 
     public Director createDirector(Director director) {
-        return directorRepository.createDirector(director);
+        Director created = directorRepository.createDirector(director);
+        searchIndex.saveDirector(created);
+        return created;
     }
 
     public Director updateDirector(Director director) {
         getDirectorById(director.getId());
-        return directorRepository.update(director);
+        Director updated = directorRepository.update(director);
+        filmCache.evictByDirector(director.getId());
+        searchIndex.saveDirector(updated);
+        return updated;
     }
 
     public void deleteDirector(Long id) {
         directorRepository.deleteDirector(id);
+        filmCache.evictByDirector(id);
+        searchIndex.removeDirector(id);
     }
 }
@@ -0,0 +1,292 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.yandex.practicum.filmorate.interfaces.FeedRepository;
+import ru.yandex.practicum.filmorate.model.FeedEvent;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Запись событий ленты. В режиме {@code strict} событие вставляется сразу, в транзакции
+ * вызывающего; в нетранзакционное хранилище — после её коммита, чтобы откат не оставил
+ * в ленте событие без изменения. В режиме {@code async} событие после коммита попадает
+ * в ограниченную очередь, а отдельный поток вставляет очередь пачками: как только
+ * набралось {@code batchSize} событий или прошло {@code flushInterval} с первого события
+ * пачки.
+ *
+ * <p>Если очередь полна, вызывающий ждёт место до {@code offerTimeout}, а потом вставляет
+ * событие сам. При остановке приложения очередь дописывается до конца.
+ */
+@Slf4j
+@Component
+@ManagedResource(description = "Запись событий ленты")
+public class FeedEventWriter {
+    private static final long IDLE_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final FeedRepository feedRepository;
+    private final boolean async;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final Duration offerTimeout;
+    private final BlockingQueue<FeedEvent> queue;
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong flushedEvents = new AtomicLong();
+    private final AtomicLong failedEvents = new AtomicLong();
+    private final AtomicLong directWrites = new AtomicLong();
+    private final AtomicLong flushNanosTotal = new AtomicLong();
+    private final AtomicLong flushNanosMax = new AtomicLong();
+    private volatile long lastFlushNanos;
+    private volatile boolean running;
+    private final List<Consumer<List<FeedEvent>>> listeners = new CopyOnWriteArrayList<>();
+    private Thread flusher;
+
+    public FeedEventWriter(FeedRepository feedRepository,
+                           @Value("${filmorate.feed.writer.mode:strict}") String mode,
+                           @Value("${filmorate.feed.writer.queue-capacity:10000}") int queueCapacity,
+                           @Value("${filmorate.feed.writer.batch-size:500}") int batchSize,
+                           @Value("${filmorate.feed.writer.flush-interval:PT0.2S}") Duration flushInterval,
+                           @Value("${filmorate.feed.writer.offer-timeout:PT1S}") Duration offerTimeout) {
+        if (!"strict".equalsIgnoreCase(mode) && !"async".equalsIgnoreCase(mode)) {
+            throw new IllegalArgumentException("Неизвестный режим записи ленты: " + mode);
+        }
+        this.feedRepository = feedRepository;
+        this.async = "async".equalsIgnoreCase(mode);
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.offerTimeout = offerTimeout;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!async) {
+            return;
+        }
+        running = true;
+        flusher = new Thread(this::flushLoop, "feed-writer");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Дописывает очередь и останавливает поток записи.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (flusher == null) {
+            return;
+        }
+        running = false;
+        flusher.join(5_000);
+        List<FeedEvent> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        if (!rest.isEmpty()) {
+            flush(rest);
+        }
+        log.info("Запись ленты остановлена: {} событий за {} пачек", flushedEvents.get(), flushes.get());
+    }
+
+    /**
+     * Подписывает на записанные события. Слушатель получает события с проставленным
+     * {@code eventId} после коммита транзакции, в которой они вставлены.
+     */
+    public void addListener(Consumer<List<FeedEvent>> listener) {
+        listeners.add(listener);
+    }
+
+    public void write(FeedEvent event) {
+        if (async) {
+            afterCommit(() -> enqueue(event));
+        } else if (feedRepository.isTransactional()) {
+            feedRepository.saveAll(List.of(event));
+            afterCommit(() -> notifyListeners(List.of(event)));
+        } else {
+            afterCommit(() -> {
+                feedRepository.saveAll(List.of(event));
+                notifyListeners(List.of(event));
+            });
+        }
+    }
+
+    /**
+     * Удаляет ленту пользователя вместе с его событиями, ещё ждущими в очереди.
+     * Нетранзакционное хранилище чистится после коммита удаления.
+     */
+    public void deleteUser(long userId) {
+        if (feedRepository.isTransactional()) {
+            feedRepository.deleteByUserId(userId);
+            afterCommit(() -> queue.removeIf(event -> event.getUserId() == userId));
+        } else {
+            afterCommit(() -> {
+                queue.removeIf(event -> event.getUserId() == userId);
+                feedRepository.deleteByUserId(userId);
+            });
+        }
+    }
+
+    @ManagedAttribute(description = "Событий в очереди")
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    @ManagedAttribute(description = "Записано пачек")
+    public long getFlushCount() {
+        return flushes.get();
+    }
+
+    @ManagedAttribute(description = "Записано событий")
+    public long getFlushedEventCount() {
+        return flushedEvents.get();
+    }
+
+    @ManagedAttribute(description = "Событий, потерянных из-за ошибки записи")
+    public long getFailedEventCount() {
+        return failedEvents.get();
+    }
+
+    @ManagedAttribute(description = "Событий, записанных вызывающим при полной очереди")
+    public long getDirectWriteCount() {
+        return directWrites.get();
+    }
+
+    @ManagedAttribute(description = "Длительность последней пачки, мс")
+    public double getLastFlushMillis() {
+        return lastFlushNanos / 1_000_000.0;
+    }
+
+    @ManagedAttribute(description = "Средняя длительность пачки, мс")
+    public double getAverageFlushMillis() {
+        long count = flushes.get();
+        return count == 0 ? 0 : flushNanosTotal.get() / 1_000_000.0 / count;
+    }
+
+    @ManagedAttribute(description = "Максимальная длительность пачки, мс")
+    public double getMaxFlushMillis() {
+        return flushNanosMax.get() / 1_000_000.0;
+    }
+
+    private void enqueue(FeedEvent event) {
+        try {
+            if (running && queue.offer(event, offerTimeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        directWrites.incrementAndGet();
+        feedRepository.saveAll(List.of(event));
+        notifyListeners(List.of(event));
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private void notifyListeners(List<FeedEvent> events) {
+        for (Consumer<List<FeedEvent>> listener : listeners) {
+            try {
+                listener.accept(events);
+            } catch (RuntimeException e) {
+                log.error("Ошибка обработки записанных событий ленты", e);
+            }
+        }
+    }
+
+    private void flushLoop() {
+        List<FeedEvent> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                FeedEvent first = queue.poll(Math.min(flushIntervalNanos, IDLE_POLL_NANOS), TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + flushIntervalNanos;
+                // при остановке не ждём добора пачки
+                while (running && batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long wait = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || wait <= 0) {
+                        break;
+                    }
+                    FeedEvent next = queue.poll(Math.min(wait, IDLE_POLL_NANOS), TimeUnit.NANOSECONDS);
+                    if (next != null) {
+                        batch.add(next);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<FeedEvent> batch) {
+        long started = System.nanoTime();
+        List<FeedEvent> saved = save(batch);
+        long elapsed = System.nanoTime() - started;
+        flushes.incrementAndGet();
+        lastFlushNanos = elapsed;
+        flushNanosTotal.addAndGet(elapsed);
+        flushNanosMax.accumulateAndGet(elapsed, Math::max);
+        if (!saved.isEmpty()) {
+            notifyListeners(saved);
+        }
+    }
+
+    /**
+     * Вставляет пачку целиком, а если это не удалось — по одному событию. Теряются
+     * только события, которые не вставляются и поодиночке, например после удаления
+     * их пользователя.
+     */
+    private List<FeedEvent> save(List<FeedEvent> batch) {
+        try {
+            feedRepository.saveAll(batch);
+            flushedEvents.addAndGet(batch.size());
+            return List.copyOf(batch);
+        } catch (RuntimeException e) {
+            log.warn("Не удалось записать пачку из {} событий ленты, пишу по одному", batch.size(), e);
+        }
+        List<FeedEvent> saved = new ArrayList<>(batch.size());
+        for (FeedEvent event : batch) {
+            try {
+                feedRepository.saveAll(List.of(event));
+                saved.add(event);
+            } catch (RuntimeException e) {
+                failedEvents.incrementAndGet();
+                log.error("Не удалось записать событие ленты {}", event, e);
+            }
+        }
+        flushedEvents.addAndGet(saved.size());
+        return saved;
+    }
+}
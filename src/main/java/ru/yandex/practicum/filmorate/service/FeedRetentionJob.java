@@ -0,0 +1,47 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.interfaces.FeedRepository;
+import ru.yandex.practicum.filmorate.interfaces.TimelineRepository;
+import ru.yandex.practicum.filmorate.repository.FeedBuckets;
+
+import java.time.Duration;
+
+/**
+ * Обслуживание ленты: схлопывает пары ADD/REMOVE старше {@code compactAfter} в архивную
+ * сводку и удаляет месячные корзины, целиком вышедшие за окно {@code retention}.
+ * Удалённые события убираются и из лент друзей: схлопнутые — в транзакции своей пачки,
+ * устаревшие — следом за удалением корзин.
+ */
+@Slf4j
+@Service
+public class FeedRetentionJob {
+    private final FeedRepository feedRepository;
+    private final TimelineRepository timelineRepository;
+    private final Duration retention;
+    private final Duration compactAfter;
+
+    public FeedRetentionJob(FeedRepository feedRepository, TimelineRepository timelineRepository,
+                            @Value("${filmorate.feed.retention:P365D}") Duration retention,
+                            @Value("${filmorate.feed.compact-after:P30D}") Duration compactAfter) {
+        this.feedRepository = feedRepository;
+        this.timelineRepository = timelineRepository;
+        this.retention = retention;
+        this.compactAfter = compactAfter;
+    }
+
+    @Scheduled(cron = "${filmorate.feed.retention-cron:0 30 4 * * *}")
+    public void run() {
+        long now = System.currentTimeMillis();
+        int compacted = feedRepository.compactPairs(now - compactAfter.toMillis(), timelineRepository::removeEvents);
+
+        int oldestBucket = FeedBuckets.bucketOf(now - retention.toMillis());
+        int expired = feedRepository.deleteBucketsBefore(oldestBucket);
+        int expiredCopies = timelineRepository.deleteBefore(FeedBuckets.startOf(oldestBucket));
+        log.info("Обслуживание ленты: схлопнуто {} событий, удалено {} событий и {} копий в лентах друзей " +
+                "старше корзины {}", compacted, expired, expiredCopies, oldestBucket);
+    }
+}
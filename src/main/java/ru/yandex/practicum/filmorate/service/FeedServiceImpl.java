@@ -4,52 +4,83 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.interfaces.FeedRepository;
 import ru.yandex.practicum.filmorate.interfaces.FeedService;
+import ru.yandex.practicum.filmorate.model.EventType;
 import ru.yandex.practicum.filmorate.model.FeedEvent;
+import ru.yandex.practicum.filmorate.model.Operation;
 import ru.yandex.practicum.filmorate.model.Review;
+import ru.yandex.practicum.filmorate.response.CursorPage;
 import java.util.Collection;
+import java.util.List;
 
 @Service
 @RequiredArgsConstructor
 public class FeedServiceImpl implements FeedService {
     private final FeedRepository feedRepository;
+    private final FeedEventWriter feedEventWriter;
 
     @Override
     public Collection<FeedEvent> getFeedEvents(Long userId) {
         return feedRepository.findFeedEventsByUserId(userId);
     }
 
+    /**
+     * Страница ленты. Курсор следующей страницы — id последнего отданного события,
+     * его передают в {@code afterEventId}.
+     */
+    @Override
+    public CursorPage<FeedEvent> getFeedPage(Long userId, Long afterEventId, Long sinceTimestamp, Integer limit) {
+        int pageSize = PageCursor.checkLimit(limit);
+        long after = afterEventId != null ? afterEventId : 0;
+        List<FeedEvent> events = feedRepository.findFeedEventsPage(userId, after, sinceTimestamp, pageSize + 1);
+        if (events.size() <= pageSize) {
+            return new CursorPage<>(events, null);
+        }
+        List<FeedEvent> page = events.subList(0, pageSize);
+        return new CursorPage<>(page, String.valueOf(page.get(pageSize - 1).getEventId()));
+    }
+
     @Override
     public void saveReview(Review review) {
-        feedRepository.saveReview(review);
+        write(review.getUserId(), EventType.REVIEW, Operation.ADD, review.getReviewId());
     }
 
     @Override
     public void updateReview(Review review) {
-        feedRepository.updateReview(review);
+        write(review.getUserId(), EventType.REVIEW, Operation.UPDATE, review.getReviewId());
     }
 
     @Override
     public void deleteReview(Review review) {
-        feedRepository.deleteReview(review);
+        write(review.getUserId(), EventType.REVIEW, Operation.REMOVE, review.getReviewId());
     }
 
     @Override
     public void saveFriend(Long userId, Long friendId) {
-        feedRepository.saveFriend(userId, friendId);
+        write(userId, EventType.FRIEND, Operation.ADD, friendId);
     }
 
     @Override
     public void removerFriend(Long userId, Long friendId) {
-        feedRepository.removerFriend(userId, friendId);
+        write(userId, EventType.FRIEND, Operation.REMOVE, friendId);
     }
 
     @Override
     public void saveLike(Long filmId, Long userId) {
-        feedRepository.saveLike(filmId, userId);
+        write(userId, EventType.LIKE, Operation.ADD, filmId);
     }
 
     @Override
     public void removeLike(Long filmId, Long userId) {
-        feedRepository.removeLike(filmId, userId);
+        write(userId, EventType.LIKE, Operation.REMOVE, filmId);
+    }
+
+    private void write(Long userId, EventType eventType, Operation operation, Long entityId) {
+        FeedEvent event = new FeedEvent();
+        event.setUserId(userId);
+        event.setEventType(eventType);
+        event.setOperation(operation);
+        event.setEntityId(entityId);
+        event.setTimestamp(System.currentTimeMillis());
+        feedEventWriter.write(event);
     }
-}
\ No newline at end of file
+}
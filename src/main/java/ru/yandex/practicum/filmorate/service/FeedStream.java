@@ -0,0 +1,181 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.yandex.practicum.filmorate.interfaces.FeedRepository;
+import ru.yandex.practicum.filmorate.model.FeedEvent;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Живая лента пользователя по Server-Sent Events. У каждой подписки своя ограниченная
+ * очередь и свой виртуальный поток, который отправляет из неё события. Пока событий
+ * нет, подписка держит только запаркованный виртуальный поток и асинхронный запрос
+ * сервлета, а не поток платформы.
+ *
+ * <p>С {@code Last-Event-ID} подписка сначала дочитывает из базы события после этого id,
+ * затем переходит на живые, пропуская уже отданные. Пропускаются именно отданные id, а не
+ * всё, что не больше последнего: событие с меньшим id, закоммиченное позже, приходит
+ * живым. Если клиент не успевает читать и очередь переполнилась, поток закрывается:
+ * клиент переподключится с последним id.
+ *
+ * <p>Пока событий нет, раз в {@code heartbeat} уходит SSE-комментарий. Отправка
+ * в отключившийся клиент падает, и подписка закрывается сразу, а не по таймауту.
+ */
+@Slf4j
+@Component
+@ManagedResource(description = "Поток событий ленты")
+public class FeedStream {
+    private static final String EVENT_NAME = "feed";
+    private static final int REPLAY_PAGE = PageCursor.MAX_LIMIT;
+
+    private final FeedRepository feedRepository;
+    private final long timeoutMillis;
+    private final int bufferSize;
+    private final long heartbeatMillis;
+    private final ThreadFactory threads = Thread.ofVirtual().name("feed-stream-", 0).factory();
+    private final Map<Long, Set<Subscription>> subscriptions = new ConcurrentHashMap<>();
+
+    private static final class Subscription {
+        private final long userId;
+        private final SseEmitter emitter;
+        private final BlockingQueue<FeedEvent> events;
+        private volatile Thread sender;
+
+        private Subscription(long userId, SseEmitter emitter, int bufferSize) {
+            this.userId = userId;
+            this.emitter = emitter;
+            this.events = new ArrayBlockingQueue<>(bufferSize);
+        }
+    }
+
+    public FeedStream(FeedRepository feedRepository, FeedEventWriter feedEventWriter,
+                      @Value("${filmorate.feed.stream.timeout:PT30M}") Duration timeout,
+                      @Value("${filmorate.feed.stream.buffer-size:256}") int bufferSize,
+                      @Value("${filmorate.feed.stream.heartbeat:PT15S}") Duration heartbeat) {
+        this.feedRepository = feedRepository;
+        this.timeoutMillis = timeout.toMillis();
+        this.bufferSize = bufferSize;
+        this.heartbeatMillis = heartbeat.toMillis();
+        feedEventWriter.addListener(this::publish);
+    }
+
+    /**
+     * Открывает поток событий пользователя. Без {@code lastEventId} отдаются только
+     * события, записанные после подписки.
+     */
+    public SseEmitter subscribe(long userId, Long lastEventId) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscription subscription = new Subscription(userId, emitter, bufferSize);
+        subscriptions.computeIfAbsent(userId, k -> ConcurrentHashMap.newKeySet()).add(subscription);
+        emitter.onCompletion(() -> close(subscription));
+        emitter.onTimeout(() -> close(subscription));
+        emitter.onError(e -> close(subscription));
+        subscription.sender = threads.newThread(() -> send(subscription, lastEventId));
+        subscription.sender.start();
+        return emitter;
+    }
+
+    @ManagedAttribute(description = "Открытых подписок")
+    public int getSubscriberCount() {
+        return subscriptions.values().stream().mapToInt(Set::size).sum();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscriptions.values().forEach(set -> set.forEach(subscription -> subscription.emitter.complete()));
+    }
+
+    private void publish(List<FeedEvent> events) {
+        for (FeedEvent event : events) {
+            Set<Subscription> subscribers = subscriptions.get(event.getUserId());
+            if (subscribers == null) {
+                continue;
+            }
+            for (Subscription subscription : subscribers) {
+                if (!subscription.events.offer(event)) {
+                    log.warn("Подписчик ленты пользователя {} не успевает читать, поток закрыт", event.getUserId());
+                    close(subscription);
+                    subscription.emitter.complete();
+                }
+            }
+        }
+    }
+
+    private void send(Subscription subscription, Long lastEventId) {
+        try {
+            Set<Long> replayed = lastEventId != null ? replay(subscription, lastEventId) : new HashSet<>();
+            while (!Thread.currentThread().isInterrupted()) {
+                FeedEvent event = subscription.events.poll(heartbeatMillis, TimeUnit.MILLISECONDS);
+                if (event == null) {
+                    subscription.emitter.send(SseEmitter.event().comment("heartbeat"));
+                } else if (!replayed.remove(event.getEventId())) {
+                    // иначе событие уже ушло при дочитывании из базы
+                    send(subscription.emitter, event);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Поток ленты пользователя {} закрыт клиентом", subscription.userId);
+            close(subscription);
+        } catch (RuntimeException e) {
+            log.error("Ошибка потока ленты пользователя {}", subscription.userId, e);
+            close(subscription);
+            subscription.emitter.completeWithError(e);
+        }
+    }
+
+    /**
+     * Дочитывает события после {@code afterEventId} и возвращает отданные id: те из них,
+     * что ещё придут живыми, отправлять второй раз не нужно.
+     */
+    private Set<Long> replay(Subscription subscription, long afterEventId) throws IOException {
+        Set<Long> sent = new HashSet<>();
+        long last = afterEventId;
+        List<FeedEvent> page;
+        do {
+            page = feedRepository.findFeedEventsPage(subscription.userId, last, null, REPLAY_PAGE);
+            for (FeedEvent event : page) {
+                send(subscription.emitter, event);
+                sent.add(event.getEventId());
+                last = event.getEventId();
+            }
+        } while (page.size() == REPLAY_PAGE);
+        return sent;
+    }
+
+    private static void send(SseEmitter emitter, FeedEvent event) throws IOException {
+        emitter.send(SseEmitter.event()
+                .id(String.valueOf(event.getEventId()))
+                .name(EVENT_NAME)
+                .data(event, MediaType.APPLICATION_JSON));
+    }
+
+    private void close(Subscription subscription) {
+        subscriptions.computeIfPresent(subscription.userId, (userId, set) -> {
+            set.remove(subscription);
+            return set.isEmpty() ? null : set;
+        });
+        Thread sender = subscription.sender;
+        if (sender != null && sender != Thread.currentThread()) {
+            sender.interrupt();
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.interfaces.DirectorRepository;
+import ru.yandex.practicum.filmorate.interfaces.FilmRepository;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Триграммный индекс по названиям фильмов и именам режиссёров. Поиск подстроки
+ * пересекает списки триграмм запроса, начиная с самого короткого, и проверяет
+ * только оставшихся кандидатов, поэтому время зависит от числа совпадений,
+ * а не от размера каталога. Запросы короче трёх символов проверяются перебором.
+ */
+@Slf4j
+@Component
+public class FilmSearchIndex {
+    private static final int GRAM = 3;
+
+    private final FilmRepository filmRepository;
+    private final DirectorRepository directorRepository;
+    private final Map<Long, String> titles = new HashMap<>();
+    private final Map<String, Set<Long>> titleGrams = new HashMap<>();
+    private final Map<Long, String> directorNames = new HashMap<>();
+    private final Map<String, Set<Long>> directorGrams = new HashMap<>();
+    private final Map<Long, Set<Long>> filmsByDirector = new HashMap<>();
+    private final Map<Long, Set<Long>> directorsByFilm = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public FilmSearchIndex(FilmRepository filmRepository,
+                           @Qualifier("jdbcDirectorRepository") DirectorRepository directorRepository) {
+        this.filmRepository = filmRepository;
+        this.directorRepository = directorRepository;
+    }
+
+    @PostConstruct
+    public void reload() {
+        Map<Long, String> loadedTitles = filmRepository.findTitles();
+        Collection<Director> directors = directorRepository.findAll();
+        Map<Long, Set<Long>> links = directorRepository.findFilmIdsByDirector();
+        lock.writeLock().lock();
+        try {
+            titles.clear();
+            titleGrams.clear();
+            directorNames.clear();
+            directorGrams.clear();
+            filmsByDirector.clear();
+            directorsByFilm.clear();
+            loadedTitles.forEach((filmId, title) -> index(titles, titleGrams, filmId, title));
+            directors.forEach(d -> index(directorNames, directorGrams, d.getId(), d.getDirectorName()));
+            links.forEach((directorId, filmIds) -> filmIds.forEach(filmId -> link(filmId, directorId)));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Поисковый индекс загружен: {} фильмов, {} режиссёров", loadedTitles.size(), directors.size());
+    }
+
+    public void saveFilm(Film film) {
+        lock.writeLock().lock();
+        try {
+            unindex(titles, titleGrams, film.getId());
+            unlinkFilm(film.getId());
+            index(titles, titleGrams, film.getId(), film.getName());
+            for (Director director : film.getDirectors()) {
+                if (!directorNames.containsKey(director.getId())) {
+                    index(directorNames, directorGrams, director.getId(), director.getDirectorName());
+                }
+                link(film.getId(), director.getId());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeFilm(long filmId) {
+        lock.writeLock().lock();
+        try {
+            unindex(titles, titleGrams, filmId);
+            unlinkFilm(filmId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void saveDirector(Director director) {
+        lock.writeLock().lock();
+        try {
+            unindex(directorNames, directorGrams, director.getId());
+            index(directorNames, directorGrams, director.getId(), director.getDirectorName());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeDirector(long directorId) {
+        lock.writeLock().lock();
+        try {
+            unindex(directorNames, directorGrams, directorId);
+            Set<Long> filmIds = filmsByDirector.remove(directorId);
+            if (filmIds != null) {
+                filmIds.forEach(filmId -> unlink(directorsByFilm, filmId, directorId));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Id фильмов, у которых название и/или имя одного из режиссёров содержит
+     * {@code query} без учёта регистра. Пустой запрос совпадает со всеми фильмами.
+     */
+    public Set<Long> search(String query, boolean byTitle, boolean byDirector) {
+        String needle = normalize(query);
+        lock.readLock().lock();
+        try {
+            if (needle.isEmpty()) {
+                return new HashSet<>(titles.keySet());
+            }
+            Set<Long> filmIds = new HashSet<>();
+            if (byTitle) {
+                filmIds.addAll(match(titles, titleGrams, needle));
+            }
+            if (byDirector) {
+                for (Long directorId : match(directorNames, directorGrams, needle)) {
+                    filmIds.addAll(filmsByDirector.getOrDefault(directorId, Set.of()));
+                }
+            }
+            return filmIds;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Set<Long> directorIds(long filmId) {
+        lock.readLock().lock();
+        try {
+            return Set.copyOf(directorsByFilm.getOrDefault(filmId, Set.of()));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Set<Long> filmIdsByDirector(long directorId) {
+        lock.readLock().lock();
+        try {
+            return Set.copyOf(filmsByDirector.getOrDefault(directorId, Set.of()));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT);
+    }
+
+    private static List<Long> match(Map<Long, String> texts, Map<String, Set<Long>> grams, String needle) {
+        List<Long> matches = new ArrayList<>();
+        if (needle.length() < GRAM) {
+            texts.forEach((id, text) -> {
+                if (text.contains(needle)) {
+                    matches.add(id);
+                }
+            });
+            return matches;
+        }
+        List<Set<Long>> postings = new ArrayList<>();
+        for (String gram : trigrams(needle)) {
+            Set<Long> posting = grams.get(gram);
+            if (posting == null) {
+                return matches;
+            }
+            postings.add(posting);
+        }
+        postings.sort(Comparator.comparingInt(Set::size));
+        Set<Long> smallest = postings.getFirst();
+        List<Set<Long>> others = postings.subList(1, postings.size());
+        for (Long id : smallest) {
+            if (others.stream().allMatch(posting -> posting.contains(id)) && texts.get(id).contains(needle)) {
+                matches.add(id);
+            }
+        }
+        return matches;
+    }
+
+    private static Set<String> trigrams(String text) {
+        Set<String> result = new LinkedHashSet<>();
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            result.add(text.substring(i, i + GRAM));
+        }
+        return result;
+    }
+
+    private static void index(Map<Long, String> texts, Map<String, Set<Long>> grams, long id, String text) {
+        String normalized = normalize(text);
+        texts.put(id, normalized);
+        for (String gram : trigrams(normalized)) {
+            grams.computeIfAbsent(gram, k -> new HashSet<>()).add(id);
+        }
+    }
+
+    private static void unindex(Map<Long, String> texts, Map<String, Set<Long>> grams, long id) {
+        String previous = texts.remove(id);
+        if (previous == null) {
+            return;
+        }
+        for (String gram : trigrams(previous)) {
+            unlink(grams, gram, id);
+        }
+    }
+
+    private void link(long filmId, long directorId) {
+        filmsByDirector.computeIfAbsent(directorId, k -> new HashSet<>()).add(filmId);
+        directorsByFilm.computeIfAbsent(filmId, k -> new HashSet<>()).add(directorId);
+    }
+
+    private void unlinkFilm(long filmId) {
+        Set<Long> directorIds = directorsByFilm.remove(filmId);
+        if (directorIds != null) {
+            directorIds.forEach(directorId -> unlink(filmsByDirector, directorId, filmId));
+        }
+    }
+
+    private static <K> void unlink(Map<K, Set<Long>> postings, K key, long id) {
+        Set<Long> posting = postings.get(key);
+        if (posting != null && posting.remove(id) && posting.isEmpty()) {
+            postings.remove(key);
+        }
+    }
+}
@@ -4,6 +4,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.interfaces.FilmRepository;
 import ru.yandex.practicum.filmorate.interfaces.GenreRepository;
 import ru.yandex.practicum.filmorate.interfaces.LikeRepository;
@@ -11,63 +12,127 @@ import ru.yandex.practicum.filmorate.interfaces.MpaRepository;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.repository.FilmCache;
 import ru.yandex.practicum.filmorate.repository.JdbcLikeRepository;
 import ru.yandex.practicum.filmorate.repository.JdbcMpaRepository;
+import ru.yandex.practicum.filmorate.response.CursorPage;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 public class FilmService {
+    private static final String FILMS_CURSOR_SCOPE = "films";
+    private static final Comparator<Film> BY_POPULARITY = Comparator.comparing(Film::getLikesCount).reversed()
+            .thenComparing(Film::getId);
 
     private final FilmRepository filmRepository;
     private final UserService userService;
     private final MpaRepository mpaRepository;
     private final GenreRepository genreRepository;
     private final LikeRepository likeRepository;
+    private final PopularityIndex popularityIndex;
+    private final FilmCache filmCache;
+    private final FilmSearchIndex searchIndex;
+    private final UserLikesIndex userLikesIndex;
+    private final SimilarFilmsIndex similarFilmsIndex;
+    private final RecommendationCache recommendationCache;
 
     @Autowired
     public FilmService(FilmRepository filmRepository, UserService userService, JdbcMpaRepository mpaRepository,
-                       GenreRepository genreRepository, JdbcLikeRepository likeRepository) {
+                       GenreRepository genreRepository, JdbcLikeRepository likeRepository,
+                       PopularityIndex popularityIndex, FilmCache filmCache, FilmSearchIndex searchIndex,
+                       UserLikesIndex userLikesIndex, SimilarFilmsIndex similarFilmsIndex,
+                       RecommendationCache recommendationCache) {
         this.filmRepository = filmRepository;
         this.userService = userService;
         this.mpaRepository = mpaRepository;
         this.genreRepository = genreRepository;
         this.likeRepository = likeRepository;
+        this.popularityIndex = popularityIndex;
+        this.filmCache = filmCache;
+        this.searchIndex = searchIndex;
+        this.userLikesIndex = userLikesIndex;
+        this.similarFilmsIndex = similarFilmsIndex;
+        this.recommendationCache = recommendationCache;
     }
 
     public void addLike(Long filmId, Long userId) {
         log.info("Добавление лайка");
         userService.getUserById(userId);
         filmRepository.getFilmById(filmId);
-        likeRepository.addLike(filmId, userId);
+        if (likeRepository.addLike(filmId, userId)) {
+            popularityIndex.incrementLikes(filmId);
+            userLikesIndex.addLike(filmId, userId);
+            recommendationCache.likeChanged(filmId, userId);
+            filmCache.evict(filmId);
+        }
     }
 
     public void removeLike(Long filmId, Long userId) {
         log.info("Удаление лайка");
         likeRepository.removeLike(filmId, userId);
+        popularityIndex.decrementLikes(filmId);
+        userLikesIndex.removeLike(filmId, userId);
+        recommendationCache.likeChanged(filmId, userId);
+        filmCache.evict(filmId);
     }
 
     public Collection<Film> getPopularFilm(Long count) {
-        return filmRepository.findPopularFilms(count);
+        return findRanked((int) Math.min(count, Integer.MAX_VALUE), null, null);
     }
 
     public Collection<Film> getPopular(Long count, Long genreId, Long year) {
         Long c = (count == null || count <= 0) ? 10 : count;
-        return filmRepository.findPopular(c, genreId, year);
+        if (year != null && (year < Integer.MIN_VALUE || year > Integer.MAX_VALUE)) {
+            return List.of();
+        }
+        return findRanked((int) Math.min(c, Integer.MAX_VALUE), genreId, year == null ? null : year.intValue());
+    }
+
+    private List<Film> findRanked(int limit, Long genreId, Integer year) {
+        while (true) {
+            List<Long> filmIds = popularityIndex.top(limit, genreId, year);
+            List<Film> films = filmRepository.findByIds(filmIds);
+            if (films.size() == filmIds.size()) {
+                return films;
+            }
+            Set<Long> found = films.stream().map(Film::getId).collect(Collectors.toSet());
+            filmIds.stream()
+                    .filter(id -> !found.contains(id))
+                    .forEach(id -> {
+                        log.warn("Фильм {} есть в рейтинге, но не найден в базе, удаляю из рейтинга", id);
+                        popularityIndex.removeFilm(id);
+                    });
+        }
     }
 
     public Film create(Film newFilm) {
-        return filmRepository.save(newFilm);
+        Film film = filmRepository.save(newFilm);
+        popularityIndex.saveFilm(film);
+        searchIndex.saveFilm(film);
+        return film;
     }
 
     public Film update(Film film) {
-        return filmRepository.update(film);
+        Film updated = filmRepository.update(film);
+        popularityIndex.saveFilm(updated);
+        searchIndex.saveFilm(updated);
+        return updated;
     }
 
     @Transactional
     public void delete(Long filmId) {
         log.info("Удаление фильма с id={}", filmId);
         filmRepository.deleteById(filmId);
+        popularityIndex.removeFilm(filmId);
+        searchIndex.removeFilm(filmId);
+        userLikesIndex.removeFilm(filmId);
+        recommendationCache.clear();
         log.info("Фильм с id={} удалён из репозитория", filmId);
     }
 
@@ -75,6 +140,24 @@ public class FilmService {
         return filmRepository.findAll();
     }
 
+    public CursorPage<Film> findPage(String after, Integer limit) {
+        int pageSize = PageCursor.checkLimit(limit);
+        long afterId = PageCursor.decode(FILMS_CURSOR_SCOPE, after);
+        return PageCursor.toPage(FILMS_CURSOR_SCOPE, filmRepository.findPage(afterId, pageSize + 1),
+                pageSize, Film::getId);
+    }
+
+    public List<Film> findByIds(List<Long> ids) {
+        if (ids.size() > PageCursor.MAX_LIMIT) {
+            throw new ValidationException("Можно запросить не больше " + PageCursor.MAX_LIMIT + " фильмов за раз");
+        }
+        return filmRepository.findByIds(ids);
+    }
+
+    public void exportAll(Consumer<Film> consumer) {
+        filmRepository.exportAll(consumer);
+    }
+
     public Film getFilmById(Long id) {
         return filmRepository.getFilmById(id);
     }
@@ -97,7 +180,15 @@ public class FilmService {
 
     public Collection<Film> getCommonFilms(Long userId, Long friendId) {
         log.info("Запрос общих фильмов пользователей {} и {}", userId, friendId);
-        return filmRepository.findCommonFilms(userId, friendId);
+        return filmRepository.findByIds(userLikesIndex.commonFilmIds(userId, friendId)).stream()
+                .sorted(BY_POPULARITY)
+                .toList();
+    }
+
+    public Collection<Film> getSimilarFilms(Long filmId, int count) {
+        log.info("Запрос похожих фильмов для фильма {}", filmId);
+        filmRepository.getFilmById(filmId);
+        return filmRepository.findByIds(similarFilmsIndex.similar(filmId, count));
     }
 
     public Collection<Film> getFilmsByDirectorId(Long directorId, String sortBy) {
@@ -105,14 +196,26 @@ public class FilmService {
     }
 
     public Collection<Film> searchFilmsByTitle(String query) {
-        return filmRepository.searchFilmsByTitle(query);
+        return search(query, true, false);
     }
 
     public Collection<Film> searchFilmsByDirector(String query) {
-        return filmRepository.searchFilmsByDirector(query);
+        return search(query, false, true);
     }
 
     public Collection<Film> searchFilmsByTitleAndDirector(String query) {
-        return filmRepository.searchFilmsByTitleAndDirector(query);
+        return search(query, true, true);
+    }
+
+    private List<Film> search(String query, boolean byTitle, boolean byDirector) {
+        String needle = FilmSearchIndex.normalize(query);
+        Set<Long> candidates = searchIndex.search(needle, byTitle, byDirector);
+        return filmRepository.findByIds(candidates).stream()
+                .filter(film -> needle.isEmpty()
+                        || (byTitle && FilmSearchIndex.normalize(film.getName()).contains(needle))
+                        || (byDirector && film.getDirectors().stream()
+                        .anyMatch(d -> FilmSearchIndex.normalize(d.getDirectorName()).contains(needle))))
+                .sorted(BY_POPULARITY)
+                .toList();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,19 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.Set;
+
+/**
+ * Чтение матрицы лайков: живой {@link UserLikesIndex} или его снимок. Возвращаемые
+ * множества менять нельзя; {@code null} означает, что лайков нет.
+ */
+interface LikeMatrix {
+    RoaringBitmap likes(int user);
+
+    RoaringBitmap likers(int film);
+
+    Set<Integer> users();
+
+    Set<Integer> films();
+}
@@ -0,0 +1,37 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.interfaces.LikeRepository;
+import ru.yandex.practicum.filmorate.model.LikesCountDrift;
+
+import java.util.List;
+
+/**
+ * Сверяет films.likes_count с таблицей likes и исправляет расхождения.
+ */
+@Slf4j
+@Service
+public class LikesCountRepairJob {
+    private final LikeRepository likeRepository;
+
+    public LikesCountRepairJob(@Qualifier("jdbcLikeRepository") LikeRepository likeRepository) {
+        this.likeRepository = likeRepository;
+    }
+
+    @Scheduled(cron = "${filmorate.likes-count-repair.cron:0 0 3 * * *}")
+    public List<LikesCountDrift> repair() {
+        List<LikesCountDrift> drift = likeRepository.findLikesCountDrift();
+        if (drift.isEmpty()) {
+            log.info("Счетчики лайков совпадают с таблицей likes");
+            return drift;
+        }
+        drift.forEach(d -> log.warn("Расхождение счетчика лайков: film_id={}, сохранено={}, фактически={}",
+                d.getFilmId(), d.getStoredCount(), d.getActualCount()));
+        likeRepository.repairLikesCounts(drift.stream().map(LikesCountDrift::getFilmId).toList());
+        log.warn("Исправлены счетчики лайков у {} фильмов", drift.size());
+        return drift;
+    }
+}
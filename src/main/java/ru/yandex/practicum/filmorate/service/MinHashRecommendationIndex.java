@@ -0,0 +1,229 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.interfaces.RecommendationRepository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Приближённые рекомендации. Для каждого пользователя хранится MinHash-подпись множества
+ * лайкнутых фильмов из {@code bands * rows} значений, разбитая на полосы по {@code rows}.
+ * Пользователи с совпавшей полосой попадают в одну корзину. Запрос точно оценивает только
+ * соседей по корзинам и выбирает лучшего по тем же правилам, что и точный режим. Соседа
+ * с малым сходством по Жаккару можно пропустить; полнота мерится бенчмарком
+ * {@code RecommendationsBenchmark}.
+ *
+ * <p>Лайки берутся из общей матрицы {@link UserLikesIndex}; подпись пользователя
+ * пересчитывается на её потоке обновлений, когда она сообщает об изменении его лайков.
+ * Корзины, как и множества матрицы, заменяются копиями, поэтому запрос читает их без
+ * блокировок.
+ */
+@Slf4j
+@Component
+@Qualifier("minHashRecommendationIndex")
+public class MinHashRecommendationIndex implements RecommendationRepository, UserLikesIndex.Listener {
+    private static final long SEED = 0x5DEECE66DL;
+
+    private final UserLikesIndex likes;
+    private final int bands;
+    private final int rows;
+    private final long[] seeds;
+    private volatile Lsh lsh = new Lsh(new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
+
+    /**
+     * Подписи пользователей и корзины полос. Меняются только потоком обновлений,
+     * опубликованные корзины не меняются.
+     */
+    private record Lsh(Map<Integer, int[]> signatures, Map<Long, RoaringBitmap> buckets) {
+    }
+
+    public MinHashRecommendationIndex(UserLikesIndex likes,
+                                      @Value("${filmorate.recommendations.lsh.bands:32}") int bands,
+                                      @Value("${filmorate.recommendations.lsh.rows:2}") int rows) {
+        this.likes = likes;
+        this.bands = bands;
+        this.rows = rows;
+        this.seeds = new SplittableRandom(SEED).longs(bands * rows).toArray();
+        likes.addListener(this);
+    }
+
+    /**
+     * Заново строит подписи и корзины по снимку общей матрицы лайков.
+     */
+    @PostConstruct
+    @Scheduled(cron = "${filmorate.recommendations.rebuild-cron:0 30 3 * * *}")
+    public void reload() {
+        likes.rebuild(this, snapshot -> {
+            Map<Integer, int[]> signatures = new HashMap<>();
+            Map<Long, RoaringBitmap> buckets = new HashMap<>();
+            snapshot.users().forEach(user -> {
+                int[] signature = sign(snapshot.likes(user));
+                signatures.put(user, signature);
+                for (int band = 0; band < bands; band++) {
+                    buckets.computeIfAbsent(bucketKey(signature, band), k -> new RoaringBitmap()).add(user);
+                }
+            });
+            lsh = new Lsh(new ConcurrentHashMap<>(signatures), new ConcurrentHashMap<>(buckets));
+            log.info("MinHash-подписи построены для {} пользователей, корзин: {}",
+                    signatures.size(), buckets.size());
+        });
+    }
+
+    @Override
+    public List<Long> findRecommendedFilmIdsForUser(Long userId) {
+        if (!UserLikesIndex.indexed(userId)) {
+            return List.of();
+        }
+        int user = toInt(userId);
+        Lsh current = lsh;
+        int[] signature = current.signatures().get(user);
+        RoaringBitmap userLikes = likes.likes(user);
+        if (signature == null || userLikes == null) {
+            return List.of();
+        }
+        RoaringBitmap candidates = new RoaringBitmap();
+        for (int band = 0; band < bands; band++) {
+            RoaringBitmap bucket = current.buckets().get(bucketKey(signature, band));
+            if (bucket != null) {
+                candidates.or(bucket);
+            }
+        }
+        candidates.remove(user);
+
+        int[] best = {-1, 0, 0};
+        RoaringBitmap[] bestLikes = new RoaringBitmap[1];
+        candidates.forEach((int other) -> {
+            RoaringBitmap otherLikes = likes.likes(other);
+            if (otherLikes == null) {
+                return;
+            }
+            int common = RoaringBitmap.andCardinality(userLikes, otherLikes);
+            int extra = otherLikes.getCardinality() - common;
+            if (common == 0 || extra == 0) {
+                return;
+            }
+            if (best[0] < 0 || common > best[1] || common == best[1] && (extra > best[2]
+                    || extra == best[2] && other > best[0])) {
+                best[0] = other;
+                best[1] = common;
+                best[2] = extra;
+                bestLikes[0] = otherLikes;
+            }
+        });
+        if (best[0] < 0) {
+            return List.of();
+        }
+        RoaringBitmap films = RoaringBitmap.andNot(bestLikes[0], userLikes);
+        List<Long> filmIds = new ArrayList<>(films.getCardinality());
+        films.forEach((int filmId) -> filmIds.add((long) filmId));
+        filmIds.sort(Comparator
+                .comparingInt((Long filmId) -> popularity(filmId.intValue())).reversed()
+                .thenComparing(Long::longValue));
+        return filmIds;
+    }
+
+    private int popularity(int film) {
+        RoaringBitmap likers = likes.likers(film);
+        return likers == null ? 0 : likers.getCardinality();
+    }
+
+    @Override
+    public void likeAdded(int film, int user) {
+        resign(user);
+    }
+
+    @Override
+    public void likeRemoved(int film, int user) {
+        resign(user);
+    }
+
+    @Override
+    public void userRemoved(int user, RoaringBitmap films) {
+        resign(user);
+    }
+
+    @Override
+    public void filmRemoved(int film, RoaringBitmap users) {
+        users.forEach((int user) -> resign(user));
+    }
+
+    /**
+     * Переносит пользователя в корзины по новой подписи. Изменённая корзина заменяется копией.
+     */
+    private void resign(int user) {
+        Map<Integer, int[]> signatures = lsh.signatures();
+        Map<Long, RoaringBitmap> buckets = lsh.buckets();
+        RoaringBitmap userLikes = likes.likes(user);
+        int[] signature = userLikes == null ? null : sign(userLikes);
+        int[] previous = signature == null ? signatures.remove(user) : signatures.put(user, signature);
+        if (previous != null) {
+            for (int band = 0; band < bands; band++) {
+                long key = bucketKey(previous, band);
+                RoaringBitmap bucket = buckets.get(key);
+                if (bucket != null && bucket.contains(user)) {
+                    RoaringBitmap updated = bucket.clone();
+                    updated.remove(user);
+                    if (updated.isEmpty()) {
+                        buckets.remove(key);
+                    } else {
+                        buckets.put(key, updated);
+                    }
+                }
+            }
+        }
+        if (signature != null) {
+            for (int band = 0; band < bands; band++) {
+                long key = bucketKey(signature, band);
+                RoaringBitmap bucket = buckets.get(key);
+                RoaringBitmap updated = bucket == null ? new RoaringBitmap() : bucket.clone();
+                updated.add(user);
+                buckets.put(key, updated);
+            }
+        }
+    }
+
+    private int[] sign(RoaringBitmap likes) {
+        int[] signature = new int[seeds.length];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        likes.forEach((int film) -> {
+            for (int i = 0; i < seeds.length; i++) {
+                int hash = (int) (mix(film ^ seeds[i]) >>> 33);
+                if (hash < signature[i]) {
+                    signature[i] = hash;
+                }
+            }
+        });
+        return signature;
+    }
+
+    private long bucketKey(int[] signature, int band) {
+        long key = band;
+        for (int i = band * rows; i < (band + 1) * rows; i++) {
+            key = key * 0x100000001B3L + signature[i];
+        }
+        return mix(key);
+    }
+
+    private static long mix(long value) {
+        long h = (value ^ (value >>> 33)) * 0xFF51AFD7ED558CCDL;
+        h = (h ^ (h >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return h ^ (h >>> 33);
+    }
+
+    private static int toInt(long id) {
+        return Math.toIntExact(id);
+    }
+}
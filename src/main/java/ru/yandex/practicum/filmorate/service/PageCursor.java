@@ -0,0 +1,63 @@
+package ru.yandex.practicum.filmorate.service;
+
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.response.CursorPage;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * Непрозрачный курсор для keyset-пагинации: в токене закодирован id последней
+ * отданной записи, следующая страница читается запросом {@code WHERE id > :after}.
+ */
+public final class PageCursor {
+    public static final int DEFAULT_LIMIT = 100;
+    public static final int MAX_LIMIT = 1000;
+
+    private PageCursor() {
+    }
+
+    public static String encode(String scope, long id) {
+        String raw = scope + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static long decode(String scope, String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!raw.startsWith(scope + ":")) {
+                throw new ValidationException("Некорректный курсор: " + cursor);
+            }
+            return Long.parseLong(raw.substring(scope.length() + 1));
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("Некорректный курсор: " + cursor);
+        }
+    }
+
+    public static int checkLimit(Integer limit) {
+        if (limit == null) {
+            return DEFAULT_LIMIT;
+        }
+        if (limit <= 0 || limit > MAX_LIMIT) {
+            throw new ValidationException("Параметр limit должен быть в диапазоне от 1 до " + MAX_LIMIT);
+        }
+        return limit;
+    }
+
+    /**
+     * Собирает страницу из выборки размером {@code limit + 1}: лишняя запись означает,
+     * что дальше есть данные, и курсор указывает на последнюю отданную запись.
+     */
+    public static <T> CursorPage<T> toPage(String scope, List<T> rows, int limit, ToLongFunction<T> idGetter) {
+        if (rows.size() <= limit) {
+            return new CursorPage<>(rows, null);
+        }
+        List<T> items = rows.subList(0, limit);
+        return new CursorPage<>(items, encode(scope, idGetter.applyAsLong(items.get(limit - 1))));
+    }
+}
@@ -0,0 +1,268 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.interfaces.FilmRepository;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmPopularity;
+import ru.yandex.practicum.filmorate.model.Genre;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * Рейтинг фильмов по числу лайков в памяти. Порядок совпадает с SQL
+ * {@code ORDER BY likes_count DESC, film_id}, обновление стоит O(log n).
+ * Помимо общего рейтинга ведутся отдельные разделы по жанру, году выпуска
+ * и их сочетанию, поэтому выборка с фильтрами читает только свой раздел.
+ */
+@Slf4j
+@Component
+public class PopularityIndex {
+    private static final Comparator<FilmLikes> RANKING_ORDER = Comparator
+            .comparingLong(FilmLikes::likes).reversed()
+            .thenComparingLong(FilmLikes::filmId);
+
+    private final FilmRepository filmRepository;
+    private final Map<Long, FilmEntry> films = new HashMap<>();
+    private final NavigableSet<FilmLikes> ranking = new TreeSet<>(RANKING_ORDER);
+    private final Map<Long, NavigableSet<FilmLikes>> byGenre = new HashMap<>();
+    private final Map<Integer, NavigableSet<FilmLikes>> byYear = new HashMap<>();
+    private final Map<GenreYear, NavigableSet<FilmLikes>> byGenreYear = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private record FilmLikes(long filmId, long likes) {
+    }
+
+    private record FilmEntry(long likes, Integer year, Set<Long> genreIds) {
+    }
+
+    private record GenreYear(long genreId, int year) {
+    }
+
+    public PopularityIndex(FilmRepository filmRepository) {
+        this.filmRepository = filmRepository;
+    }
+
+    @PostConstruct
+    public void reload() {
+        List<FilmPopularity> popularity = filmRepository.findFilmPopularity();
+        lock.writeLock().lock();
+        try {
+            films.clear();
+            ranking.clear();
+            byGenre.clear();
+            byYear.clear();
+            byGenreYear.clear();
+            popularity.forEach(p -> link(p.getFilmId(),
+                    new FilmEntry(p.getLikesCount(), p.getReleaseYear(), Set.copyOf(p.getGenreIds()))));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Рейтинг популярности загружен: {} фильмов", popularity.size());
+    }
+
+    /**
+     * Добавляет фильм в рейтинг или переносит его в разделы по новым жанрам и году,
+     * сохраняя накопленное число лайков.
+     */
+    public void saveFilm(Film film) {
+        Integer year = yearOf(film);
+        Set<Long> genreIds = genreIdsOf(film);
+        lock.writeLock().lock();
+        try {
+            FilmEntry current = films.get(film.getId());
+            long likes = 0;
+            if (current != null) {
+                unlink(film.getId(), current);
+                likes = current.likes();
+            }
+            link(film.getId(), new FilmEntry(likes, year, genreIds));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeFilm(long filmId) {
+        lock.writeLock().lock();
+        try {
+            FilmEntry current = films.remove(filmId);
+            if (current != null) {
+                unlink(filmId, current);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void incrementLikes(long filmId) {
+        changeLikes(filmId, 1);
+    }
+
+    public void decrementLikes(long filmId) {
+        changeLikes(filmId, -1);
+    }
+
+    public long likes(long filmId) {
+        lock.readLock().lock();
+        try {
+            FilmEntry entry = films.get(filmId);
+            return entry == null ? 0 : entry.likes();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Set<Long> genreIds(long filmId) {
+        lock.readLock().lock();
+        try {
+            FilmEntry entry = films.get(filmId);
+            return entry == null ? Set.of() : entry.genreIds();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Long> top(int count) {
+        return top(count, null, null);
+    }
+
+    /**
+     * Первые {@code count} фильмов раздела; {@code null} в фильтре означает «любой».
+     */
+    public List<Long> top(int count, Long genreId, Integer year) {
+        lock.readLock().lock();
+        try {
+            NavigableSet<FilmLikes> partition = partition(genreId, year);
+            List<Long> filmIds = new ArrayList<>(Math.min(count, partition.size()));
+            Iterator<FilmLikes> iterator = partition.iterator();
+            while (filmIds.size() < count && iterator.hasNext()) {
+                filmIds.add(iterator.next().filmId());
+            }
+            return filmIds;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private NavigableSet<FilmLikes> partition(Long genreId, Integer year) {
+        NavigableSet<FilmLikes> partition;
+        if (genreId != null && year != null) {
+            partition = byGenreYear.get(new GenreYear(genreId, year));
+        } else if (genreId != null) {
+            partition = byGenre.get(genreId);
+        } else if (year != null) {
+            partition = byYear.get(year);
+        } else {
+            partition = ranking;
+        }
+        return partition == null ? Collections.emptyNavigableSet() : partition;
+    }
+
+    private void changeLikes(long filmId, long delta) {
+        lock.writeLock().lock();
+        try {
+            if (applyDelta(filmId, delta)) {
+                return;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (delta > 0) {
+            addUnknownFilm(filmId, delta);
+        }
+    }
+
+    /**
+     * Лайк фильму, которого ещё нет в рейтинге: жанры и год берутся из базы, чтобы фильм
+     * сразу попал в свои разделы. Фильм, которого нет и в базе, пропускается.
+     */
+    private void addUnknownFilm(long filmId, long likes) {
+        Film film;
+        try {
+            film = filmRepository.getFilmById(filmId);
+        } catch (NotFoundException e) {
+            log.warn("Лайк фильму {} пропущен: фильма нет ни в рейтинге, ни в базе", filmId);
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (!applyDelta(filmId, likes)) {
+                link(filmId, new FilmEntry(likes, yearOf(film), genreIdsOf(film)));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private boolean applyDelta(long filmId, long delta) {
+        FilmEntry current = films.get(filmId);
+        if (current == null) {
+            return false;
+        }
+        unlink(filmId, current);
+        link(filmId, new FilmEntry(Math.max(0, current.likes() + delta), current.year(), current.genreIds()));
+        return true;
+    }
+
+    private static Integer yearOf(Film film) {
+        return film.getReleaseDate() == null ? null : film.getReleaseDate().getYear();
+    }
+
+    private static Set<Long> genreIdsOf(Film film) {
+        return film.getGenres() == null ? Set.of() : film.getGenres().stream()
+                .map(Genre::getId)
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    private void link(long filmId, FilmEntry entry) {
+        films.put(filmId, entry);
+        FilmLikes filmLikes = new FilmLikes(filmId, entry.likes());
+        ranking.add(filmLikes);
+        if (entry.year() != null) {
+            byYear.computeIfAbsent(entry.year(), k -> new TreeSet<>(RANKING_ORDER)).add(filmLikes);
+        }
+        for (Long genreId : entry.genreIds()) {
+            byGenre.computeIfAbsent(genreId, k -> new TreeSet<>(RANKING_ORDER)).add(filmLikes);
+            if (entry.year() != null) {
+                byGenreYear.computeIfAbsent(new GenreYear(genreId, entry.year()), k -> new TreeSet<>(RANKING_ORDER))
+                        .add(filmLikes);
+            }
+        }
+    }
+
+    private void unlink(long filmId, FilmEntry entry) {
+        FilmLikes filmLikes = new FilmLikes(filmId, entry.likes());
+        ranking.remove(filmLikes);
+        if (entry.year() != null) {
+            removeFromPartition(byYear, entry.year(), filmLikes);
+        }
+        for (Long genreId : entry.genreIds()) {
+            removeFromPartition(byGenre, genreId, filmLikes);
+            if (entry.year() != null) {
+                removeFromPartition(byGenreYear, new GenreYear(genreId, entry.year()), filmLikes);
+            }
+        }
+    }
+
+    private static <K> void removeFromPartition(Map<K, NavigableSet<FilmLikes>> partitions, K key,
+                                                FilmLikes filmLikes) {
+        NavigableSet<FilmLikes> partition = partitions.get(key);
+        if (partition != null && partition.remove(filmLikes) && partition.isEmpty()) {
+            partitions.remove(key);
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Кэш id рекомендованных фильмов по пользователю. Запись зависит от фильмов, которые
+ * лайкнул пользователь, и от фильмов в самой рекомендации. Лайк пользователя X на фильм F
+ * сбрасывает записи, зависящие от F или от любого фильма X: только у таких пользователей
+ * могут поменяться лучший сосед или порядок кандидатов.
+ *
+ * <p>Одновременные промахи по одному пользователю ждут одного вычисления. Результат
+ * не кэшируется, если за время вычисления пришёл лайк. TTL страхует от пропущенных
+ * событий, например от правок в базе в обход сервисов.
+ */
+@Slf4j
+@Component
+@ManagedResource(description = "Кэш рекомендаций по пользователю")
+public class RecommendationCache {
+    private final UserLikesIndex userLikesIndex;
+    private final Duration ttl;
+    private final Map<Long, CompletableFuture<Entry>> entries = new ConcurrentHashMap<>();
+    private final Map<Integer, RoaringBitmap> usersByFilm = new HashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+    private long generation;
+
+    private record Entry(List<Long> filmIds, RoaringBitmap dependsOn, long expiresAt) {
+    }
+
+    public RecommendationCache(UserLikesIndex userLikesIndex,
+                               @Value("${filmorate.recommendations.cache-ttl:PT10M}") Duration ttl) {
+        this.userLikesIndex = userLikesIndex;
+        this.ttl = ttl;
+    }
+
+    /**
+     * Возвращает рекомендации из кэша или считает их через {@code loader}.
+     */
+    public List<Long> get(Long userId, Function<Long, List<Long>> loader) {
+        if (!UserLikesIndex.indexed(userId)) {
+            // такого пользователя нет в индексах лайков, сбрасывать его запись было бы нечем
+            return loader.apply(userId);
+        }
+        while (true) {
+            CompletableFuture<Entry> cached = entries.get(userId);
+            if (cached != null) {
+                // null: вычисление упало и уже убрано из кэша
+                Entry entry = cached.join();
+                if (entry == null) {
+                    continue;
+                }
+                if (entry.expiresAt() > System.currentTimeMillis()) {
+                    hits.incrementAndGet();
+                    return entry.filmIds();
+                }
+                synchronized (this) {
+                    if (entries.remove(userId, cached)) {
+                        unregister(userId, entry);
+                    }
+                }
+                continue;
+            }
+            CompletableFuture<Entry> mine = new CompletableFuture<>();
+            if (entries.putIfAbsent(userId, mine) != null) {
+                continue;
+            }
+            misses.incrementAndGet();
+            return load(userId, loader, mine);
+        }
+    }
+
+    /**
+     * Лайк или снятие лайка: {@code userId} поставил или убрал лайк фильму {@code filmId}.
+     */
+    public void likeChanged(long filmId, long userId) {
+        if (!UserLikesIndex.indexed(filmId) || !UserLikesIndex.indexed(userId)) {
+            return;
+        }
+        RoaringBitmap films = userLikesIndex.likedFilms(userId);
+        films.add(Math.toIntExact(filmId));
+        invalidate(userId, films);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidate(userId, films);
+                }
+            });
+        }
+    }
+
+    @ManagedOperation(description = "Очистить кэш")
+    public synchronized void clear() {
+        generation++;
+        invalidations.incrementAndGet();
+        entries.clear();
+        usersByFilm.clear();
+    }
+
+    /**
+     * Удаляет просроченные записи, к которым давно не обращались.
+     */
+    @Scheduled(fixedDelayString = "${filmorate.recommendations.cache-ttl:PT10M}")
+    public synchronized void purgeExpired() {
+        long now = System.currentTimeMillis();
+        entries.forEach((userId, future) -> {
+            Entry entry = future.getNow(null);
+            if (entry != null && entry.expiresAt() <= now && entries.remove(userId, future)) {
+                unregister(userId, entry);
+            }
+        });
+    }
+
+    @ManagedAttribute(description = "Попадания")
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    @ManagedAttribute(description = "Промахи")
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    @ManagedAttribute(description = "Сбросы при изменении лайков")
+    public long getInvalidationCount() {
+        return invalidations.get();
+    }
+
+    @ManagedAttribute(description = "Текущий размер")
+    public int getSize() {
+        return entries.size();
+    }
+
+    private List<Long> load(Long userId, Function<Long, List<Long>> loader, CompletableFuture<Entry> mine) {
+        long loadGeneration;
+        synchronized (this) {
+            loadGeneration = generation;
+        }
+        try {
+            List<Long> filmIds = List.copyOf(loader.apply(userId));
+            RoaringBitmap dependsOn = userLikesIndex.likedFilms(userId);
+            filmIds.stream()
+                    .filter(UserLikesIndex::indexed)
+                    .forEach(filmId -> dependsOn.add(filmId.intValue()));
+            Entry entry = new Entry(filmIds, dependsOn, System.currentTimeMillis() + ttl.toMillis());
+            synchronized (this) {
+                if (loadGeneration == generation && entries.get(userId) == mine) {
+                    register(userId, entry);
+                } else {
+                    entries.remove(userId, mine);
+                }
+            }
+            mine.complete(entry);
+            return filmIds;
+        } catch (RuntimeException e) {
+            entries.remove(userId, mine);
+            mine.complete(null);
+            throw e;
+        }
+    }
+
+    private synchronized void invalidate(long userId, RoaringBitmap films) {
+        generation++;
+        RoaringBitmap affected = RoaringBitmap.bitmapOf(Math.toIntExact(userId));
+        films.forEach((int filmId) -> {
+            RoaringBitmap users = usersByFilm.get(filmId);
+            if (users != null) {
+                affected.or(users);
+            }
+        });
+        affected.forEach((int user) -> {
+            CompletableFuture<Entry> future = entries.remove((long) user);
+            if (future != null) {
+                invalidations.incrementAndGet();
+                Entry entry = future.getNow(null);
+                if (entry != null) {
+                    unregister(user, entry);
+                }
+            }
+        });
+    }
+
+    private void register(long userId, Entry entry) {
+        int user = Math.toIntExact(userId);
+        entry.dependsOn().forEach((int filmId) -> usersByFilm.computeIfAbsent(filmId, k -> new RoaringBitmap()).add(user));
+    }
+
+    private void unregister(long userId, Entry entry) {
+        int user = Math.toIntExact(userId);
+        entry.dependsOn().forEach((int filmId) -> {
+            RoaringBitmap users = usersByFilm.get(filmId);
+            if (users != null) {
+                users.remove(user);
+                if (users.isEmpty()) {
+                    usersByFilm.remove(filmId);
+                }
+            }
+        });
+    }
+}
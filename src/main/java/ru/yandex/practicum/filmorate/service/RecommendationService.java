@@ -1,27 +1,159 @@
 package ru.yandex.practicum.filmorate.service;
 
-import lombok.RequiredArgsConstructor;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.interfaces.FilmRepository;
 import ru.yandex.practicum.filmorate.interfaces.RecommendationRepository;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.RecommendationMode;
+import ru.yandex.practicum.filmorate.model.UserRecommendations;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
-@RequiredArgsConstructor
 public class RecommendationService {
 
     private final RecommendationRepository recommendationRepository;
+    private final RecommendationRepository approximateRepository;
     private final FilmRepository filmRepository;
+    private final RecommendationCache recommendationCache;
+    private final ColdStartRecommender coldStartRecommender;
+    private final RecommendationMode defaultMode;
+    private final int batchChunkSize;
+    private final ExecutorService batchExecutor;
+
+    /**
+     * Точный режим выбирается {@code filmorate.recommendations.engine}: {@code neighbours} —
+     * готовые окрестности {@link UserSimilarityIndex}, {@code query} — расчёт запросами
+     * к базе на каждый вызов, {@code als} — {@code alsRecommender}, который есть только
+     * при этом значении.
+     */
+    public RecommendationService(RecommendationRepository recommendationRepository,
+                                 @Qualifier("alsRecommender") Optional<RecommendationRepository> alsRecommender,
+                                 @Qualifier("jdbcRecommendationRepository") RecommendationRepository queryRepository,
+                                 @Qualifier("minHashRecommendationIndex") RecommendationRepository approximateRepository,
+                                 FilmRepository filmRepository,
+                                 RecommendationCache recommendationCache,
+                                 ColdStartRecommender coldStartRecommender,
+                                 @Value("${filmorate.recommendations.engine:neighbours}") String engine,
+                                 @Value("${filmorate.recommendations.mode:exact}") String defaultMode,
+                                 @Value("${filmorate.recommendations.batch.threads:0}") int batchThreads,
+                                 @Value("${filmorate.recommendations.batch.chunk-size:256}") int batchChunkSize) {
+        this.recommendationRepository = alsRecommender.orElse(
+                "query".equals(engine) ? queryRepository : recommendationRepository);
+        this.approximateRepository = approximateRepository;
+        this.filmRepository = filmRepository;
+        this.recommendationCache = recommendationCache;
+        this.coldStartRecommender = coldStartRecommender;
+        this.defaultMode = parseMode(defaultMode);
+        this.batchChunkSize = batchChunkSize;
+        int threads = batchThreads > 0 ? batchThreads : Runtime.getRuntime().availableProcessors();
+        // очередь не длиннее порции: лишние задачи выполняет сам вызывающий поток
+        this.batchExecutor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(batchChunkSize), new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        batchExecutor.shutdown();
+    }
 
     public Collection<Film> getRecommendations(Long userId) {
-        List<Long> filmIds = recommendationRepository.findRecommendedFilmIdsForUser(userId);
-        List<Film> result = new ArrayList<>();
-        for (Long id : filmIds) {
-            result.add(filmRepository.getFilmById(id));
+        return getRecommendations(userId, defaultMode);
+    }
+
+    /**
+     * Рекомендации в указанном режиме. Кэшируется только режим по умолчанию.
+     */
+    public Collection<Film> getRecommendations(Long userId, RecommendationMode mode) {
+        RecommendationRepository repository = mode == RecommendationMode.APPROXIMATE
+                ? approximateRepository
+                : recommendationRepository;
+        List<Long> filmIds = mode == defaultMode
+                ? recommendationCache.get(userId, id -> findFilmIds(repository, id))
+                : findFilmIds(repository, userId);
+        if (filmIds.isEmpty()) {
+            return List.of();
+        }
+        return filmRepository.findByIds(filmIds);
+    }
+
+    /**
+     * Рекомендации для списка пользователей в режиме по умолчанию, без кэша. Пользователи
+     * обрабатываются порциями по {@code batchChunkSize}: id фильмов для порции считаются
+     * параллельно, затем все фильмы порции загружаются одним {@code findByIds}.
+     * Результаты отдаются в порядке входного списка.
+     */
+    public void getRecommendationsBatch(List<Long> userIds, Consumer<UserRecommendations> consumer) {
+        RecommendationRepository repository = defaultMode == RecommendationMode.APPROXIMATE
+                ? approximateRepository
+                : recommendationRepository;
+        for (int from = 0; from < userIds.size(); from += batchChunkSize) {
+            List<Long> chunk = userIds.subList(from, Math.min(from + batchChunkSize, userIds.size()));
+            List<Future<List<Long>>> futures = chunk.stream()
+                    .map(userId -> batchExecutor.submit(() -> findFilmIds(repository, userId)))
+                    .toList();
+            List<List<Long>> filmIds = new ArrayList<>(chunk.size());
+            for (Future<List<Long>> future : futures) {
+                filmIds.add(await(future));
+            }
+            Map<Long, Film> films = filmRepository.findByIds(filmIds.stream().flatMap(List::stream).distinct().toList())
+                    .stream()
+                    .collect(Collectors.toMap(Film::getId, Function.identity()));
+            for (int i = 0; i < chunk.size(); i++) {
+                List<Film> userFilms = filmIds.get(i).stream()
+                        .map(films::get)
+                        .filter(Objects::nonNull)
+                        .toList();
+                consumer.accept(new UserRecommendations(chunk.get(i), userFilms));
+            }
+        }
+    }
+
+    /**
+     * Если движок не нашёл соседа, подбирает фильмы по жанрам и режиссёрам.
+     */
+    private List<Long> findFilmIds(RecommendationRepository repository, Long userId) {
+        List<Long> filmIds = repository.findRecommendedFilmIdsForUser(userId);
+        return filmIds.isEmpty() ? coldStartRecommender.recommend(userId) : filmIds;
+    }
+
+    private static List<Long> await(Future<List<Long>> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Расчёт рекомендаций прерван", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("Ошибка расчёта рекомендаций", e.getCause());
+        }
+    }
+
+    public static RecommendationMode parseMode(String mode) {
+        try {
+            return RecommendationMode.valueOf(mode.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("Параметр mode может принимать значения 'exact' или 'approximate'");
         }
-        return result;
     }
 }
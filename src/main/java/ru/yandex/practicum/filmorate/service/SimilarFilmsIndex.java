@@ -0,0 +1,300 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Похожие фильмы по совместным лайкам. Для каждого фильма хранится до {@code topK}
+ * фильмов с наибольшим коэффициентом Жаккара между множествами лайкнувших; при равенстве
+ * выше фильм с меньшим id. Список хранится парой примитивных массивов, так что на фильм
+ * уходит около {@code 8 * topK} байт плюс заголовки массивов.
+ *
+ * <p>Лайк меняет множество лайкнувших только у самого фильма, поэтому в чужих списках
+ * меняется лишь его собственная строка. Список самого фильма пересчитывается, а его строка
+ * правится во всех списках, где он есть (их находит обратный индекс {@code listedIn}),
+ * и добавляется в списки, куда он теперь проходит. Если строка опустилась в хвост полного
+ * списка, на её место мог выйти фильм за пределами списка, и такой список пересчитывается
+ * целиком. Всё это делает поток обновлений {@link UserLikesIndex}, а не запрос: чтение
+ * только берёт готовый список. Полная перестройка идёт параллельно по снимку матрицы
+ * при старте и по расписанию.
+ */
+@Slf4j
+@Component
+public class SimilarFilmsIndex implements UserLikesIndex.Listener {
+    private final UserLikesIndex likes;
+    private final int topK;
+    private final ForkJoinPool pool;
+    private volatile Map<Integer, SimilarFilms> similar = new ConcurrentHashMap<>();
+    // только поток обновлений: фильм -> фильмы, в чьих списках он есть
+    private Map<Integer, RoaringBitmap> listedIn = new HashMap<>();
+
+    /**
+     * Похожие фильмы в порядке убывания сходства.
+     */
+    record SimilarFilms(int[] filmIds, float[] scores) {
+        static final SimilarFilms EMPTY = new SimilarFilms(new int[0], new float[0]);
+    }
+
+    private interface ScoreConsumer {
+        void accept(int filmId, float score);
+    }
+
+    public SimilarFilmsIndex(UserLikesIndex likes,
+                             @Value("${filmorate.similar-films.top-k:50}") int topK,
+                             @Value("${filmorate.recommendations.parallelism:0}") int parallelism) {
+        this.likes = likes;
+        this.topK = topK;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        likes.addListener(this);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Пересчитывает похожие фильмы для всего каталога по снимку лайков. Лайки не ждут,
+     * их события применяются после перестройки.
+     */
+    @PostConstruct
+    @Scheduled(cron = "${filmorate.similar-films.rebuild-cron:0 45 3 * * *}")
+    public void reload() {
+        likes.rebuild(this, snapshot -> {
+            Map<Integer, SimilarFilms> computed = new ConcurrentHashMap<>();
+            try {
+                pool.submit(() -> snapshot.films().parallelStream()
+                        .forEach(filmId -> computed.put(filmId, compute(filmId, snapshot, null)))).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Пересчёт похожих фильмов прерван", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Ошибка пересчёта похожих фильмов", e.getCause());
+            }
+            Map<Integer, RoaringBitmap> listed = new HashMap<>();
+            computed.forEach((filmId, films) -> {
+                for (int other : films.filmIds()) {
+                    listed.computeIfAbsent(other, k -> new RoaringBitmap()).add(filmId);
+                }
+            });
+            similar = computed;
+            listedIn = listed;
+            log.info("Похожие фильмы пересчитаны для {} фильмов", computed.size());
+        });
+    }
+
+    /**
+     * Возвращает до {@code count} id похожих фильмов, самые похожие первыми.
+     */
+    public List<Long> similar(long filmId, int count) {
+        if (!UserLikesIndex.indexed(filmId)) {
+            return List.of();
+        }
+        SimilarFilms films = similar.get(toInt(filmId));
+        if (films == null) {
+            return List.of();
+        }
+        int size = Math.min(count, films.filmIds().length);
+        List<Long> filmIds = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            filmIds.add((long) films.filmIds()[i]);
+        }
+        return filmIds;
+    }
+
+    @Override
+    public void likeAdded(int film, int user) {
+        likersChanged(film);
+    }
+
+    @Override
+    public void likeRemoved(int film, int user) {
+        likersChanged(film);
+    }
+
+    @Override
+    public void userRemoved(int user, RoaringBitmap films) {
+        films.forEach((int film) -> likersChanged(film));
+    }
+
+    @Override
+    public void filmRemoved(int film, RoaringBitmap users) {
+        replace(film, null);
+        RoaringBitmap listing = listedIn.remove(film);
+        if (listing != null) {
+            listing.forEach((int other) -> patch(other, film, 0, true));
+        }
+    }
+
+    /**
+     * Множество лайкнувших {@code film} изменилось: пересчитывает его список и ставит его
+     * строку на место в списках, где она есть или куда теперь проходит.
+     */
+    private void likersChanged(int film) {
+        Map<Integer, Float> scores = new HashMap<>();
+        replace(film, compute(film, likes, scores::put));
+        RoaringBitmap affected = new RoaringBitmap();
+        RoaringBitmap listing = listedIn.get(film);
+        if (listing != null) {
+            affected.or(listing);
+        }
+        scores.keySet().forEach(affected::add);
+        affected.forEach((int other) -> {
+            RoaringBitmap current = listedIn.get(film);
+            patch(other, film, scores.getOrDefault(other, 0f), current != null && current.contains(other));
+        });
+    }
+
+    /**
+     * Ставит строку {@code film} с коэффициентом {@code score} на место в списке {@code other}.
+     * {@code listed} — есть ли строка в списке сейчас.
+     */
+    private void patch(int other, int film, float score, boolean listed) {
+        SimilarFilms current = similar.get(other);
+        if (current == null) {
+            if (score > 0) {
+                replace(other, compute(other, likes, null));
+            }
+            return;
+        }
+        int[] filmIds = current.filmIds();
+        float[] scores = current.scores();
+        int size = filmIds.length;
+        if (!listed && (score == 0 || size == topK && !ranksBefore(score, film, scores[size - 1], filmIds[size - 1]))) {
+            return;
+        }
+        int removed = -1;
+        int position = 0;
+        for (int i = 0; i < size; i++) {
+            if (filmIds[i] == film) {
+                removed = i;
+            } else if (ranksBefore(scores[i], filmIds[i], score, film)) {
+                position++;
+            }
+        }
+        int kept = removed < 0 ? size : size - 1;
+        boolean insert = score > 0 && (size < topK || position < kept
+                || removed >= 0 && score >= scores[removed]);
+        if (removed >= 0 && size == topK && !insert) {
+            replace(other, compute(other, likes, null));
+            return;
+        }
+        if (removed < 0 && !insert) {
+            return;
+        }
+        int length = Math.min(kept + (insert ? 1 : 0), topK);
+        int[] patchedIds = new int[length];
+        float[] patchedScores = new float[length];
+        int target = 0;
+        for (int i = 0; i < size && target < length; i++) {
+            if (insert && target == position) {
+                patchedIds[target] = film;
+                patchedScores[target++] = score;
+            }
+            if (i != removed && target < length) {
+                patchedIds[target] = filmIds[i];
+                patchedScores[target++] = scores[i];
+            }
+        }
+        if (insert && target == position && target < length) {
+            patchedIds[target] = film;
+            patchedScores[target] = score;
+        }
+        replace(other, new SimilarFilms(patchedIds, patchedScores));
+    }
+
+    /**
+     * Заменяет список фильма и обновляет обратный индекс; {@code null} удаляет список.
+     */
+    private void replace(int film, SimilarFilms films) {
+        SimilarFilms previous = films == null ? similar.remove(film) : similar.put(film, films);
+        if (previous != null) {
+            for (int other : previous.filmIds()) {
+                RoaringBitmap listing = listedIn.get(other);
+                if (listing != null) {
+                    listing.remove(film);
+                    if (listing.isEmpty()) {
+                        listedIn.remove(other);
+                    }
+                }
+            }
+        }
+        if (films != null) {
+            for (int other : films.filmIds()) {
+                listedIn.computeIfAbsent(other, k -> new RoaringBitmap()).add(film);
+            }
+        }
+    }
+
+    private static boolean ranksBefore(float score, int filmId, float otherScore, int otherFilmId) {
+        return score > otherScore || score == otherScore && filmId < otherFilmId;
+    }
+
+    /**
+     * Список похожих на {@code film}. {@code scores}, если задан, получает коэффициент
+     * каждого фильма с общими зрителями, а не только попавших в список.
+     */
+    private SimilarFilms compute(int film, LikeMatrix matrix, ScoreConsumer scores) {
+        RoaringBitmap likers = matrix.likers(film);
+        if (likers == null || likers.isEmpty()) {
+            return SimilarFilms.EMPTY;
+        }
+        RoaringBitmap candidates = new RoaringBitmap();
+        likers.forEach((int user) -> {
+            RoaringBitmap userLikes = matrix.likes(user);
+            if (userLikes != null) {
+                candidates.or(userLikes);
+            }
+        });
+        candidates.remove(film);
+
+        record Scored(int filmId, float score) {
+        }
+        PriorityQueue<Scored> top = new PriorityQueue<>(topK + 1, (a, b) -> a.score() != b.score()
+                ? Float.compare(a.score(), b.score())
+                : Integer.compare(b.filmId(), a.filmId()));
+        int size = likers.getCardinality();
+        candidates.forEach((int other) -> {
+            RoaringBitmap otherLikers = matrix.likers(other);
+            if (otherLikers == null) {
+                return;
+            }
+            int common = RoaringBitmap.andCardinality(likers, otherLikers);
+            float score = (float) common / (size + otherLikers.getCardinality() - common);
+            if (scores != null) {
+                scores.accept(other, score);
+            }
+            top.add(new Scored(other, score));
+            if (top.size() > topK) {
+                top.poll();
+            }
+        });
+
+        int[] filmIds = new int[top.size()];
+        float[] topScores = new float[top.size()];
+        for (int i = filmIds.length - 1; i >= 0; i--) {
+            Scored scored = top.poll();
+            filmIds[i] = scored.filmId();
+            topScores[i] = scored.score();
+        }
+        return new SimilarFilms(filmIds, topScores);
+    }
+
+    private static int toInt(long id) {
+        return Math.toIntExact(id);
+    }
+}
@@ -0,0 +1,164 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.interfaces.FeedRepository;
+import ru.yandex.practicum.filmorate.interfaces.TimelineRepository;
+import ru.yandex.practicum.filmorate.model.EventType;
+import ru.yandex.practicum.filmorate.model.FeedEvent;
+import ru.yandex.practicum.filmorate.model.Operation;
+import ru.yandex.practicum.filmorate.response.CursorPage;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Лента друзей: события всех, кого пользователь добавил в друзья, новые первыми.
+ * Записанное событие сразу раскладывается по лентам подписчиков автора, а при
+ * добавлении в друзья в ленту копируются последние {@code backfill} событий нового друга.
+ *
+ * <p>События авторов, у которых подписчиков больше {@code fanOutLimit}, не раскладываются:
+ * при чтении они сливаются с материализованной лентой k-way merge. Чтение страницы —
+ * одна страница материализованной ленты плюс по странице на каждого такого автора
+ * в друзьях, от общего числа друзей оно не зависит.
+ */
+@Slf4j
+@Service
+public class TimelineService {
+    private static final Comparator<FeedEvent> NEWEST_FIRST =
+            Comparator.comparingLong(FeedEvent::getEventId).reversed();
+
+    private final TimelineRepository timelineRepository;
+    private final FeedRepository feedRepository;
+    private final int fanOutLimit;
+    private final int backfill;
+    private final Set<Long> celebrities = ConcurrentHashMap.newKeySet();
+
+    public TimelineService(TimelineRepository timelineRepository, FeedRepository feedRepository,
+                           FeedEventWriter feedEventWriter,
+                           @Value("${filmorate.timeline.fan-out-limit:1000}") int fanOutLimit,
+                           @Value("${filmorate.timeline.backfill:100}") int backfill) {
+        this.timelineRepository = timelineRepository;
+        this.feedRepository = feedRepository;
+        this.fanOutLimit = fanOutLimit;
+        this.backfill = backfill;
+        feedEventWriter.addListener(this::eventsWritten);
+    }
+
+    /**
+     * Перечитывает авторов с числом подписчиков больше {@code fanOutLimit}. Нужна
+     * для дружб, изменённых в обход событий ленты, например при обновлении пользователя.
+     */
+    @PostConstruct
+    @Scheduled(cron = "${filmorate.timeline.refresh-cron:0 15 4 * * *}")
+    public void reloadCelebrities() {
+        Set<Long> loaded = timelineRepository.findAuthorsWithFollowersOver(fanOutLimit);
+        for (Long authorId : Set.copyOf(celebrities)) {
+            if (!loaded.contains(authorId)) {
+                becameRegular(authorId);
+            }
+        }
+        celebrities.addAll(loaded);
+        log.info("Авторов без раскладки по лентам: {}", celebrities.size());
+    }
+
+    public CursorPage<FeedEvent> getTimeline(long userId, Long beforeEventId, Integer limit) {
+        int pageSize = PageCursor.checkLimit(limit);
+        long before = beforeEventId != null ? beforeEventId : Long.MAX_VALUE;
+        List<List<FeedEvent>> sources = new ArrayList<>();
+        sources.add(timelineRepository.findTimelinePage(userId, before, pageSize + 1));
+        if (!celebrities.isEmpty()) {
+            for (Long authorId : timelineRepository.findFollowedAmong(userId, List.copyOf(celebrities))) {
+                sources.add(feedRepository.findFeedEventsBefore(authorId, before, pageSize + 1));
+            }
+        }
+        List<FeedEvent> events = merge(sources, pageSize + 1);
+        if (events.size() <= pageSize) {
+            return new CursorPage<>(events, null);
+        }
+        List<FeedEvent> page = events.subList(0, pageSize);
+        return new CursorPage<>(page, String.valueOf(page.get(pageSize - 1).getEventId()));
+    }
+
+    /**
+     * Сливает списки, упорядоченные от новых к старым, в один такой же длиной
+     * до {@code limit}. Событие, попавшее в несколько списков, берётся один раз.
+     */
+    static List<FeedEvent> merge(List<List<FeedEvent>> sources, int limit) {
+        if (sources.size() == 1) {
+            List<FeedEvent> single = sources.getFirst();
+            return single.size() <= limit ? single : single.subList(0, limit);
+        }
+        record Head(FeedEvent event, int source, int index) {
+        }
+        PriorityQueue<Head> heads = new PriorityQueue<>(sources.size(),
+                Comparator.comparing(Head::event, NEWEST_FIRST));
+        for (int source = 0; source < sources.size(); source++) {
+            if (!sources.get(source).isEmpty()) {
+                heads.add(new Head(sources.get(source).getFirst(), source, 0));
+            }
+        }
+        List<FeedEvent> merged = new ArrayList<>(limit);
+        while (!heads.isEmpty() && merged.size() < limit) {
+            Head head = heads.poll();
+            if (merged.isEmpty() || !merged.getLast().getEventId().equals(head.event().getEventId())) {
+                merged.add(head.event());
+            }
+            List<FeedEvent> source = sources.get(head.source());
+            int next = head.index() + 1;
+            if (next < source.size()) {
+                heads.add(new Head(source.get(next), head.source(), next));
+            }
+        }
+        return merged;
+    }
+
+    private void eventsWritten(List<FeedEvent> events) {
+        for (FeedEvent event : events) {
+            if (event.getEventType() == EventType.FRIEND) {
+                friendshipChanged(event.getUserId(), event.getEntityId(), event.getOperation());
+            }
+        }
+        List<FeedEvent> fanOut = events.stream()
+                .filter(event -> !celebrities.contains(event.getUserId()))
+                .toList();
+        if (!fanOut.isEmpty()) {
+            timelineRepository.fanOut(fanOut);
+        }
+    }
+
+    private void friendshipChanged(long followerId, long authorId, Operation operation) {
+        if (timelineRepository.countFollowers(authorId) > fanOutLimit) {
+            celebrities.add(authorId);
+        } else if (celebrities.remove(authorId)) {
+            becameRegular(authorId);
+        }
+        if (operation == Operation.REMOVE) {
+            timelineRepository.removeAuthor(followerId, authorId);
+        } else if (operation == Operation.ADD && !celebrities.contains(authorId)) {
+            List<FeedEvent> recent = feedRepository.findFeedEventsBefore(authorId, Long.MAX_VALUE, backfill);
+            if (!recent.isEmpty()) {
+                timelineRepository.addToTimeline(followerId, recent);
+            }
+        }
+    }
+
+    /**
+     * Подписчиков стало меньше порога: последние события автора раскладываются
+     * всем подписчикам, дальше он раскладывается как обычный автор.
+     */
+    private void becameRegular(long authorId) {
+        celebrities.remove(authorId);
+        List<FeedEvent> recent = feedRepository.findFeedEventsBefore(authorId, Long.MAX_VALUE, backfill);
+        if (!recent.isEmpty()) {
+            timelineRepository.fanOut(recent);
+        }
+    }
+}
@@ -0,0 +1,362 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.interfaces.LikeRepository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Матрица лайков в памяти: для каждого пользователя — сжатое битовое множество id
+ * лайкнутых фильмов, для каждого фильма — множество лайкнувших. Общие фильмы двух
+ * пользователей считаются пересечением двух множеств без обращения к базе.
+ *
+ * <p>Это единственная копия лайков в памяти. Опубликованные множества не меняются:
+ * лайк заменяет два множества изменёнными копиями, поэтому читать их можно без
+ * блокировки, а блокировка записи держится только на время замены. Индексы рекомендаций
+ * и похожих фильмов узнают об изменениях через {@link Listener}: у каждого слушателя свой
+ * поток обновлений, события приходят в порядке изменений, но уже после снятия блокировки.
+ * Производные индексы поэтому отстают от матрицы на длину своей очереди.
+ */
+@Slf4j
+@Component
+public class UserLikesIndex implements LikeMatrix {
+    private final LikeRepository likeRepository;
+    private final Map<Integer, RoaringBitmap> likesByUser = new ConcurrentHashMap<>();
+    private final Map<Integer, RoaringBitmap> likersByFilm = new ConcurrentHashMap<>();
+    private final Map<Listener, ExecutorService> updaters = new LinkedHashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Изменения матрицы. Вызываются на потоке обновлений слушателя, когда матрица уже
+     * изменена; к этому моменту она могла измениться и дальше.
+     */
+    interface Listener {
+        void likeAdded(int film, int user);
+
+        void likeRemoved(int film, int user);
+
+        /**
+         * {@code films} — фильмы, которые лайкнул удалённый пользователь.
+         */
+        void userRemoved(int user, RoaringBitmap films);
+
+        /**
+         * {@code users} — пользователи, которые лайкнули удалённый фильм.
+         */
+        void filmRemoved(int film, RoaringBitmap users);
+    }
+
+    /**
+     * Согласованный снимок матрицы: копия словарей с теми же неизменяемыми множествами.
+     */
+    record Snapshot(Map<Integer, RoaringBitmap> likesByUser, Map<Integer, RoaringBitmap> likersByFilm)
+            implements LikeMatrix {
+        @Override
+        public RoaringBitmap likes(int user) {
+            return likesByUser.get(user);
+        }
+
+        @Override
+        public RoaringBitmap likers(int film) {
+            return likersByFilm.get(film);
+        }
+
+        @Override
+        public Set<Integer> users() {
+            return likesByUser.keySet();
+        }
+
+        @Override
+        public Set<Integer> films() {
+            return likersByFilm.keySet();
+        }
+    }
+
+    public UserLikesIndex(@Qualifier("jdbcLikeRepository") LikeRepository likeRepository) {
+        this.likeRepository = likeRepository;
+    }
+
+    @PostConstruct
+    public void reload() {
+        Map<Integer, RoaringBitmap> users = new HashMap<>();
+        Map<Integer, RoaringBitmap> films = new HashMap<>();
+        likeRepository.forEachLike(like -> {
+            int userId = toInt(like.getIdUser());
+            int filmId = toInt(like.getIdFilm());
+            users.computeIfAbsent(userId, k -> new RoaringBitmap()).add(filmId);
+            films.computeIfAbsent(filmId, k -> new RoaringBitmap()).add(userId);
+        });
+        users.values().forEach(RoaringBitmap::runOptimize);
+        films.values().forEach(RoaringBitmap::runOptimize);
+        lock.writeLock().lock();
+        try {
+            likesByUser.clear();
+            likesByUser.putAll(users);
+            likersByFilm.clear();
+            likersByFilm.putAll(films);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Лайки загружены: {} пользователей, {} фильмов", users.size(), films.size());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        lock.writeLock().lock();
+        try {
+            updaters.values().forEach(ExecutorService::shutdown);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Подписывает индекс на изменения и заводит ему поток обновлений.
+     */
+    void addListener(Listener listener) {
+        lock.writeLock().lock();
+        try {
+            updaters.put(listener, Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "likes-" + listener.getClass().getSimpleName());
+                thread.setDaemon(true);
+                return thread;
+            }));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void addLike(long filmId, long userId) {
+        int film = toInt(filmId);
+        int user = toInt(userId);
+        lock.writeLock().lock();
+        try {
+            RoaringBitmap likes = likesByUser.get(user);
+            if (likes != null && likes.contains(film)) {
+                return;
+            }
+            likesByUser.put(user, with(likes, film));
+            likersByFilm.put(film, with(likersByFilm.get(film), user));
+            publish(listener -> listener.likeAdded(film, user));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeLike(long filmId, long userId) {
+        if (!indexed(filmId) || !indexed(userId)) {
+            return;
+        }
+        int film = toInt(filmId);
+        int user = toInt(userId);
+        lock.writeLock().lock();
+        try {
+            RoaringBitmap likes = likesByUser.get(user);
+            if (likes == null || !likes.contains(film)) {
+                return;
+            }
+            removeFrom(likesByUser, user, film);
+            removeFrom(likersByFilm, film, user);
+            publish(listener -> listener.likeRemoved(film, user));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeUser(long userId) {
+        if (!indexed(userId)) {
+            return;
+        }
+        int user = toInt(userId);
+        lock.writeLock().lock();
+        try {
+            RoaringBitmap likes = likesByUser.remove(user);
+            if (likes != null) {
+                likes.forEach((int film) -> removeFrom(likersByFilm, film, user));
+                publish(listener -> listener.userRemoved(user, likes));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeFilm(long filmId) {
+        if (!indexed(filmId)) {
+            return;
+        }
+        int film = toInt(filmId);
+        lock.writeLock().lock();
+        try {
+            RoaringBitmap likers = likersByFilm.remove(film);
+            if (likers != null) {
+                likers.forEach((int user) -> removeFrom(likesByUser, user, film));
+                publish(listener -> listener.filmRemoved(film, likers));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Копия множества фильмов, которые лайкнул пользователь.
+     */
+    public RoaringBitmap likedFilms(long userId) {
+        RoaringBitmap likes = indexed(userId) ? likesByUser.get(toInt(userId)) : null;
+        return likes == null ? new RoaringBitmap() : likes.clone();
+    }
+
+    /**
+     * Id фильмов, которые лайкнули оба пользователя, по возрастанию.
+     */
+    public List<Long> commonFilmIds(long userId, long friendId) {
+        if (!indexed(userId) || !indexed(friendId)) {
+            return List.of();
+        }
+        RoaringBitmap common;
+        lock.readLock().lock();
+        try {
+            RoaringBitmap userLikes = likesByUser.get(toInt(userId));
+            RoaringBitmap friendLikes = likesByUser.get(toInt(friendId));
+            if (userLikes == null || friendLikes == null) {
+                return List.of();
+            }
+            common = RoaringBitmap.and(userLikes, friendLikes);
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<Long> filmIds = new ArrayList<>(common.getCardinality());
+        common.forEach((int filmId) -> filmIds.add(Integer.toUnsignedLong(filmId)));
+        return filmIds;
+    }
+
+    /**
+     * Ждёт, пока все индексы применят уже сделанные изменения лайков.
+     */
+    public void awaitUpdates() {
+        List<Future<?>> pending = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            updaters.values().forEach(updater -> pending.add(updater.submit(() -> {
+            })));
+        } finally {
+            lock.readLock().unlock();
+        }
+        pending.forEach(UserLikesIndex::await);
+    }
+
+    /**
+     * Выполняет {@code rebuild} на потоке обновлений {@code listener} по снимку матрицы
+     * и ждёт его окончания. Изменения, сделанные после снимка, слушатель получит уже после
+     * перестройки; изменения, попавшие и в снимок, и в очередь, придут повторно, поэтому
+     * обработка событий должна быть идемпотентной.
+     */
+    void rebuild(Listener listener, Consumer<Snapshot> rebuild) {
+        ExecutorService updater;
+        lock.readLock().lock();
+        try {
+            updater = updaters.get(listener);
+        } finally {
+            lock.readLock().unlock();
+        }
+        await(updater.submit(() -> rebuild.accept(snapshot())));
+    }
+
+    /**
+     * Снимок матрицы. Под блокировкой копируются только ссылки на множества.
+     */
+    Snapshot snapshot() {
+        lock.readLock().lock();
+        try {
+            return new Snapshot(new HashMap<>(likesByUser), new HashMap<>(likersByFilm));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public RoaringBitmap likes(int user) {
+        return likesByUser.get(user);
+    }
+
+    @Override
+    public RoaringBitmap likers(int film) {
+        return likersByFilm.get(film);
+    }
+
+    @Override
+    public Set<Integer> users() {
+        return likesByUser.keySet();
+    }
+
+    @Override
+    public Set<Integer> films() {
+        return likersByFilm.keySet();
+    }
+
+    private void publish(Consumer<Listener> event) {
+        updaters.forEach((listener, updater) -> updater.execute(() -> {
+            try {
+                event.accept(listener);
+            } catch (RuntimeException e) {
+                log.error("Ошибка обновления индекса {}", listener.getClass().getSimpleName(), e);
+            }
+        }));
+    }
+
+    private static RoaringBitmap with(RoaringBitmap set, int value) {
+        RoaringBitmap updated = set == null ? new RoaringBitmap() : set.clone();
+        updated.add(value);
+        return updated;
+    }
+
+    private static void removeFrom(Map<Integer, RoaringBitmap> sets, int key, int value) {
+        RoaringBitmap updated = sets.get(key).clone();
+        updated.remove(value);
+        if (updated.isEmpty()) {
+            sets.remove(key);
+        } else {
+            sets.put(key, updated);
+        }
+    }
+
+    private static void await(Future<?> future) {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Ожидание обновления индексов прервано", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Ошибка обновления индексов", e.getCause());
+        }
+    }
+
+    /**
+     * Помещается ли id в индекс. Id в базе — {@code INT}, так что у пользователей и фильмов
+     * с id за пределами {@code int} лайков нет: запросы по ним дают пустой ответ.
+     */
+    static boolean indexed(long id) {
+        return id >= 0 && id <= Integer.MAX_VALUE;
+    }
+
+    private static int toInt(long id) {
+        return Math.toIntExact(id);
+    }
+}
@@ -2,24 +2,45 @@ package ru.yandex.practicum.filmorate.service;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.interfaces.LikeRepository;
 import ru.yandex.practicum.filmorate.interfaces.UserRepository;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.repository.FilmCache;
 import ru.yandex.practicum.filmorate.repository.JdbcFriendRepository;
+import ru.yandex.practicum.filmorate.response.CursorPage;
 
 import java.util.*;
 
 @Slf4j
 @Service
 public class UserService {
+    private static final String USERS_CURSOR_SCOPE = "users";
     private final UserRepository userRepository;
     private final JdbcFriendRepository friendRepository;
+    private final LikeRepository likeRepository;
+    private final PopularityIndex popularityIndex;
+    private final FilmCache filmCache;
+    private final UserLikesIndex userLikesIndex;
+    private final RecommendationCache recommendationCache;
+    private final FeedEventWriter feedEventWriter;
 
     @Autowired
-    public UserService(UserRepository userRepository, JdbcFriendRepository friendRepository) {
+    public UserService(UserRepository userRepository, JdbcFriendRepository friendRepository,
+                       @Qualifier("jdbcLikeRepository") LikeRepository likeRepository,
+                       PopularityIndex popularityIndex, FilmCache filmCache,
+                       UserLikesIndex userLikesIndex, RecommendationCache recommendationCache,
+                       FeedEventWriter feedEventWriter) {
         this.userRepository = userRepository;
         this.friendRepository = friendRepository;
+        this.likeRepository = likeRepository;
+        this.popularityIndex = popularityIndex;
+        this.filmCache = filmCache;
+        this.userLikesIndex = userLikesIndex;
+        this.recommendationCache = recommendationCache;
+        this.feedEventWriter = feedEventWriter;
     }
 
     public void addFriend(Long userId, Long anotherUserId) {
@@ -51,7 +72,13 @@ public class UserService {
     @Transactional
     public void delete(Long userId) {
         log.info("Удаление пользователя с id={}", userId);
+        List<Long> likedFilmIds = likeRepository.findFilmIdsLikedByUser(userId);
+        feedEventWriter.deleteUser(userId);
         userRepository.deleteById(userId);
+        likedFilmIds.forEach(popularityIndex::decrementLikes);
+        filmCache.evictAll(likedFilmIds);
+        userLikesIndex.removeUser(userId);
+        recommendationCache.clear();
         log.info("Пользователь с id={} удалён", userId);
     }
 
@@ -59,6 +86,13 @@ public class UserService {
         return userRepository.findAll();
     }
 
+    public CursorPage<User> findPage(String after, Integer limit) {
+        int pageSize = PageCursor.checkLimit(limit);
+        long afterId = PageCursor.decode(USERS_CURSOR_SCOPE, after);
+        return PageCursor.toPage(USERS_CURSOR_SCOPE, userRepository.findPage(afterId, pageSize + 1),
+                pageSize, User::getId);
+    }
+
     public User getUserById(long id) {
         return userRepository.getUserById(id);
     }
@@ -0,0 +1,294 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.interfaces.RecommendationRepository;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+/**
+ * Рекомендации по заранее посчитанным соседям. Для каждого пользователя хранится
+ * до {@code neighbours} самых похожих пользователей в том же порядке, что и в
+ * {@code JdbcRecommendationRepository}: больше общих лайков, затем больше
+ * «лишних» лайков соседа, затем больший id. Запрос рекомендаций читает только
+ * первого соседа.
+ *
+ * <p>Лайк пересчитывает соседей самого пользователя и обновляет его оценку в
+ * списках тех, с кем у него есть общие фильмы. Полная перестройка идёт
+ * параллельно в {@link ForkJoinPool} по снимку матрицы при старте и по расписанию.
+ * Лайки берутся из общей матрицы {@link UserLikesIndex}, изменения приходят от неё же
+ * на её потоке обновлений; запрос читает готовые списки без блокировок.
+ *
+ * @see ru.yandex.practicum.filmorate.repository.JdbcRecommendationRepository
+ */
+@Slf4j
+@Primary
+@Component
+public class UserSimilarityIndex implements RecommendationRepository, UserLikesIndex.Listener {
+    private static final Comparator<Neighbour> RANK = Comparator
+            .comparingInt(Neighbour::common).reversed()
+            .thenComparing(Comparator.comparingInt(Neighbour::extra).reversed())
+            .thenComparing(Comparator.comparingInt(Neighbour::userId).reversed());
+
+    private final UserLikesIndex likes;
+    private final int maxNeighbours;
+    private final ForkJoinPool pool;
+    private volatile Map<Integer, Neighbourhood> neighbourhoods = new ConcurrentHashMap<>();
+
+    record Neighbour(int userId, int common, int extra) {
+        boolean eligible() {
+            return common > 0 && extra > 0;
+        }
+    }
+
+    /**
+     * Соседи в порядке убывания сходства. {@code complete} означает, что в список
+     * попали все подходящие пользователи; иначе это верный префикс полного списка.
+     */
+    record Neighbourhood(List<Neighbour> entries, boolean complete) {
+        static final Neighbourhood EMPTY = new Neighbourhood(List.of(), true);
+    }
+
+    public UserSimilarityIndex(UserLikesIndex likes,
+                               @Value("${filmorate.recommendations.neighbours:20}") int maxNeighbours,
+                               @Value("${filmorate.recommendations.parallelism:0}") int parallelism) {
+        this.likes = likes;
+        this.maxNeighbours = maxNeighbours;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        likes.addListener(this);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Пересчитывает соседей всех пользователей по снимку лайков. Лайки не ждут,
+     * их события применяются после перестройки.
+     */
+    @PostConstruct
+    @Scheduled(cron = "${filmorate.recommendations.rebuild-cron:0 30 3 * * *}")
+    public void reload() {
+        likes.rebuild(this, snapshot -> {
+            Map<Integer, Neighbourhood> computed;
+            try {
+                computed = pool.submit(() -> snapshot.users().parallelStream()
+                        .collect(Collectors.toConcurrentMap(userId -> userId,
+                                userId -> select(snapshot, countCommon(snapshot, userId))))).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Пересчёт соседей прерван", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Ошибка пересчёта соседей", e.getCause());
+            }
+            neighbourhoods = computed;
+            log.info("Соседи пересчитаны для {} пользователей", computed.size());
+        });
+    }
+
+    @Override
+    public List<Long> findRecommendedFilmIdsForUser(Long userId) {
+        if (!UserLikesIndex.indexed(userId)) {
+            return List.of();
+        }
+        int user = toInt(userId);
+        List<Neighbour> neighbours = neighbourhoods.getOrDefault(user, Neighbourhood.EMPTY).entries();
+        if (neighbours.isEmpty()) {
+            return List.of();
+        }
+        RoaringBitmap neighbourLikes = likes.likes(neighbours.getFirst().userId());
+        if (neighbourLikes == null) {
+            return List.of();
+        }
+        RoaringBitmap userLikes = likes.likes(user);
+        RoaringBitmap candidates = userLikes == null ? neighbourLikes.clone()
+                : RoaringBitmap.andNot(neighbourLikes, userLikes);
+        List<Long> filmIds = new ArrayList<>(candidates.getCardinality());
+        candidates.forEach((int filmId) -> filmIds.add((long) filmId));
+        filmIds.sort(Comparator
+                .comparingInt((Long filmId) -> likersOrEmpty(filmId.intValue()).getCardinality()).reversed()
+                .thenComparing(Long::longValue));
+        return filmIds;
+    }
+
+    @Override
+    public void likeAdded(int film, int user) {
+        refresh(user, likersOrEmpty(film));
+    }
+
+    @Override
+    public void likeRemoved(int film, int user) {
+        refresh(user, likersOrEmpty(film));
+    }
+
+    @Override
+    public void filmRemoved(int film, RoaringBitmap users) {
+        users.forEach((int user) -> refresh(user, users));
+    }
+
+    @Override
+    public void userRemoved(int user, RoaringBitmap films) {
+        neighbourhoods.remove(user);
+        RoaringBitmap touched = new RoaringBitmap();
+        films.forEach((int film) -> touched.or(likersOrEmpty(film)));
+        touched.forEach((int other) -> demote(other, new Neighbour(user, 0, 0)));
+    }
+
+    /**
+     * Пересчитывает соседей {@code user} после изменения его лайков и обновляет его
+     * оценку в списках пользователей, с которыми у него были или стали общие фильмы.
+     * {@code extraTouched} — лайкнувшие изменённый фильм, с которыми общих фильмов
+     * могло не остаться.
+     */
+    private void refresh(int user, RoaringBitmap extraTouched) {
+        Map<Integer, Integer> common = countCommon(likes, user);
+        neighbourhoods.put(user, select(likes, common));
+
+        int likesCount = cardinality(likes, user);
+        RoaringBitmap touched = extraTouched.clone();
+        common.keySet().forEach(touched::add);
+        touched.remove(user);
+        touched.forEach((int other) -> {
+            int shared = common.getOrDefault(other, 0);
+            Neighbour updated = new Neighbour(user, shared, likesCount - shared);
+            Neighbourhood current = neighbourhoods.getOrDefault(other, Neighbourhood.EMPTY);
+            Neighbour previous = current.entries().stream()
+                    .filter(n -> n.userId() == user)
+                    .findFirst()
+                    .orElse(null);
+            if (previous != null && RANK.compare(updated, previous) > 0) {
+                demote(other, updated);
+            } else {
+                promote(other, updated);
+            }
+        });
+    }
+
+    /**
+     * Оценка соседа выросла или не изменилась: всё, что было ниже него, ниже и сейчас.
+     */
+    private void promote(int user, Neighbour neighbour) {
+        Neighbourhood current = neighbourhoods.getOrDefault(user, Neighbourhood.EMPTY);
+        List<Neighbour> entries = without(current.entries(), neighbour.userId());
+        if (!neighbour.eligible()) {
+            neighbourhoods.put(user, new Neighbourhood(entries, current.complete()));
+            return;
+        }
+        boolean known = current.complete()
+                || (!entries.isEmpty() && RANK.compare(neighbour, entries.getLast()) < 0)
+                || entries.size() < current.entries().size();
+        if (!known) {
+            return;
+        }
+        insert(user, entries, neighbour, current.complete());
+    }
+
+    /**
+     * Оценка соседа упала: за пределами списка могут оказаться пользователи лучше него.
+     */
+    private void demote(int user, Neighbour neighbour) {
+        Neighbourhood current = neighbourhoods.get(user);
+        if (current == null) {
+            return;
+        }
+        List<Neighbour> entries = without(current.entries(), neighbour.userId());
+        if (entries.size() == current.entries().size()) {
+            return;
+        }
+        boolean known = current.complete()
+                || (!entries.isEmpty() && RANK.compare(neighbour, entries.getLast()) < 0);
+        if (neighbour.eligible() && known) {
+            insert(user, entries, neighbour, current.complete());
+        } else if (!current.complete() && entries.size() < (maxNeighbours + 1) / 2) {
+            neighbourhoods.put(user, select(likes, countCommon(likes, user)));
+        } else {
+            neighbourhoods.put(user, new Neighbourhood(entries, current.complete()));
+        }
+    }
+
+    private void insert(int user, List<Neighbour> entries, Neighbour neighbour, boolean complete) {
+        List<Neighbour> updated = new ArrayList<>(entries.size() + 1);
+        updated.addAll(entries);
+        int position = 0;
+        while (position < updated.size() && RANK.compare(updated.get(position), neighbour) < 0) {
+            position++;
+        }
+        updated.add(position, neighbour);
+        boolean stillComplete = complete;
+        if (updated.size() > maxNeighbours) {
+            updated.removeLast();
+            stillComplete = false;
+        }
+        neighbourhoods.put(user, new Neighbourhood(List.copyOf(updated), stillComplete));
+    }
+
+    private Neighbourhood select(LikeMatrix matrix, Map<Integer, Integer> common) {
+        List<Neighbour> all = new ArrayList<>();
+        common.forEach((other, shared) -> {
+            Neighbour neighbour = new Neighbour(other, shared, cardinality(matrix, other) - shared);
+            if (neighbour.eligible()) {
+                all.add(neighbour);
+            }
+        });
+        all.sort(RANK);
+        if (all.size() <= maxNeighbours) {
+            return new Neighbourhood(List.copyOf(all), true);
+        }
+        return new Neighbourhood(List.copyOf(all.subList(0, maxNeighbours)), false);
+    }
+
+    /**
+     * Число общих лайков {@code user} с каждым, кто лайкнул хотя бы один его фильм.
+     */
+    private static Map<Integer, Integer> countCommon(LikeMatrix matrix, int user) {
+        Map<Integer, Integer> common = new HashMap<>();
+        RoaringBitmap userLikes = matrix.likes(user);
+        if (userLikes == null) {
+            return common;
+        }
+        userLikes.forEach((int film) -> {
+            RoaringBitmap likers = matrix.likers(film);
+            if (likers != null) {
+                likers.forEach((int other) -> {
+                    if (other != user) {
+                        common.merge(other, 1, Integer::sum);
+                    }
+                });
+            }
+        });
+        return common;
+    }
+
+    private static List<Neighbour> without(List<Neighbour> entries, int userId) {
+        return entries.stream().filter(n -> n.userId() != userId).toList();
+    }
+
+    private static int cardinality(LikeMatrix matrix, int userId) {
+        RoaringBitmap userLikes = matrix.likes(userId);
+        return userLikes == null ? 0 : userLikes.getCardinality();
+    }
+
+    private RoaringBitmap likersOrEmpty(int film) {
+        RoaringBitmap likers = likes.likers(film);
+        return likers == null ? new RoaringBitmap() : likers;
+    }
+
+    private static int toInt(long id) {
+        return Math.toIntExact(id);
+    }
+}
@@ -18,9 +18,12 @@ CREATE TABLE IF NOT EXISTS films (
     description TEXT NOT NULL,
     release_date DATE NOT NULL,
     duration INT NOT NULL,
-    mpa_id INT REFERENCES mpa(mpa_id) ON DELETE RESTRICT
+    mpa_id INT REFERENCES mpa(mpa_id) ON DELETE RESTRICT,
+    likes_count BIGINT NOT NULL DEFAULT 0
 );
 
+CREATE INDEX IF NOT EXISTS idx_films_likes_count ON films(likes_count DESC, film_id);
+
 CREATE TABLE IF NOT EXISTS friendship (
     user_id INT REFERENCES users(user_id) ON DELETE CASCADE,
     friend_id INT REFERENCES users(user_id) ON DELETE CASCADE,
@@ -45,6 +48,8 @@ CREATE TABLE IF NOT EXISTS likes (
     PRIMARY KEY (film_id, user_id)
 );
 
+CREATE INDEX IF NOT EXISTS idx_likes_user_id ON likes(user_id, film_id);
+
 CREATE TABLE IF NOT EXISTS directors (
     director_id INT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
     director_name VARCHAR(255) NOT NULL
@@ -82,9 +87,41 @@ CREATE TABLE IF NOT EXISTS feed_events (
     event_type VARCHAR(10) NOT NULL CHECK (event_type IN ('LIKE', 'REVIEW', 'FRIEND')),
     operation VARCHAR(10) NOT NULL CHECK (operation IN ('ADD', 'REMOVE', 'UPDATE')),
     entity_id BIGINT NOT NULL,
-    timestamp BIGINT NOT NULL
+    timestamp BIGINT NOT NULL,
+    bucket INT NOT NULL
 );
 
-CREATE INDEX IF NOT EXISTS idx_feed_events_user_id ON feed_events(user_id);
+CREATE INDEX IF NOT EXISTS idx_feed_events_user_event ON feed_events(user_id, event_id);
+CREATE INDEX IF NOT EXISTS idx_feed_events_user_bucket ON feed_events(user_id, bucket, event_id);
 CREATE INDEX IF NOT EXISTS idx_feed_events_entity_id ON feed_events(entity_id);
-CREATE INDEX IF NOT EXISTS idx_feed_events_timestamp ON feed_events(timestamp);
\ No newline at end of file
+CREATE INDEX IF NOT EXISTS idx_feed_events_bucket ON feed_events(bucket);
+
+CREATE TABLE IF NOT EXISTS feed_event_archive (
+    user_id BIGINT NOT NULL REFERENCES users(user_id) ON DELETE CASCADE,
+    bucket INT NOT NULL,
+    event_type VARCHAR(10) NOT NULL,
+    entity_id BIGINT NOT NULL,
+    collapsed_pairs INT NOT NULL,
+    PRIMARY KEY (user_id, bucket, event_type, entity_id)
+);
+
+CREATE TABLE IF NOT EXISTS feed_compaction (
+    id INT PRIMARY KEY CHECK (id = 1),
+    compacted_bucket INT NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_friendship_friend_id ON friendship(friend_id, user_id);
+
+CREATE TABLE IF NOT EXISTS timeline_events (
+    follower_id BIGINT NOT NULL REFERENCES users(user_id) ON DELETE CASCADE,
+    event_id BIGINT NOT NULL,
+    author_id BIGINT NOT NULL REFERENCES users(user_id) ON DELETE CASCADE,
+    event_type VARCHAR(10) NOT NULL,
+    operation VARCHAR(10) NOT NULL,
+    entity_id BIGINT NOT NULL,
+    timestamp BIGINT NOT NULL,
+    PRIMARY KEY (follower_id, event_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_timeline_events_author ON timeline_events(follower_id, author_id);
+CREATE INDEX IF NOT EXISTS idx_timeline_events_event_id ON timeline_events(event_id);
\ No newline at end of file
@@ -0,0 +1,150 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import ru.yandex.practicum.filmorate.repository.JdbcDirectorRepository;
+import ru.yandex.practicum.filmorate.repository.JdbcFeedRepository;
+import ru.yandex.practicum.filmorate.repository.JdbcFilmRepository;
+import ru.yandex.practicum.filmorate.repository.JdbcGenreRepository;
+import ru.yandex.practicum.filmorate.repository.JdbcLikeRepository;
+import ru.yandex.practicum.filmorate.repository.JdbcMpaRepository;
+import ru.yandex.practicum.filmorate.service.FeedEventWriter;
+import ru.yandex.practicum.filmorate.service.FeedServiceImpl;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Общая подготовка данных для JMH-бенчмарков: отдельная H2 в памяти со схемой приложения.
+ */
+final class BenchmarkDatabase {
+
+    private BenchmarkDatabase() {
+    }
+
+    static NamedParameterJdbcTemplate create() {
+        ((Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+        return new NamedParameterJdbcTemplate(new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .addScripts("schema.sql", "data.sql")
+                .build());
+    }
+
+    static JdbcFeedRepository feedRepository(NamedParameterJdbcTemplate jdbc) {
+        return new JdbcFeedRepository(jdbc, new DataSourceTransactionManager(jdbc.getJdbcTemplate().getDataSource()),
+                Duration.ofDays(365));
+    }
+
+    static JdbcLikeRepository likeRepository(NamedParameterJdbcTemplate jdbc) {
+        JdbcFeedRepository feedRepository = feedRepository(jdbc);
+        FeedEventWriter feedEventWriter = new FeedEventWriter(feedRepository, "strict", 1, 1,
+                Duration.ofSeconds(1), Duration.ofSeconds(1));
+        return new JdbcLikeRepository(jdbc, new FeedServiceImpl(feedRepository, feedEventWriter));
+    }
+
+    static JdbcFilmRepository filmRepository(NamedParameterJdbcTemplate jdbc) {
+        return new JdbcFilmRepository(jdbc,
+                new JdbcMpaRepository(jdbc),
+                new JdbcGenreRepository(jdbc),
+                likeRepository(jdbc),
+                new JdbcDirectorRepository(jdbc));
+    }
+
+    static void insertUsers(NamedParameterJdbcTemplate jdbc, int users) {
+        List<MapSqlParameterSource> batch = new ArrayList<>(users);
+        for (int i = 1; i <= users; i++) {
+            batch.add(new MapSqlParameterSource()
+                    .addValue("id", i)
+                    .addValue("email", "user" + i + "@mail.ru")
+                    .addValue("login", "user" + i)
+                    .addValue("birthday", LocalDate.of(1990, 1, 1)));
+        }
+        jdbc.batchUpdate("INSERT INTO users (user_id, email, login, name, birthday) " +
+                "VALUES (:id, :email, :login, :login, :birthday)", batch.toArray(new MapSqlParameterSource[0]));
+    }
+
+    static void insertFilms(NamedParameterJdbcTemplate jdbc, int films) {
+        List<MapSqlParameterSource> batch = new ArrayList<>(films);
+        for (int i = 1; i <= films; i++) {
+            batch.add(new MapSqlParameterSource()
+                    .addValue("id", i)
+                    .addValue("name", "Film " + i)
+                    .addValue("releaseDate", LocalDate.of(1950 + i % 70, 1 + i % 12, 1))
+                    .addValue("mpaId", 1 + i % 5));
+        }
+        jdbc.batchUpdate("INSERT INTO films (film_id, films_name, description, release_date, duration, mpa_id) " +
+                "VALUES (:id, :name, 'desc', :releaseDate, 100, :mpaId)", batch.toArray(new MapSqlParameterSource[0]));
+        List<MapSqlParameterSource> genres = new ArrayList<>(films);
+        for (int i = 1; i <= films; i++) {
+            genres.add(new MapSqlParameterSource()
+                    .addValue("filmId", i)
+                    .addValue("genreId", 1 + i % 6));
+        }
+        jdbc.batchUpdate("INSERT INTO film_genre (film_id, genre_id) VALUES (:filmId, :genreId)",
+                genres.toArray(new MapSqlParameterSource[0]));
+    }
+
+    /**
+     * Каждый пользователь лайкает {@code likesPerUser} фильмов; популярность смещена
+     * к фильмам с маленькими id, чтобы рейтинг не был равномерным.
+     */
+    static void insertLikes(NamedParameterJdbcTemplate jdbc, int users, int films, int likesPerUser, long seed) {
+        Random random = new Random(seed);
+        List<MapSqlParameterSource> batch = new ArrayList<>();
+        for (int user = 1; user <= users; user++) {
+            Set<Integer> liked = new HashSet<>();
+            while (liked.size() < Math.min(likesPerUser, films)) {
+                double skewed = Math.pow(random.nextDouble(), 2);
+                liked.add(1 + (int) (skewed * films));
+            }
+            for (Integer film : liked) {
+                batch.add(new MapSqlParameterSource()
+                        .addValue("filmId", film)
+                        .addValue("userId", user));
+            }
+        }
+        jdbc.batchUpdate("INSERT INTO likes (film_id, user_id) VALUES (:filmId, :userId)",
+                batch.toArray(new MapSqlParameterSource[0]));
+        jdbc.update("UPDATE films SET likes_count = " +
+                "(SELECT COUNT(*) FROM likes l WHERE l.film_id = films.film_id)", new MapSqlParameterSource());
+    }
+
+    /**
+     * Пользователи разбиты на {@code clusters} групп по вкусу: четыре пятых лайков
+     * приходятся на фильмы своей группы, остальные — на случайные фильмы.
+     */
+    static void insertClusteredLikes(NamedParameterJdbcTemplate jdbc, int users, int films, int clusters,
+                                     int likesPerUser, long seed) {
+        Random random = new Random(seed);
+        int clusterSize = films / clusters;
+        List<MapSqlParameterSource> batch = new ArrayList<>();
+        for (int user = 1; user <= users; user++) {
+            int cluster = user % clusters;
+            Set<Integer> liked = new HashSet<>();
+            while (liked.size() < Math.min(likesPerUser, films)) {
+                liked.add(random.nextInt(5) < 4
+                        ? 1 + cluster * clusterSize + random.nextInt(clusterSize)
+                        : 1 + random.nextInt(films));
+            }
+            for (Integer film : liked) {
+                batch.add(new MapSqlParameterSource()
+                        .addValue("filmId", film)
+                        .addValue("userId", user));
+            }
+        }
+        jdbc.batchUpdate("INSERT INTO likes (film_id, user_id) VALUES (:filmId, :userId)",
+                batch.toArray(new MapSqlParameterSource[0]));
+    }
+}
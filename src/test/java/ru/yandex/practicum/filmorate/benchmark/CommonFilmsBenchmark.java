@@ -0,0 +1,80 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.repository.JdbcFilmRepository;
+import ru.yandex.practicum.filmorate.service.UserLikesIndex;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнивает GET /films/common через EXISTS-подзапросы и через пересечение
+ * битовых множеств {@link UserLikesIndex}. Отдельно меряется само пересечение,
+ * без загрузки фильмов. Запуск: main-метод этого класса.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommonFilmsBenchmark {
+
+    @Param({"50000"})
+    private int films;
+
+    @Param({"1000", "20000"})
+    private int likesPerUser;
+
+    private JdbcFilmRepository filmRepository;
+    private UserLikesIndex userLikesIndex;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        NamedParameterJdbcTemplate jdbc = BenchmarkDatabase.create();
+        BenchmarkDatabase.insertUsers(jdbc, 2);
+        BenchmarkDatabase.insertFilms(jdbc, films);
+        BenchmarkDatabase.insertLikes(jdbc, 2, films, likesPerUser, 42L);
+        filmRepository = BenchmarkDatabase.filmRepository(jdbc);
+        userLikesIndex = new UserLikesIndex(BenchmarkDatabase.likeRepository(jdbc));
+        userLikesIndex.reload();
+    }
+
+    @Benchmark
+    public Collection<Film> sqlExists() {
+        return filmRepository.findCommonFilms(1L, 2L);
+    }
+
+    @Benchmark
+    public List<Long> bitmapIntersection() {
+        return userLikesIndex.commonFilmIds(1L, 2L);
+    }
+
+    @Benchmark
+    public List<Film> bitmapIntersectionWithHydration() {
+        return filmRepository.findByIds(userLikesIndex.commonFilmIds(1L, 2L));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CommonFilmsBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,132 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.util.FileSystemUtils;
+import ru.yandex.practicum.filmorate.interfaces.FeedRepository;
+import ru.yandex.practicum.filmorate.model.EventType;
+import ru.yandex.practicum.filmorate.model.FeedEvent;
+import ru.yandex.practicum.filmorate.model.Operation;
+import ru.yandex.practicum.filmorate.repository.MappedFeedRepository;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнивает запись событий ленты и чтение страницы ленты одного пользователя
+ * в H2 ({@link JdbcFeedRepository}) и в сегментах, отображённых в память
+ * ({@link MappedFeedRepository}).
+ * Запуск: main-метод этого класса из IDE или с тестовым classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FeedRepositoryBenchmark {
+
+    @Param({"jdbc", "mapped"})
+    private String storage;
+
+    @Param({"1000"})
+    private int users;
+
+    @Param({"100000"})
+    private int events;
+
+    @Param({"100"})
+    private int limit;
+
+    @Param({"500"})
+    private int batchSize;
+
+    private final Random random = new Random(42);
+    private FeedRepository feedRepository;
+    private Path directory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        NamedParameterJdbcTemplate jdbc = BenchmarkDatabase.create();
+        BenchmarkDatabase.insertUsers(jdbc, users);
+        if ("mapped".equals(storage)) {
+            directory = Files.createTempDirectory("feed-benchmark");
+            feedRepository = new MappedFeedRepository(directory, 1 << 20, Duration.ofDays(365), false, "");
+        } else {
+            feedRepository = BenchmarkDatabase.feedRepository(jdbc);
+        }
+        for (int saved = 0; saved < events; saved += batchSize) {
+            feedRepository.saveAll(batch(Math.min(batchSize, events - saved)));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (feedRepository instanceof MappedFeedRepository mapped) {
+            mapped.close();
+            FileSystemUtils.deleteRecursively(directory);
+        }
+    }
+
+    @Benchmark
+    public void appendOne() {
+        feedRepository.saveAll(batch(1));
+    }
+
+    @Benchmark
+    public void appendBatch() {
+        feedRepository.saveAll(batch(batchSize));
+    }
+
+    @Benchmark
+    public List<FeedEvent> readUserPage() {
+        return feedRepository.findFeedEventsPage(1L + random.nextInt(users), 0, null, limit);
+    }
+
+    @Benchmark
+    public List<FeedEvent> readUserLatest() {
+        return feedRepository.findFeedEventsBefore(1L + random.nextInt(users), Long.MAX_VALUE, limit);
+    }
+
+    private List<FeedEvent> batch(int size) {
+        long now = System.currentTimeMillis();
+        List<FeedEvent> batch = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            FeedEvent event = new FeedEvent();
+            event.setUserId(1L + random.nextInt(users));
+            event.setEventType(EventType.LIKE);
+            event.setOperation(Operation.ADD);
+            event.setEntityId((long) random.nextInt(10_000));
+            event.setTimestamp(now);
+            batch.add(event);
+        }
+        return batch;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(FeedRepositoryBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,101 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.repository.JdbcFilmRepository;
+import ru.yandex.practicum.filmorate.service.PopularityIndex;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнивает GET /films/popular через SQL-сортировку и через {@link PopularityIndex},
+ * в том числе с фильтрами по жанру и году.
+ * Запуск: main-метод этого класса из IDE или с тестовым classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PopularFilmsBenchmark {
+
+    @Param({"1000", "20000"})
+    private int films;
+
+    @Param({"10"})
+    private int count;
+
+    @Param({"2"})
+    private long genreId;
+
+    @Param({"1951"})
+    private int year;
+
+    private JdbcFilmRepository filmRepository;
+    private PopularityIndex popularityIndex;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        NamedParameterJdbcTemplate jdbc = BenchmarkDatabase.create();
+        BenchmarkDatabase.insertUsers(jdbc, 500);
+        BenchmarkDatabase.insertFilms(jdbc, films);
+        BenchmarkDatabase.insertLikes(jdbc, 500, films, 50, 42L);
+        filmRepository = BenchmarkDatabase.filmRepository(jdbc);
+        popularityIndex = new PopularityIndex(filmRepository);
+        popularityIndex.reload();
+    }
+
+    @Benchmark
+    public Collection<Film> sqlOrdering() {
+        return filmRepository.findPopularFilms((long) count);
+    }
+
+    @Benchmark
+    public List<Film> popularityIndex() {
+        return filmRepository.findByIds(popularityIndex.top(count));
+    }
+
+    @Benchmark
+    public Collection<Film> sqlOrderingByGenreAndYear() {
+        return filmRepository.findPopular((long) count, genreId, (long) year);
+    }
+
+    @Benchmark
+    public List<Film> popularityIndexByGenreAndYear() {
+        return filmRepository.findByIds(popularityIndex.top(count, genreId, year));
+    }
+
+    @Benchmark
+    public Collection<Film> sqlOrderingByGenre() {
+        return filmRepository.findPopular((long) count, genreId, null);
+    }
+
+    @Benchmark
+    public List<Film> popularityIndexByGenre() {
+        return filmRepository.findByIds(popularityIndex.top(count, genreId, null));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PopularFilmsBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,114 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import ru.yandex.practicum.filmorate.repository.JdbcRecommendationRepository;
+import ru.yandex.practicum.filmorate.service.MinHashRecommendationIndex;
+import ru.yandex.practicum.filmorate.service.UserLikesIndex;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнивает точные рекомендации {@link JdbcRecommendationRepository} с приближёнными
+ * {@link MinHashRecommendationIndex}. Перед замером печатается полнота: доля фильмов
+ * точной выдачи, попавших в приближённую, и доля пользователей с совпавшей выдачей.
+ * Запуск: main-метод этого класса.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecommendationsBenchmark {
+    private static final int RECALL_SAMPLE = 300;
+
+    @Param({"5000", "20000"})
+    private int users;
+
+    @Param({"5000"})
+    private int films;
+
+    @Param({"40"})
+    private int likesPerUser;
+
+    @Param({"32"})
+    private int bands;
+
+    @Param({"2"})
+    private int rows;
+
+    private JdbcRecommendationRepository exact;
+    private MinHashRecommendationIndex approximate;
+    private long nextUser;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        NamedParameterJdbcTemplate jdbc = BenchmarkDatabase.create();
+        BenchmarkDatabase.insertUsers(jdbc, users);
+        BenchmarkDatabase.insertFilms(jdbc, films);
+        BenchmarkDatabase.insertClusteredLikes(jdbc, users, films, 50, likesPerUser, 42L);
+        exact = new JdbcRecommendationRepository(jdbc);
+        UserLikesIndex likes = new UserLikesIndex(BenchmarkDatabase.likeRepository(jdbc));
+        likes.reload();
+        approximate = new MinHashRecommendationIndex(likes, bands, rows);
+        approximate.reload();
+        printRecall();
+    }
+
+    @Benchmark
+    public List<Long> exactJdbc() {
+        return exact.findRecommendedFilmIdsForUser(nextUser());
+    }
+
+    @Benchmark
+    public List<Long> approximateMinHash() {
+        return approximate.findRecommendedFilmIdsForUser(nextUser());
+    }
+
+    private long nextUser() {
+        nextUser = nextUser % users + 1;
+        return nextUser;
+    }
+
+    private void printRecall() {
+        long expectedFilms = 0;
+        long foundFilms = 0;
+        int sameLists = 0;
+        for (long user = 1; user <= RECALL_SAMPLE; user++) {
+            List<Long> expected = exact.findRecommendedFilmIdsForUser(user);
+            List<Long> actual = approximate.findRecommendedFilmIdsForUser(user);
+            Set<Long> found = new HashSet<>(actual);
+            expectedFilms += expected.size();
+            foundFilms += expected.stream().filter(found::contains).count();
+            if (expected.equals(actual)) {
+                sameLists++;
+            }
+        }
+        System.out.printf("%nusers=%d, bands=%d, rows=%d: полнота по фильмам %.3f, совпавших выдач %d из %d%n",
+                users, bands, rows, expectedFilms == 0 ? 1.0 : (double) foundFilms / expectedFilms, sameLists, RECALL_SAMPLE);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(RecommendationsBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,139 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = "filmorate.feed.stream.heartbeat=PT0.1S")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class FeedStreamControllerTest {
+    private static final Pattern EVENT_ID = Pattern.compile("^id:(\\d+)$", Pattern.MULTILINE);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    @Test
+    void stream_PushesEventsWrittenAfterSubscription() throws Exception {
+        long userId = createUser("stream1");
+        long friendId = createUser("stream2");
+        MvcResult stream = mockMvc.perform(get("/users/{id}/feed/stream", userId))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(put("/users/{id}/friends/{friendId}", userId, friendId))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(delete("/users/{id}/friends/{friendId}", userId, friendId))
+                .andExpect(status().isNoContent());
+
+        assertEquals(feedEventIds(userId), awaitEventIds(stream.getResponse(), 2));
+    }
+
+    @Test
+    void stream_ResumesAfterLastEventId() throws Exception {
+        long userId = createUser("resume1");
+        long friendId = createUser("resume2");
+        mockMvc.perform(put("/users/{id}/friends/{friendId}", userId, friendId))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(delete("/users/{id}/friends/{friendId}", userId, friendId))
+                .andExpect(status().isNoContent());
+        List<Long> history = feedEventIds(userId);
+
+        MvcResult stream = mockMvc.perform(get("/users/{id}/feed/stream", userId)
+                        .header("Last-Event-ID", history.getFirst()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        assertEquals(history.subList(1, 2), awaitEventIds(stream.getResponse(), 1));
+
+        mockMvc.perform(put("/users/{id}/friends/{friendId}", userId, friendId))
+                .andExpect(status().isNoContent());
+        assertEquals(feedEventIds(userId).subList(1, 3), awaitEventIds(stream.getResponse(), 2));
+    }
+
+    @Test
+    void stream_SendsHeartbeatWhileIdle() throws Exception {
+        long userId = createUser("idle1");
+        MvcResult stream = mockMvc.perform(get("/users/{id}/feed/stream", userId))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!stream.getResponse().getContentAsString().contains(":heartbeat")
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(stream.getResponse().getContentAsString().contains(":heartbeat"));
+        assertEquals(List.of(), eventIds(stream.getResponse().getContentAsString()));
+    }
+
+    @Test
+    void stream_UnknownUser_Returns404() throws Exception {
+        mockMvc.perform(get("/users/{id}/feed/stream", 999_999))
+                .andExpect(status().isNotFound());
+    }
+
+    private List<Long> awaitEventIds(MockHttpServletResponse response, int count) throws Exception {
+        long deadline = System.currentTimeMillis() + 5_000;
+        List<Long> ids = eventIds(response.getContentAsString());
+        while (ids.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            ids = eventIds(response.getContentAsString());
+        }
+        return ids;
+    }
+
+    private static List<Long> eventIds(String body) {
+        List<Long> ids = new ArrayList<>();
+        Matcher matcher = EVENT_ID.matcher(body);
+        while (matcher.find()) {
+            ids.add(Long.parseLong(matcher.group(1)));
+        }
+        return ids;
+    }
+
+    private List<Long> feedEventIds(long userId) throws Exception {
+        MvcResult res = mockMvc.perform(get("/users/{id}/feed", userId).param("all", "true"))
+                .andExpect(status().isOk())
+                .andReturn();
+        List<Long> ids = new ArrayList<>();
+        objectMapper.readTree(res.getResponse().getContentAsString())
+                .forEach(event -> ids.add(event.get("eventId").asLong()));
+        return ids;
+    }
+
+    private long createUser(String login) throws Exception {
+        User u = new User(login + "@mail.ru", login, LocalDate.of(1990, 1, 1));
+        u.setName(login);
+        MvcResult res = mockMvc.perform(post("/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(u)))
+                .andReturn();
+        JsonNode json = objectMapper.readTree(res.getResponse().getContentAsString());
+        return json.get("id").asLong();
+    }
+}
@@ -15,17 +15,25 @@ import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.response.CursorPage;
+import ru.yandex.practicum.filmorate.service.UserLikesIndex;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ActiveProfiles;
 import java.time.Duration;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.hasSize;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 
 @SpringBootTest
 @AutoConfigureMockMvc
@@ -36,6 +44,8 @@ public class FilmControllerTest {
 
     @Autowired
     private MockMvc mockMvc;
+    @Autowired
+    private UserLikesIndex userLikesIndex;
     private final ObjectMapper objectMapper = new ObjectMapper()
             .registerModule(new JavaTimeModule());
 
@@ -508,4 +518,158 @@ public class FilmControllerTest {
                 .andExpect(jsonPath("$[0].name").value("B"))
                 .andExpect(jsonPath("$[1].name").value("A"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void findAllWithLimitWalksPagesByCursor() throws Exception {
+        List<Long> created = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            MvcResult result = mockMvc.perform(post("/films")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(validFilm)))
+                    .andExpect(status().isCreated())
+                    .andReturn();
+            created.add(objectMapper.readTree(result.getResponse().getContentAsString()).get("id").asLong());
+        }
+
+        List<Long> seen = new ArrayList<>();
+        String cursor = null;
+        do {
+            MvcResult page = mockMvc.perform(get("/films")
+                            .param("limit", "2")
+                            .param("after", cursor == null ? "" : cursor))
+                    .andExpect(status().isOk())
+                    .andReturn();
+            JsonNode films = objectMapper.readTree(page.getResponse().getContentAsString());
+            assertThat(films.size()).isLessThanOrEqualTo(2);
+            films.forEach(film -> seen.add(film.get("id").asLong()));
+            cursor = page.getResponse().getHeader(CursorPage.NEXT_CURSOR_HEADER);
+        } while (cursor != null);
+
+        assertThat(seen).isSorted().containsAll(created);
+    }
+
+    @Test
+    void findAllWithInvalidCursorReturnsBadRequest() throws Exception {
+        mockMvc.perform(get("/films").param("after", "not-a-cursor"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/films").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void findAllByIdsKeepsRequestedOrder() throws Exception {
+        List<Long> created = new ArrayList<>();
+        for (Film film : List.of(validFilm, validFilm2)) {
+            MvcResult result = mockMvc.perform(post("/films")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(film)))
+                    .andExpect(status().isCreated())
+                    .andReturn();
+            created.add(objectMapper.readTree(result.getResponse().getContentAsString()).get("id").asLong());
+        }
+
+        mockMvc.perform(get("/films")
+                        .param("ids", created.get(1) + "," + created.get(0) + ",9999," + created.get(1)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].id").value(created.get(1)))
+                .andExpect(jsonPath("$[0].name").value("Valid Film2"))
+                .andExpect(jsonPath("$[1].id").value(created.get(0)))
+                .andExpect(jsonPath("$[1].genres[0].id").value(1));
+    }
+
+    @Test
+    void findAllByIdsRejectsPagingParamsAndTooManyIds() throws Exception {
+        mockMvc.perform(get("/films").param("ids", "1").param("limit", "2"))
+                .andExpect(status().isBadRequest());
+        String tooMany = String.join(",", Collections.nCopies(1001, "1"));
+        mockMvc.perform(get("/films").param("ids", tooMany))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getCommonAndSimilarFilms_IdBeyondIntRange_ReturnsEmpty() throws Exception {
+        mockMvc.perform(get("/films/common").param("userId", "3000000000").param("friendId", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(0)));
+        mockMvc.perform(get("/films/{id}/similar", 3_000_000_000L))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void getSimilarFilmsRanksByCoLikes() throws Exception {
+        List<Long> films = new ArrayList<>();
+        for (Film film : List.of(validFilm, validFilm2, validFilm)) {
+            MvcResult result = mockMvc.perform(post("/films")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(film)))
+                    .andExpect(status().isCreated())
+                    .andReturn();
+            films.add(objectMapper.readTree(result.getResponse().getContentAsString()).get("id").asLong());
+        }
+        List<Long> users = new ArrayList<>();
+        for (User u : List.of(user, user2)) {
+            MvcResult result = mockMvc.perform(post("/users")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(u)))
+                    .andExpect(status().isCreated())
+                    .andReturn();
+            users.add(objectMapper.readTree(result.getResponse().getContentAsString()).get("id").asLong());
+        }
+        mockMvc.perform(put("/films/{id}/like/{userId}", films.get(0), users.get(0)));
+        mockMvc.perform(put("/films/{id}/like/{userId}", films.get(1), users.get(0)));
+        mockMvc.perform(put("/films/{id}/like/{userId}", films.get(0), users.get(1)));
+        mockMvc.perform(put("/films/{id}/like/{userId}", films.get(2), users.get(1)));
+        userLikesIndex.awaitUpdates();
+
+        mockMvc.perform(get("/films/{id}/similar", films.get(0)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].id").value(films.get(1)))
+                .andExpect(jsonPath("$[1].id").value(films.get(2)));
+        mockMvc.perform(get("/films/{id}/similar", films.get(1)).param("count", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(films.get(0)));
+        mockMvc.perform(get("/films/{id}/similar", 9999))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/films/{id}/similar", films.get(0)).param("count", "-1"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void exportFilmsStreamsOneJsonObjectPerLine() throws Exception {
+        List<Long> created = new ArrayList<>();
+        for (Film film : List.of(validFilm, validFilm2)) {
+            MvcResult result = mockMvc.perform(post("/films")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(film)))
+                    .andExpect(status().isCreated())
+                    .andReturn();
+            created.add(objectMapper.readTree(result.getResponse().getContentAsString()).get("id").asLong());
+        }
+
+        try {
+            MvcResult started = mockMvc.perform(get("/films/export"))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+            String body = mockMvc.perform(asyncDispatch(started))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentType("application/x-ndjson"))
+                    .andReturn()
+                    .getResponse()
+                    .getContentAsString();
+
+            List<Long> exported = new ArrayList<>();
+            for (String line : body.split("\n")) {
+                exported.add(objectMapper.readTree(line).get("id").asLong());
+            }
+            assertThat(exported).isSorted().containsAll(created);
+        } finally {
+            for (Long id : created) {
+                mockMvc.perform(delete("/films/{id}", id));
+            }
+        }
+    }
+}
@@ -11,20 +11,24 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.UserLikesIndex;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.annotation.DirtiesContext;
 
 import java.time.Duration;
 import java.time.LocalDate;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
 
 import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -37,6 +41,8 @@ public class RecommendationControllerTest {
 
     @Autowired
     private MockMvc mockMvc;
+    @Autowired
+    private UserLikesIndex userLikesIndex;
 
     private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
 
@@ -60,7 +66,15 @@ public class RecommendationControllerTest {
     }
 
     @Test
-    void recommendations_ReturnsEmpty_WhenNoOverlapUsers() throws Exception {
+    void recommendations_IdBeyondIntRange_TreatedAsUserWithoutLikes() throws Exception {
+        mockMvc.perform(get("/users/{id}/recommendations", 3_000_000_000L))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/users/{id}/recommendations", 3_000_000_000L).param("mode", "approximate"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void recommendations_FallsBackToGenreAffinity_WhenNoOverlapUsers() throws Exception {
         long u1 = createUser(new User("u1@mail.com", "u1login", LocalDate.of(1990,1,1)));
         long u2 = createUser(new User("u2@mail.com", "u2login", LocalDate.of(1991,1,1)));
 
@@ -72,7 +86,8 @@ public class RecommendationControllerTest {
 
         mockMvc.perform(get("/users/{id}/recommendations", u1))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$", hasSize(0)));
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id").value(f2));
     }
 
     @Test
@@ -104,6 +119,43 @@ public class RecommendationControllerTest {
                 .andExpect(jsonPath("$[1].id").value(f3));
     }
 
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void recommendationsBatch_StreamsOneLinePerUserInRequestOrder() throws Exception {
+        long u1 = createUser(new User("u1@mail.com", "u1login", LocalDate.of(1990,1,1)));
+        long u2 = createUser(new User("u2@mail.com", "u2login", LocalDate.of(1991,1,1)));
+        long f1 = createFilm(makeFilm("F1", LocalDate.of(2000,1,1)));
+        long f2 = createFilm(makeFilm("F2", LocalDate.of(2001,1,1)));
+        long f3 = createFilm(makeFilm("F3", LocalDate.of(2002,1,1)));
+        likeFilm(f1, u1);
+        likeFilm(f1, u2);
+        likeFilm(f2, u2);
+        likeFilm(f3, u1);
+
+        MvcResult started = mockMvc.perform(post("/users/recommendations:batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(u2, u1, 999L))))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertEquals(3, lines.length);
+        JsonNode first = objectMapper.readTree(lines[0]);
+        assertEquals(u2, first.get("userId").asLong());
+        assertEquals(f3, first.get("films").get(0).get("id").asLong());
+        JsonNode second = objectMapper.readTree(lines[1]);
+        assertEquals(u1, second.get("userId").asLong());
+        assertEquals(f2, second.get("films").get(0).get("id").asLong());
+        // у неизвестного пользователя нет лайков: самые популярные фильмы
+        assertEquals(f1, objectMapper.readTree(lines[2]).get("films").get(0).get("id").asLong());
+    }
+
     private Film makeFilm(String name, LocalDate release) {
         Film f = new Film();
         f.setName(name);
@@ -137,5 +189,6 @@ public class RecommendationControllerTest {
     private void likeFilm(long filmId, long userId) throws Exception {
         mockMvc.perform(put("/films/{id}/like/{userId}", filmId, userId))
                 .andExpect(status().isNoContent());
+        userLikesIndex.awaitUpdates();
     }
 }
@@ -0,0 +1,173 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.response.CursorPage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Порог раскладки — один подписчик: автор с двумя подписчиками читается слиянием.
+ */
+@SpringBootTest(properties = "filmorate.timeline.fan-out-limit=1")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class TimelineControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    @Test
+    void timeline_MergesFannedOutAndCelebrityEventsNewestFirst() throws Exception {
+        long reader = createUser("reader");
+        long regular = createUser("regular");
+        long celebrity = createUser("celebrity");
+        long other = createUser("other");
+        long target = createUser("target");
+
+        addFriend(regular, target);
+        addFriend(reader, regular);
+        addFriend(reader, celebrity);
+        addFriend(other, celebrity);
+        addFriend(celebrity, target);
+        addFriend(regular, other);
+        addFriend(reader, other);
+
+        List<Long> expected = newestFirst(regular, celebrity, other);
+        assertEquals(4, expected.size());
+        assertEquals(expected, timelineIds(reader, null, null));
+
+        List<Long> paged = new ArrayList<>();
+        String cursor = null;
+        do {
+            MvcResult page = mockMvc.perform(timelineRequest(reader, 1, cursor))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.length()").value(1))
+                    .andReturn();
+            paged.addAll(ids(page));
+            cursor = page.getResponse().getHeader(CursorPage.NEXT_CURSOR_HEADER);
+        } while (cursor != null);
+        assertEquals(expected, paged);
+    }
+
+    @Test
+    void timeline_DropsAuthorAfterUnfriend() throws Exception {
+        long reader = createUser("reader2");
+        long regular = createUser("regular2");
+        long celebrity = createUser("celebrity2");
+        long other = createUser("other2");
+
+        addFriend(reader, regular);
+        addFriend(reader, celebrity);
+        addFriend(other, celebrity);
+        addFriend(regular, other);
+        addFriend(celebrity, other);
+        mockMvc.perform(delete("/users/{id}/friends/{friendId}", reader, regular))
+                .andExpect(status().isNoContent());
+
+        assertEquals(newestFirst(celebrity), timelineIds(reader, null, null));
+        assertEquals(newestFirst(celebrity), timelineIds(other, null, null));
+    }
+
+    @Test
+    void timeline_DropsDeletedAuthor() throws Exception {
+        long reader = createUser("reader4");
+        long regular = createUser("regular4");
+        long other = createUser("other4");
+
+        addFriend(reader, regular);
+        addFriend(regular, other);
+        assertEquals(newestFirst(regular), timelineIds(reader, null, null));
+
+        mockMvc.perform(delete("/users/{userId}", regular))
+                .andExpect(status().isNoContent());
+
+        assertEquals(List.of(), timelineIds(reader, null, null));
+    }
+
+    @Test
+    void timeline_InvalidLimit_Returns400() throws Exception {
+        long reader = createUser("reader3");
+
+        mockMvc.perform(get("/users/{id}/timeline", reader).param("limit", "0"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/users/{id}/timeline", 999_999))
+                .andExpect(status().isNotFound());
+    }
+
+    private List<Long> timelineIds(long userId, Integer limit, String before) throws Exception {
+        MvcResult res = mockMvc.perform(timelineRequest(userId, limit, before))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertNull(res.getResponse().getHeader(CursorPage.NEXT_CURSOR_HEADER));
+        return ids(res);
+    }
+
+    private MockHttpServletRequestBuilder timelineRequest(long userId, Integer limit, String before) {
+        MockHttpServletRequestBuilder request = get("/users/{id}/timeline", userId);
+        if (limit != null) {
+            request.param("limit", String.valueOf(limit));
+        }
+        if (before != null) {
+            request.param("beforeEventId", before);
+        }
+        return request;
+    }
+
+    private List<Long> newestFirst(long... authorIds) throws Exception {
+        List<Long> ids = new ArrayList<>();
+        for (long authorId : authorIds) {
+            ids.addAll(ids(mockMvc.perform(get("/users/{id}/feed", authorId).param("all", "true"))
+                    .andExpect(status().isOk())
+                    .andReturn()));
+        }
+        ids.sort(Comparator.reverseOrder());
+        return ids;
+    }
+
+    private List<Long> ids(MvcResult res) throws Exception {
+        List<Long> ids = new ArrayList<>();
+        objectMapper.readTree(res.getResponse().getContentAsString())
+                .forEach(event -> ids.add(event.get("eventId").asLong()));
+        return ids;
+    }
+
+    private void addFriend(long userId, long friendId) throws Exception {
+        mockMvc.perform(put("/users/{id}/friends/{friendId}", userId, friendId))
+                .andExpect(status().isNoContent());
+    }
+
+    private long createUser(String login) throws Exception {
+        User u = new User(login + "@mail.ru", login, LocalDate.of(1990, 1, 1));
+        u.setName(login);
+        MvcResult res = mockMvc.perform(post("/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(u)))
+                .andReturn();
+        JsonNode json = objectMapper.readTree(res.getResponse().getContentAsString());
+        return json.get("id").asLong();
+    }
+}
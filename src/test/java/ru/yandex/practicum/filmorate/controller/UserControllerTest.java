@@ -8,13 +8,19 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.response.CursorPage;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -166,6 +172,28 @@ class UserControllerTest {
                 .andExpect(jsonPath("$.length()").isNotEmpty());
     }
 
+    @Test
+    void getAllUsers_WithLimit_ReturnsPageAndCursor() throws Exception {
+        long user1Id = createUserViaApi(validUser);
+        long user2Id = createUserViaApi(validUser2);
+
+        List<Long> seen = new ArrayList<>();
+        String cursor = null;
+        do {
+            MvcResult page = mockMvc.perform(get("/users")
+                            .param("limit", "1")
+                            .param("after", cursor == null ? "" : cursor))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.length()").value(lessThanOrEqualTo(1)))
+                    .andReturn();
+            objectMapper.readTree(page.getResponse().getContentAsString())
+                    .forEach(user -> seen.add(user.get("id").asLong()));
+            cursor = page.getResponse().getHeader(CursorPage.NEXT_CURSOR_HEADER);
+        } while (cursor != null);
+
+        assertThat(seen).isSorted().contains(user1Id, user2Id);
+    }
+
     private long createUserViaApi(User user) throws Exception {
         String response = mockMvc.perform(post("/users")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -294,4 +322,50 @@ class UserControllerTest {
                 .andExpect(jsonPath("$.length()").value(1))
                 .andExpect(jsonPath("$[0].id").value(commonId));
     }
-}
\ No newline at end of file
+
+    @Test
+    void getFeed_WithLimit_ReturnsPageAndNextEventId() throws Exception {
+        long userId = createUserViaApi(validUser);
+        long friend1Id = createUserViaApi(validUser2);
+        long friend2Id = createUserViaApi(userWithEmptyName);
+        mockMvc.perform(put("/users/{id}/friends/{friendId}", userId, friend1Id))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(put("/users/{id}/friends/{friendId}", userId, friend2Id))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(delete("/users/{id}/friends/{friendId}", userId, friend1Id))
+                .andExpect(status().isNoContent());
+
+        MvcResult first = mockMvc.perform(get("/users/{id}/feed", userId).param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].entityId").value(friend1Id))
+                .andExpect(jsonPath("$[1].entityId").value(friend2Id))
+                .andReturn();
+        String next = first.getResponse().getHeader(CursorPage.NEXT_CURSOR_HEADER);
+        assertThat(next).isNotNull();
+
+        mockMvc.perform(get("/users/{id}/feed", userId).param("limit", "2").param("afterEventId", next))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(CursorPage.NEXT_CURSOR_HEADER))
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].operation").value("REMOVE"));
+
+        mockMvc.perform(get("/users/{id}/feed", userId).param("all", "true"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(CursorPage.NEXT_CURSOR_HEADER))
+                .andExpect(jsonPath("$.length()").value(3));
+
+        mockMvc.perform(get("/users/{id}/feed", userId)
+                        .param("sinceTimestamp", String.valueOf(System.currentTimeMillis() + 60_000)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(0));
+    }
+
+    @Test
+    void getFeed_InvalidLimit_Returns400() throws Exception {
+        long userId = createUserViaApi(validUser);
+
+        mockMvc.perform(get("/users/{id}/feed", userId).param("limit", "0"))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -0,0 +1,112 @@
+package ru.yandex.practicum.filmorate.repository;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.time.LocalDate;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FilmCacheTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private final Function<Long, Film> loader = id -> {
+        loads.incrementAndGet();
+        Film film = new Film();
+        film.setId(id);
+        film.setName("Film " + id);
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDirectors(Set.of(new Director(id * 10, "Director " + id)));
+        return film;
+    };
+
+    @Test
+    void shouldCountHitsAndMisses() {
+        FilmCache cache = new FilmCache(10);
+
+        cache.get(1L, loader);
+        cache.get(1L, loader);
+        cache.get(2L, loader);
+
+        assertThat(loads.get()).isEqualTo(2);
+        assertThat(cache.getHitCount()).isEqualTo(1);
+        assertThat(cache.getMissCount()).isEqualTo(2);
+        assertThat(cache.getSize()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedWhenFull() {
+        FilmCache cache = new FilmCache(2);
+
+        cache.get(1L, loader);
+        cache.get(2L, loader);
+        cache.get(1L, loader);
+        cache.get(3L, loader);
+
+        assertThat(cache.getEvictionCount()).isEqualTo(1);
+        assertThat(cache.getSize()).isEqualTo(2);
+        cache.get(1L, loader);
+        assertThat(loads.get()).isEqualTo(3);
+        cache.get(2L, loader);
+        assertThat(loads.get()).isEqualTo(4);
+    }
+
+    @Test
+    void shouldReturnCopiesSoCallersCannotChangeCachedFilm() {
+        FilmCache cache = new FilmCache(10);
+
+        cache.get(1L, loader).setName("changed");
+        cache.get(1L, loader).getDirectors().iterator().next().setDirectorName("changed");
+
+        Film cached = cache.get(1L, loader);
+        assertThat(cached.getName()).isEqualTo("Film 1");
+        assertThat(cached.getDirectors()).extracting(Director::getDirectorName).containsExactly("Director 1");
+    }
+
+    @Test
+    void shouldInvalidateByIdAndByDirector() {
+        FilmCache cache = new FilmCache(10);
+        cache.get(1L, loader);
+        cache.get(2L, loader);
+
+        cache.evict(1L);
+        cache.evictByDirector(20L);
+
+        assertThat(cache.getSize()).isZero();
+        assertThat(cache.getInvalidationCount()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldNotCacheValueLoadedConcurrentlyWithInvalidation() {
+        FilmCache cache = new FilmCache(10);
+
+        cache.get(1L, id -> {
+            cache.evict(id);
+            return loader.apply(id);
+        });
+
+        assertThat(cache.getSize()).isZero();
+    }
+
+    @Test
+    void shouldKeepValueLoadedConcurrentlyWithEvictionOfAnotherFilm() {
+        FilmCache cache = new FilmCache(10);
+        cache.get(2L, loader);
+
+        cache.get(1L, id -> {
+            cache.evict(2L);
+            cache.evict(3L);
+            return loader.apply(id);
+        });
+
+        assertThat(cache.getSize()).isEqualTo(1);
+        assertThat(cache.getInvalidationCount()).isEqualTo(1);
+        cache.get(1L, loader);
+        assertThat(cache.getHitCount()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,175 @@
+package ru.yandex.practicum.filmorate.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.model.EventType;
+import ru.yandex.practicum.filmorate.model.FeedEvent;
+import ru.yandex.practicum.filmorate.model.Operation;
+import ru.yandex.practicum.filmorate.service.FeedRetentionJob;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@JdbcTest(properties = {
+        "filmorate.feed.retention=P365D",
+        "filmorate.feed.compact-after=P30D"
+})
+@Import({JdbcFeedRepository.class, JdbcTimelineRepository.class, FeedRetentionJob.class})
+@DisplayName("JdbcFeedRepositoryTest")
+class JdbcFeedRepositoryTest {
+    private static final long DAY = Duration.ofDays(1).toMillis();
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private JdbcFeedRepository feedRepository;
+
+    @Autowired
+    private JdbcTimelineRepository timelineRepository;
+
+    @Autowired
+    private FeedRetentionJob retentionJob;
+
+    private final long userId = 1L;
+    private final long followerId = 2L;
+    private final long now = System.currentTimeMillis();
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM users");
+        jdbcTemplate.update("INSERT INTO users (user_id, email, login, name, birthday) " +
+                "VALUES (?, 'user1@mail.com', 'login1', 'User 1', '1990-01-01')", userId);
+        jdbcTemplate.update("INSERT INTO users (user_id, email, login, name, birthday) " +
+                "VALUES (?, 'user2@mail.com', 'login2', 'User 2', '1990-01-01')", followerId);
+        jdbcTemplate.update("INSERT INTO friendship (user_id, friend_id) VALUES (?, ?)", followerId, userId);
+    }
+
+    @Test
+    @DisplayName("Должен проставлять id и корзину при записи")
+    void shouldAssignIdsAndBuckets() {
+        List<FeedEvent> events = save(
+                event(EventType.LIKE, Operation.ADD, 10, now),
+                event(EventType.LIKE, Operation.REMOVE, 10, now));
+
+        assertThat(events).extracting(FeedEvent::getEventId).doesNotContainNull().isSorted();
+        assertThat(jdbcTemplate.queryForList("SELECT bucket FROM feed_events", Integer.class))
+                .containsOnly(FeedBuckets.bucketOf(now));
+    }
+
+    @Test
+    @DisplayName("Не должен читать корзины за окном хранения")
+    void shouldSkipExpiredBuckets() {
+        save(event(EventType.LIKE, Operation.ADD, 10, now - 400 * DAY),
+                event(EventType.LIKE, Operation.ADD, 11, now));
+
+        assertThat(feedRepository.findFeedEventsByUserId(userId))
+                .extracting(FeedEvent::getEntityId)
+                .containsExactly(11L);
+        assertThat(feedRepository.findFeedEventsPage(userId, 0, null, 10))
+                .extracting(FeedEvent::getEntityId)
+                .containsExactly(11L);
+    }
+
+    @Test
+    @DisplayName("Должен схлопывать старые пары ADD/REMOVE в архив")
+    void shouldCompactOldPairs() {
+        long old = now - 90 * DAY;
+        List<FeedEvent> events = save(
+                event(EventType.LIKE, Operation.ADD, 10, old),
+                event(EventType.LIKE, Operation.REMOVE, 10, old),
+                event(EventType.LIKE, Operation.ADD, 10, old),
+                event(EventType.LIKE, Operation.REMOVE, 10, old),
+                event(EventType.REVIEW, Operation.ADD, 20, old),
+                event(EventType.REVIEW, Operation.UPDATE, 20, old),
+                event(EventType.REVIEW, Operation.REMOVE, 20, old),
+                event(EventType.LIKE, Operation.ADD, 11, old),
+                event(EventType.FRIEND, Operation.ADD, 2, old),
+                event(EventType.FRIEND, Operation.REMOVE, 2, now));
+
+        List<Long> removed = new ArrayList<>();
+        assertThat(feedRepository.compactPairs(now - 30 * DAY, removed::addAll)).isEqualTo(7);
+
+        assertThat(removed).containsExactlyInAnyOrderElementsOf(events.subList(0, 7).stream()
+                .map(FeedEvent::getEventId)
+                .toList());
+        assertThat(feedRepository.findFeedEventsByUserId(userId))
+                .extracting(FeedEvent::getEntityId)
+                .containsExactly(11L, 2L, 2L);
+        assertThat(jdbcTemplate.queryForList("SELECT event_type || ':' || entity_id || ':' || collapsed_pairs " +
+                "FROM feed_event_archive ORDER BY event_type", String.class))
+                .containsExactly("LIKE:10:2", "REVIEW:20:1");
+    }
+
+    @Test
+    @DisplayName("Должен проходить только корзины после отметки прошлого запуска")
+    void shouldCompactOnlyBucketsAfterWatermark() {
+        long older = now - 180 * DAY;
+        long old = now - 90 * DAY;
+        List<FeedEvent> first = save(
+                event(EventType.LIKE, Operation.ADD, 10, older),
+                event(EventType.LIKE, Operation.ADD, 11, older),
+                event(EventType.LIKE, Operation.REMOVE, 11, older));
+        assertThat(feedRepository.compactPairs(FeedBuckets.startOf(FeedBuckets.bucketOf(old)), ids -> { }))
+                .isEqualTo(2);
+
+        List<FeedEvent> late = save(
+                event(EventType.LIKE, Operation.ADD, 12, older),
+                event(EventType.LIKE, Operation.REMOVE, 12, older));
+        FeedEvent removal = save(event(EventType.LIKE, Operation.REMOVE, 10, old)).getFirst();
+        List<Long> removed = new ArrayList<>();
+        assertThat(feedRepository.compactPairs(now - 30 * DAY, removed::addAll)).isEqualTo(2);
+
+        assertThat(removed).containsExactlyInAnyOrder(first.getFirst().getEventId(), removal.getEventId());
+        assertThat(jdbcTemplate.queryForList("SELECT event_id FROM feed_events ORDER BY event_id", Long.class))
+                .containsExactlyElementsOf(late.stream().map(FeedEvent::getEventId).toList());
+        assertThat(jdbcTemplate.queryForList("SELECT entity_id || ':' || bucket || ':' || collapsed_pairs " +
+                "FROM feed_event_archive ORDER BY entity_id", String.class))
+                .containsExactly("10:" + FeedBuckets.bucketOf(older) + ":1", "11:" + FeedBuckets.bucketOf(older) + ":1");
+        assertThat(jdbcTemplate.queryForObject("SELECT compacted_bucket FROM feed_compaction", Integer.class))
+                .isEqualTo(FeedBuckets.bucketOf(old));
+    }
+
+    @Test
+    @DisplayName("Должен удалять устаревшие корзины и их копии в лентах друзей")
+    void retentionJobShouldDropExpiredBucketsAndCompactedCopies() {
+        List<FeedEvent> events = save(
+                event(EventType.LIKE, Operation.ADD, 10, now - 400 * DAY),
+                event(EventType.LIKE, Operation.ADD, 11, now - 90 * DAY),
+                event(EventType.LIKE, Operation.REMOVE, 11, now - 90 * DAY),
+                event(EventType.LIKE, Operation.ADD, 12, now));
+        timelineRepository.fanOut(events);
+
+        retentionJob.run();
+
+        assertThat(jdbcTemplate.queryForList("SELECT entity_id FROM feed_events", Long.class))
+                .containsExactly(12L);
+        assertThat(timelineRepository.findTimelinePage(followerId, Long.MAX_VALUE, 10))
+                .extracting(FeedEvent::getEntityId)
+                .containsExactly(12L);
+    }
+
+    private List<FeedEvent> save(FeedEvent... events) {
+        List<FeedEvent> list = List.of(events);
+        feedRepository.saveAll(list);
+        return list;
+    }
+
+    private FeedEvent event(EventType eventType, Operation operation, long entityId, long timestamp) {
+        FeedEvent event = new FeedEvent();
+        event.setUserId(userId);
+        event.setEventType(eventType);
+        event.setOperation(operation);
+        event.setEntityId(entityId);
+        event.setTimestamp(timestamp);
+        return event;
+    }
+}
@@ -4,21 +4,27 @@ import lombok.RequiredArgsConstructor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.interfaces.*;
+import ru.yandex.practicum.filmorate.model.Director;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FeedEventWriter;
 import ru.yandex.practicum.filmorate.service.FeedServiceImpl;
 
 import java.time.Duration;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -34,6 +40,7 @@ import static org.assertj.core.api.Assertions.assertThatThrownBy;
         JdbcFriendRepository.class,
         JdbcDirectorRepository.class,
         FeedServiceImpl.class,
+        FeedEventWriter.class,
         JdbcFeedRepository.class
 })
 @DisplayName("JdbcFilmRepositoryTest")
@@ -43,6 +50,9 @@ public class JdbcFilmRepositoryTest {
     private final MpaRepository mpaRepository;
     private final LikeRepository likeRepository;
     private final UserRepository userRepository;
+    private final DirectorRepository directorRepository;
+    private final FeedService feedService;
+    private final NamedParameterJdbcOperations jdbcOperations;
 
     private Film testFilm;
 
@@ -248,4 +258,88 @@ public class JdbcFilmRepositoryTest {
         f.setGenres(genres);
         return f;
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Should load films with one query per child table regardless of film count")
+    void shouldLoadFilmsWithFixedNumberOfQueries() {
+        Director director = new Director();
+        director.setDirectorName("Director");
+        Long directorId = directorRepository.createDirector(director).getId();
+        User u1 = userRepository.save(createTestUser("q1@mail.com"));
+        User u2 = userRepository.save(createTestUser("q2@mail.com"));
+
+        for (int i = 0; i < 3; i++) {
+            Film film = createFilmWithGenreAndDate("F" + i, 1L, LocalDate.of(2010, 1, 1));
+            film.addGenres(new Genre(2L, "Драма"));
+            film.getDirectors().add(director);
+            Film saved = filmRepository.save(film);
+            likeRepository.addLike(saved.getId(), u1.getId());
+            likeRepository.addLike(saved.getId(), u2.getId());
+        }
+
+        NamedParameterJdbcOperations countingJdbc = Mockito.spy(jdbcOperations);
+        JdbcGenreRepository countingGenreRepository = new JdbcGenreRepository(countingJdbc);
+        countingGenreRepository.reload();
+        JdbcMpaRepository countingMpaRepository = new JdbcMpaRepository(countingJdbc);
+        countingMpaRepository.reload();
+        JdbcFilmRepository countingRepository = new JdbcFilmRepository(countingJdbc, countingMpaRepository,
+                countingGenreRepository,
+                new JdbcLikeRepository(countingJdbc, feedService),
+                new JdbcDirectorRepository(countingJdbc));
+        Mockito.clearInvocations(countingJdbc);
+
+        Collection<Film> films = countingRepository.findAll();
+
+        assertThat(films).hasSize(3).allSatisfy(f -> {
+            assertThat(f.getGenres()).extracting(Genre::getId).containsExactly(1L, 2L);
+            assertThat(f.getDirectors()).extracting(Director::getId).containsExactly(directorId);
+            assertThat(f.getLikesCount()).isEqualTo(2L);
+        });
+        assertThat(countQueries(countingJdbc)).isEqualTo(4);
+
+        filmRepository.save(createFilmWithGenreAndDate("F3", 1L, LocalDate.of(2011, 1, 1)));
+        filmRepository.save(createFilmWithGenreAndDate("F4", 2L, LocalDate.of(2012, 1, 1)));
+        Mockito.clearInvocations(countingJdbc);
+
+        assertThat(countingRepository.findAll()).hasSize(5);
+        assertThat(countQueries(countingJdbc)).isEqualTo(4);
+
+        List<Long> ids = films.stream().map(Film::getId).toList().reversed();
+        Mockito.clearInvocations(countingJdbc);
+        assertThat(countingRepository.findByIds(ids)).extracting(Film::getId).containsExactlyElementsOf(ids);
+        assertThat(countQueries(countingJdbc)).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("Should export the same films as findAll, one film at a time")
+    void shouldExportSameFilmsAsFindAll() {
+        Director director = new Director();
+        director.setDirectorName("Exported");
+        Director saved = directorRepository.createDirector(director);
+        User u1 = userRepository.save(createTestUser("e1@mail.com"));
+        User u2 = userRepository.save(createTestUser("e2@mail.com"));
+
+        Film first = createFilmWithGenreAndDate("E1", 1L, LocalDate.of(2001, 1, 1));
+        first.addGenres(new Genre(3L, "Мультфильм"));
+        first.getDirectors().add(saved);
+        Film s1 = filmRepository.save(first);
+        Film s2 = filmRepository.save(createFilmWithGenreAndDate("E2", 2L, LocalDate.of(2002, 1, 1)));
+        filmRepository.save(createFilmWithGenreAndDate("E3", 1L, LocalDate.of(2003, 1, 1)));
+        likeRepository.addLike(s1.getId(), u1.getId());
+        likeRepository.addLike(s1.getId(), u2.getId());
+        likeRepository.addLike(s2.getId(), u2.getId());
+
+        List<Film> exported = new ArrayList<>();
+        filmRepository.exportAll(exported::add);
+
+        assertThat(exported)
+                .usingRecursiveFieldByFieldElementComparator()
+                .containsExactlyElementsOf(filmRepository.findAll());
+    }
+
+    private long countQueries(NamedParameterJdbcOperations jdbc) {
+        return Mockito.mockingDetails(jdbc).getInvocations().stream()
+                .filter(invocation -> invocation.getMethod().getName().startsWith("query"))
+                .count();
+    }
+}
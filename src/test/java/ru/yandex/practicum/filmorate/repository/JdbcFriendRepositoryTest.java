@@ -11,6 +11,7 @@ import org.springframework.context.annotation.Import;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.NotFriendException;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FeedEventWriter;
 import ru.yandex.practicum.filmorate.service.FeedServiceImpl;
 
 import java.time.LocalDate;
@@ -24,6 +25,7 @@ import static org.assertj.core.api.Assertions.assertThatThrownBy;
 @Import({JdbcFriendRepository.class,
         JdbcUserRepository.class,
         FeedServiceImpl.class,
+        FeedEventWriter.class,
         JdbcFeedRepository.class
 })
 @DisplayName("JdbcFriendRepositoryTest")
@@ -9,6 +9,8 @@ import org.springframework.context.annotation.Import;
 import org.springframework.jdbc.core.JdbcTemplate;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.model.LikesCountDrift;
+import ru.yandex.practicum.filmorate.service.FeedEventWriter;
 import ru.yandex.practicum.filmorate.service.FeedServiceImpl;
 
 import java.util.List;
@@ -17,7 +19,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 @JdbcTest
-@Import({JdbcLikeRepository.class, FeedServiceImpl.class,
+@Import({JdbcLikeRepository.class, FeedServiceImpl.class, FeedEventWriter.class,
         JdbcFeedRepository.class})
 @DisplayName("JdbcLikeRepositoryTest")
 class JdbcLikeRepositoryTest {
@@ -157,4 +159,44 @@ class JdbcLikeRepositoryTest {
 
         assertThat(likeRepository.getLikesCountForFilm(filmId1)).isEqualTo(1L);
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Должен поддерживать films.likes_count при добавлении и удалении лайков")
+    void shouldMaintainStoredLikesCount() {
+        likeRepository.addLike(filmId1, userId1);
+        likeRepository.addLike(filmId1, userId2);
+        likeRepository.addLike(filmId1, userId2);
+        likeRepository.addLike(filmId2, userId1);
+        likeRepository.removeLike(filmId1, userId1);
+
+        assertThat(storedLikesCount(filmId1)).isEqualTo(1L);
+        assertThat(storedLikesCount(filmId2)).isEqualTo(1L);
+        assertThat(likeRepository.findLikesCountDrift()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Должен находить и исправлять расхождения films.likes_count")
+    void shouldFindAndRepairLikesCountDrift() {
+        likeRepository.addLike(filmId1, userId1);
+        jdbcTemplate.update("UPDATE films SET likes_count = 5 WHERE film_id = ?", filmId1);
+        jdbcTemplate.update("INSERT INTO likes (film_id, user_id) VALUES (?, ?)", filmId2, userId2);
+
+        List<LikesCountDrift> drift = likeRepository.findLikesCountDrift();
+        assertThat(drift)
+                .usingRecursiveFieldByFieldElementComparator()
+                .containsExactly(
+                        new LikesCountDrift(filmId1, 5L, 1L),
+                        new LikesCountDrift(filmId2, 0L, 1L)
+                );
+
+        likeRepository.repairLikesCounts(List.of(filmId1, filmId2));
+
+        assertThat(likeRepository.findLikesCountDrift()).isEmpty();
+        assertThat(storedLikesCount(filmId1)).isEqualTo(1L);
+        assertThat(storedLikesCount(filmId2)).isEqualTo(1L);
+    }
+
+    private Long storedLikesCount(long filmId) {
+        return jdbcTemplate.queryForObject("SELECT likes_count FROM films WHERE film_id = ?", Long.class, filmId);
+    }
+}
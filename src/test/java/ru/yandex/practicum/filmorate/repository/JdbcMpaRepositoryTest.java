@@ -38,6 +38,7 @@ class JdbcMpaRepositoryTest {
         jdbcTemplate.update("INSERT INTO mpa (mpa_id, mpa_name) VALUES (1, 'G')");
         jdbcTemplate.update("INSERT INTO mpa (mpa_id, mpa_name) VALUES (2, 'PG')");
         jdbcTemplate.update("INSERT INTO mpa (mpa_id, mpa_name) VALUES (3, 'PG-13')");
+        mpaRepository.reload();
 
         mpa1 = new Mpa(1L, "G");
         mpa2 = new Mpa(2L, "PG");
@@ -87,6 +88,7 @@ class JdbcMpaRepositoryTest {
     @DisplayName("Должен возвращать корректные данные при пустой таблице")
     void shouldHandleEmptyTable() {
         jdbcTemplate.update("DELETE FROM mpa");
+        mpaRepository.reload();
 
         Collection<Mpa> allMpa = mpaRepository.mpaGetAll();
         assertThat(allMpa).isEmpty();
@@ -100,6 +102,7 @@ class JdbcMpaRepositoryTest {
     @DisplayName("Должен возвращать полный список MPA после добавления")
     void shouldReturnAllMpaAfterInsert() {
         jdbcTemplate.update("INSERT INTO mpa (mpa_id, mpa_name) VALUES (4, 'R')");
+        mpaRepository.reload();
 
         Collection<Mpa> allMpa = mpaRepository.mpaGetAll();
 
@@ -118,6 +121,7 @@ class JdbcMpaRepositoryTest {
     @DisplayName("Должен корректно обрабатывать поиск после удаления MPA")
     void shouldHandleFindAfterDelete() {
         jdbcTemplate.update("DELETE FROM mpa WHERE mpa_id = 2");
+        mpaRepository.reload();
 
         assertThat(mpaRepository.mpaGetAll())
                 .usingRecursiveComparison()
@@ -128,4 +132,15 @@ class JdbcMpaRepositoryTest {
                 .isInstanceOf(NotFoundException.class)
                 .hasMessageContaining("MPA рейтинг не найден");
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Должен отдавать снимок справочника до перезагрузки")
+    void shouldServeSnapshotUntilReload() {
+        jdbcTemplate.update("UPDATE mpa SET mpa_name = 'General' WHERE mpa_id = 1");
+
+        assertThat(mpaRepository.findById(1L).getName()).isEqualTo("G");
+
+        mpaRepository.reload();
+        assertThat(mpaRepository.findById(1L).getName()).isEqualTo("General");
+    }
+}
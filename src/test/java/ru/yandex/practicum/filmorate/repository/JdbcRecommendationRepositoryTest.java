@@ -2,6 +2,7 @@ package ru.yandex.practicum.filmorate.repository;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
@@ -13,8 +14,15 @@ import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.interfaces.RecommendationRepository;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Random;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -28,6 +36,7 @@ class JdbcRecommendationRepositoryTest {
     private NamedParameterJdbcOperations jdbc;
 
     @Autowired
+    @Qualifier("jdbcRecommendationRepository")
     private RecommendationRepository recommendationRepository;
 
     private long insertUser(String email, String login, String name, LocalDate birthday) {
@@ -107,4 +116,75 @@ class JdbcRecommendationRepositoryTest {
         List<Long> rec = recommendationRepository.findRecommendedFilmIdsForUser(a);
         assertEquals(List.of(f2, f3), rec, "Candidates must be sorted by popularity desc then id asc");
     }
+
+    @Test
+    void findRecommendedFilmIdsForUser_equalScores_prefersHigherUserId() {
+        long a = insertUser("a@mail.com", "a", "A", LocalDate.of(1990,1,1));
+        long b = insertUser("b@mail.com", "b", "B", LocalDate.of(1991,2,2));
+        long c = insertUser("c@mail.com", "c", "C", LocalDate.of(1992,3,3));
+        long f1 = insertFilm("F1", "d", LocalDate.of(2010,1,1), 100, 1);
+        long f2 = insertFilm("F2", "d", LocalDate.of(2011,1,1), 100, 1);
+        long f3 = insertFilm("F3", "d", LocalDate.of(2012,1,1), 100, 1);
+        like(a, f1);
+        like(b, f1);
+        like(b, f2);
+        like(c, f1);
+        like(c, f3);
+
+        assertEquals(List.of(f3), recommendationRepository.findRecommendedFilmIdsForUser(a));
+    }
+
+    @Test
+    void findRecommendedFilmIdsForUser_matchesFullScanOnRandomLikes() {
+        Random random = new Random(13);
+        List<Long> users = new ArrayList<>();
+        List<Long> films = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            users.add(insertUser("r" + i + "@mail.com", "r" + i, "R", LocalDate.of(1990,1,1)));
+        }
+        for (int i = 0; i < 30; i++) {
+            films.add(insertFilm("R" + i, "d", LocalDate.of(2000,1,1), 100, 1));
+        }
+        Map<Long, Set<Long>> likes = new HashMap<>();
+        for (int i = 0; i < 200; i++) {
+            long u = users.get(random.nextInt(users.size()));
+            long f = films.get(random.nextInt(films.size()));
+            if (likes.computeIfAbsent(u, k -> new HashSet<>()).add(f)) {
+                like(u, f);
+            }
+        }
+
+        for (long u : users) {
+            assertEquals(fullScan(likes, u), recommendationRepository.findRecommendedFilmIdsForUser(u), "user " + u);
+        }
+    }
+
+    /**
+     * Прежний алгоритм: сравнение со всеми пользователями по полной таблице лайков.
+     */
+    private static List<Long> fullScan(Map<Long, Set<Long>> likes, long userId) {
+        Set<Long> mine = likes.getOrDefault(userId, Set.of());
+        long best = -1;
+        long bestCommon = 0;
+        long bestExtra = 0;
+        for (Map.Entry<Long, Set<Long>> e : likes.entrySet()) {
+            if (mine.isEmpty() || e.getKey() == userId) continue;
+            long common = e.getValue().stream().filter(mine::contains).count();
+            long extra = e.getValue().size() - common;
+            if (common == 0 || extra == 0) continue;
+            if (best < 0 || common > bestCommon || common == bestCommon && (extra > bestExtra
+                    || extra == bestExtra && e.getKey() > best)) {
+                best = e.getKey();
+                bestCommon = common;
+                bestExtra = extra;
+            }
+        }
+        if (best < 0) return List.of();
+        return likes.get(best).stream()
+                .filter(f -> !mine.contains(f))
+                .sorted(Comparator.comparing((Long f) -> likes.values().stream().filter(s -> s.contains(f)).count())
+                        .reversed()
+                        .thenComparing(Long::longValue))
+                .toList();
+    }
 }
@@ -11,6 +11,7 @@ import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.interfaces.FriendRepository;
 import ru.yandex.practicum.filmorate.interfaces.UserRepository;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FeedEventWriter;
 import ru.yandex.practicum.filmorate.service.FeedServiceImpl;
 
 import java.time.LocalDate;
@@ -23,6 +24,7 @@ import static org.assertj.core.api.Assertions.*;
         JdbcUserRepository.class,
         JdbcFriendRepository.class,
         FeedServiceImpl.class,
+        FeedEventWriter.class,
         JdbcFeedRepository.class
 })
 @DisplayName("JdbcUserRepositoryTest")
@@ -0,0 +1,23 @@
+package ru.yandex.practicum.filmorate.repository;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LongIntHashMapTest {
+
+    @Test
+    void addTo_countsAcrossGrowth() {
+        LongIntHashMap map = new LongIntHashMap(2);
+        for (long key = 0; key < 1000; key++) {
+            map.addTo(key * 1024, 1);
+            map.addTo(key * 1024, (int) key);
+        }
+        assertEquals(1000, map.size());
+        for (long key = 0; key < 1000; key++) {
+            assertEquals(key + 1, map.get(key * 1024));
+        }
+        assertEquals(0, map.get(1));
+        assertEquals(0, map.get(-5));
+    }
+}
@@ -0,0 +1,212 @@
+package ru.yandex.practicum.filmorate.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.filmorate.model.EventType;
+import ru.yandex.practicum.filmorate.model.FeedEvent;
+import ru.yandex.practicum.filmorate.model.Operation;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("MappedFeedRepositoryTest")
+class MappedFeedRepositoryTest {
+    private static final long DAY = Duration.ofDays(1).toMillis();
+
+    @TempDir
+    private Path directory;
+
+    private final long now = System.currentTimeMillis();
+    private MappedFeedRepository repository;
+
+    @AfterEach
+    void tearDown() {
+        if (repository != null) {
+            repository.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Должен читать страницы так же, как выборка по всем событиям")
+    void shouldPageLikeFullScan() {
+        repository = open(64);
+        Random random = new Random(42);
+        List<FeedEvent> all = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            FeedEvent event = event(1 + random.nextInt(5), EventType.values()[random.nextInt(3)],
+                    Operation.values()[random.nextInt(3)], random.nextInt(100), now - random.nextInt(1000));
+            all.add(event);
+        }
+        for (int from = 0; from < all.size(); from += 37) {
+            repository.saveAll(all.subList(from, Math.min(from + 37, all.size())));
+        }
+        assertThat(all).extracting(FeedEvent::getEventId).isSorted().doesNotHaveDuplicates();
+
+        for (int i = 0; i < 200; i++) {
+            long userId = 1 + random.nextInt(6);
+            long cursor = random.nextInt(1100);
+            int limit = 1 + random.nextInt(50);
+            Long since = random.nextBoolean() ? null : now - random.nextInt(1000);
+            List<FeedEvent> ofUser = all.stream().filter(event -> event.getUserId() == userId).toList();
+
+            assertThat(repository.findFeedEventsPage(userId, cursor, since, limit))
+                    .isEqualTo(ofUser.stream()
+                            .filter(event -> event.getEventId() > cursor)
+                            .filter(event -> since == null || event.getTimestamp() >= since)
+                            .limit(limit)
+                            .toList());
+            assertThat(repository.findFeedEventsBefore(userId, cursor, limit))
+                    .isEqualTo(ofUser.stream()
+                            .filter(event -> event.getEventId() < cursor)
+                            .sorted(Comparator.comparing(FeedEvent::getEventId).reversed())
+                            .limit(limit)
+                            .toList());
+            assertThat(repository.findFeedEventsByUserId(userId)).isEqualTo(ofUser);
+        }
+    }
+
+    @Test
+    @DisplayName("Должен восстанавливать индекс и счётчик id после перезапуска")
+    void shouldRecoverAfterReopen() throws IOException {
+        repository = open(2);
+        List<FeedEvent> saved = List.of(
+                event(1, EventType.LIKE, Operation.ADD, 10, now),
+                event(2, EventType.FRIEND, Operation.ADD, 1, now),
+                event(1, EventType.REVIEW, Operation.UPDATE, 20, now));
+        repository.saveAll(saved);
+        repository.close();
+        assertThat(segmentCount()).isEqualTo(2);
+
+        repository = open(2);
+        assertThat(repository.findFeedEventsByUserId(1L)).containsExactly(saved.get(0), saved.get(2));
+        assertThat(repository.findFeedEventsByUserId(2L)).containsExactly(saved.get(1));
+
+        FeedEvent next = event(2, EventType.LIKE, Operation.REMOVE, 10, now);
+        repository.saveAll(List.of(next));
+        assertThat(next.getEventId()).isEqualTo(4L);
+        assertThat(repository.findFeedEventsPage(2L, 0, null, 10)).containsExactly(saved.get(1), next);
+    }
+
+    @Test
+    @DisplayName("Должен скрывать и удалять сегменты корзин за окном хранения")
+    void shouldDropExpiredBuckets() throws IOException {
+        repository = open(16);
+        FeedEvent expired = event(1, EventType.LIKE, Operation.ADD, 10, now - 400 * DAY);
+        FeedEvent recent = event(1, EventType.LIKE, Operation.ADD, 11, now);
+        repository.saveAll(List.of(expired, recent));
+
+        assertThat(repository.findFeedEventsByUserId(1L)).containsExactly(recent);
+        assertThat(repository.findFeedEventsBefore(1L, Long.MAX_VALUE, 10)).containsExactly(recent);
+        assertThat(segmentCount()).isEqualTo(2);
+
+        assertThat(repository.deleteBucketsBefore(FeedBuckets.bucketOf(now - 365 * DAY))).isEqualTo(1);
+        assertThat(segmentCount()).isEqualTo(1);
+        assertThat(repository.findFeedEventsPage(1L, 0, null, 10)).containsExactly(recent);
+        assertThat(repository.compactPairs(now, removed -> { })).isZero();
+    }
+
+    @Test
+    @DisplayName("Не должен повторять id после удаления всех сегментов и перезапуска")
+    void shouldNotReuseIdsAfterSegmentsAreGone() throws IOException {
+        repository = open(16);
+        FeedEvent expired = event(1, EventType.LIKE, Operation.ADD, 10, now - 400 * DAY);
+        repository.saveAll(List.of(expired));
+        repository.deleteBucketsBefore(FeedBuckets.bucketOf(now));
+        repository.close();
+        assertThat(segmentCount()).isZero();
+
+        repository = open(16);
+        FeedEvent afterRestart = event(1, EventType.LIKE, Operation.ADD, 11, now);
+        repository.saveAll(List.of(afterRestart));
+        assertThat(afterRestart.getEventId()).isGreaterThan(expired.getEventId());
+
+        MappedFeedRepository crashed = repository;
+        repository = open(16);
+        FeedEvent afterCrash = event(1, EventType.LIKE, Operation.ADD, 12, now);
+        repository.saveAll(List.of(afterCrash));
+        assertThat(afterCrash.getEventId()).isGreaterThan(afterRestart.getEventId());
+        crashed.close();
+    }
+
+    @Test
+    @DisplayName("Должен дописывать события на стыке месяцев в сегмент своей корзины")
+    void shouldAppendInterleavedBucketsToOpenSegments() throws IOException {
+        repository = open(16);
+        long previousMonth = now - 40 * DAY;
+        List<FeedEvent> saved = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            FeedEvent event = event(1, EventType.LIKE, Operation.ADD, i, i % 2 == 0 ? now : previousMonth);
+            repository.saveAll(List.of(event));
+            saved.add(event);
+        }
+        assertThat(segmentCount()).isEqualTo(2);
+        assertThat(repository.findFeedEventsByUserId(1L)).isEqualTo(saved);
+        repository.close();
+
+        repository = open(16);
+        assertThat(repository.findFeedEventsByUserId(1L)).isEqualTo(saved);
+        assertThat(repository.findFeedEventsBefore(1L, Long.MAX_VALUE, 3)).containsExactly(
+                saved.get(5), saved.get(4), saved.get(3));
+    }
+
+    @Test
+    @DisplayName("Должен забывать события удалённого пользователя и после перезапуска")
+    void shouldDeleteUserEventsAcrossRestart() {
+        repository = open(16);
+        List<FeedEvent> kept = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            repository.saveAll(List.of(event(1, EventType.LIKE, Operation.ADD, i, now)));
+            FeedEvent other = event(2, EventType.LIKE, Operation.ADD, i, now);
+            repository.saveAll(List.of(other));
+            kept.add(other);
+        }
+        repository.deleteByUserId(1L);
+        assertThat(repository.findFeedEventsByUserId(1L)).isEmpty();
+        repository.close();
+
+        repository = open(16);
+        assertThat(repository.findFeedEventsByUserId(1L)).isEmpty();
+        assertThat(repository.findFeedEventsByUserId(2L)).isEqualTo(kept);
+    }
+
+    @Test
+    @DisplayName("Не должен открываться при базе в памяти")
+    void shouldRejectInMemoryDatabase() {
+        assertThatThrownBy(() -> new MappedFeedRepository(directory, 16, Duration.ofDays(365), false,
+                "jdbc:h2:mem:filmorate")).isInstanceOf(IllegalStateException.class);
+    }
+
+    private MappedFeedRepository open(int segmentRecords) {
+        return new MappedFeedRepository(directory, segmentRecords, Duration.ofDays(365), false,
+                "jdbc:h2:file:./db/filmorate");
+    }
+
+    private long segmentCount() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.toString().endsWith(".seg")).count();
+        }
+    }
+
+    private static FeedEvent event(long userId, EventType eventType, Operation operation, long entityId,
+                                   long timestamp) {
+        FeedEvent event = new FeedEvent();
+        event.setUserId(userId);
+        event.setEventType(eventType);
+        event.setOperation(operation);
+        event.setEntityId(entityId);
+        event.setTimestamp(timestamp);
+        return event;
+    }
+}
@@ -0,0 +1,68 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.yandex.practicum.filmorate.interfaces.LikeRepository;
+import ru.yandex.practicum.filmorate.model.Like;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class AlsRecommenderTest {
+
+    @Mock
+    LikeRepository likeRepository;
+
+    @Mock
+    RecommendationCache recommendationCache;
+
+    private final List<Like> likes = new ArrayList<>();
+
+    /**
+     * Две группы: пользователи 1–10 лайкают фильмы 1–5, пользователи 11–20 — фильмы 6–10.
+     * Пользователь 1 не видел фильм 5, пользователь 11 не видел фильм 10.
+     */
+    @BeforeEach
+    void setUp() {
+        for (long user = 1; user <= 20; user++) {
+            long firstFilm = user <= 10 ? 1 : 6;
+            for (long film = firstFilm; film < firstFilm + 5; film++) {
+                if (!(user == 1 && film == 5) && !(user == 11 && film == 10)) {
+                    likes.add(new Like(film, user));
+                }
+            }
+        }
+        doAnswer(invocation -> {
+            Consumer<Like> consumer = invocation.getArgument(0);
+            likes.forEach(consumer);
+            return null;
+        }).when(likeRepository).forEachLike(any());
+    }
+
+    @Test
+    void recommendsUnseenFilmOfOwnGroupFirstAndSkipsLiked() {
+        UserLikesIndex userLikesIndex = new UserLikesIndex(likeRepository);
+        userLikesIndex.reload();
+        AlsRecommender recommender = new AlsRecommender(userLikesIndex, recommendationCache,
+                4, 15, 0.1, 20, 3, 2);
+        recommender.train();
+
+        List<Long> forFirst = recommender.findRecommendedFilmIdsForUser(1L);
+        assertThat(forFirst).hasSize(3).first().isEqualTo(5L);
+        assertThat(forFirst).doesNotContain(1L, 2L, 3L, 4L);
+        assertThat(recommender.findRecommendedFilmIdsForUser(11L)).first().isEqualTo(10L);
+        assertThat(recommender.findRecommendedFilmIdsForUser(99L)).isEmpty();
+        verify(recommendationCache).clear();
+        recommender.shutdown();
+    }
+}
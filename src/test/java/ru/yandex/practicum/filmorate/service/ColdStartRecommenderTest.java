@@ -0,0 +1,61 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ColdStartRecommenderTest {
+
+    @Mock
+    UserLikesIndex userLikesIndex;
+
+    @Mock
+    PopularityIndex popularityIndex;
+
+    @Mock
+    FilmSearchIndex searchIndex;
+
+    private ColdStartRecommender recommender;
+
+    @BeforeEach
+    void setUp() {
+        recommender = new ColdStartRecommender(userLikesIndex, popularityIndex, searchIndex, 10);
+    }
+
+    @Test
+    void userWithoutLikesGetsMostPopularFilms() {
+        when(userLikesIndex.likedFilms(1L)).thenReturn(new RoaringBitmap());
+        when(popularityIndex.top(10)).thenReturn(List.of(5L, 6L));
+
+        assertEquals(List.of(5L, 6L), recommender.recommend(1L));
+    }
+
+    @Test
+    void candidatesRankedByGenreAndDirectorAffinityThenPopularity() {
+        Map<Long, Set<Long>> genres = Map.of(1L, Set.of(1L), 2L, Set.of(1L), 3L, Set.of(1L), 4L, Set.of());
+        Map<Long, Set<Long>> directors = Map.of(1L, Set.of(7L), 2L, Set.of(), 3L, Set.of(7L), 4L, Set.of(7L));
+        Map<Long, Long> likes = Map.of(2L, 5L, 3L, 1L, 4L, 9L);
+        when(userLikesIndex.likedFilms(1L)).thenReturn(RoaringBitmap.bitmapOf(1));
+        when(popularityIndex.genreIds(anyLong())).thenAnswer(i -> genres.get(i.<Long>getArgument(0)));
+        when(searchIndex.directorIds(anyLong())).thenAnswer(i -> directors.get(i.<Long>getArgument(0)));
+        lenient().when(popularityIndex.likes(anyLong())).thenAnswer(i -> likes.getOrDefault(i.<Long>getArgument(0), 0L));
+        when(popularityIndex.top(100, 1L, null)).thenReturn(List.of(2L, 1L, 3L));
+        when(searchIndex.filmIdsByDirector(7L)).thenReturn(Set.of(1L, 4L));
+
+        // фильм 3 совпал и по жанру, и по режиссёру; 4 и 2 — по одному признаку, 4 популярнее
+        assertEquals(List.of(3L, 4L, 2L), recommender.recommend(1L));
+    }
+}
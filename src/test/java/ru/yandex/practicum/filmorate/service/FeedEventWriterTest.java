@@ -0,0 +1,219 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.yandex.practicum.filmorate.interfaces.FeedRepository;
+import ru.yandex.practicum.filmorate.model.EventType;
+import ru.yandex.practicum.filmorate.model.FeedEvent;
+import ru.yandex.practicum.filmorate.model.Operation;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class FeedEventWriterTest {
+
+    @Mock
+    FeedRepository feedRepository;
+
+    private final List<List<Long>> batches = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        lenient().doAnswer(invocation -> {
+            List<FeedEvent> events = invocation.getArgument(0);
+            batches.add(events.stream().map(FeedEvent::getEntityId).toList());
+            return null;
+        }).when(feedRepository).saveAll(anyList());
+    }
+
+    @Test
+    void strictModeWritesInCallerThread() {
+        FeedEventWriter writer = writer("strict", 10, 10, Duration.ofSeconds(10));
+
+        writer.write(event(1));
+
+        assertEquals(List.of(List.of(1L)), batches);
+    }
+
+    @Test
+    void asyncModeFlushesFullBatch() throws InterruptedException {
+        FeedEventWriter writer = writer("async", 10, 3, Duration.ofSeconds(10));
+        writer.start();
+
+        for (long i = 1; i <= 3; i++) {
+            writer.write(event(i));
+        }
+
+        awaitBatches(1);
+        assertEquals(List.of(List.of(1L, 2L, 3L)), batches);
+        assertEquals(3, writer.getFlushedEventCount());
+        writer.shutdown();
+    }
+
+    @Test
+    void asyncModeFlushesPartialBatchByTime() throws InterruptedException {
+        FeedEventWriter writer = writer("async", 10, 100, Duration.ofMillis(50));
+        writer.start();
+
+        writer.write(event(1));
+        writer.write(event(2));
+
+        awaitBatches(1);
+        assertEquals(List.of(List.of(1L, 2L)), batches);
+        writer.shutdown();
+    }
+
+    @Test
+    void shutdownFlushesQueuedEvents() throws InterruptedException {
+        FeedEventWriter writer = writer("async", 10, 100, Duration.ofMillis(200));
+        writer.start();
+
+        writer.write(event(1));
+        writer.write(event(2));
+        writer.shutdown();
+
+        assertEquals(List.of(1L, 2L), batches.stream().flatMap(List::stream).toList());
+        assertEquals(0, writer.getQueueDepth());
+    }
+
+    @Test
+    void fullQueueFallsBackToCallerWrite() throws InterruptedException {
+        CountDownLatch flushing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            List<FeedEvent> events = invocation.getArgument(0);
+            if (events.getFirst().getEntityId() == 1L) {
+                flushing.countDown();
+                release.await();
+            }
+            batches.add(events.stream().map(FeedEvent::getEntityId).toList());
+            return null;
+        }).when(feedRepository).saveAll(anyList());
+        FeedEventWriter writer = writer("async", 1, 1, Duration.ofSeconds(10));
+        writer.start();
+
+        writer.write(event(1));
+        assertTrue(flushing.await(5, TimeUnit.SECONDS));
+        writer.write(event(2));
+        writer.write(event(3));
+
+        assertEquals(List.of(List.of(3L)), batches);
+        assertEquals(1, writer.getDirectWriteCount());
+        assertEquals(1, writer.getQueueDepth());
+        release.countDown();
+        writer.shutdown();
+        assertEquals(List.of(3L, 1L, 2L), batches.stream().flatMap(List::stream).toList());
+    }
+
+    @Test
+    void asyncModeQueuesOnlyAfterCommit() throws InterruptedException {
+        FeedEventWriter writer = writer("async", 10, 100, Duration.ofSeconds(10));
+        writer.start();
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            writer.write(event(1));
+            assertEquals(1, TransactionSynchronizationManager.getSynchronizations().size());
+            assertEquals(0, writer.getQueueDepth());
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        writer.shutdown();
+        assertEquals(List.of(List.of(1L)), batches);
+    }
+
+    @Test
+    void strictModeWritesNonTransactionalStorageOnlyAfterCommit() {
+        lenient().when(feedRepository.isTransactional()).thenReturn(false);
+        FeedEventWriter writer = writer("strict", 10, 10, Duration.ofSeconds(10));
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            writer.write(event(1));
+            writer.deleteUser(1L);
+            assertEquals(List.of(), batches);
+            verify(feedRepository, never()).deleteByUserId(1L);
+        } finally {
+            // откат: синхронизации не вызываются
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertEquals(List.of(), batches);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            writer.write(event(2));
+            writer.deleteUser(1L);
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertEquals(List.of(List.of(2L)), batches);
+        verify(feedRepository).deleteByUserId(1L);
+    }
+
+    @Test
+    void failedBatchIsRetriedOneEventAtATime() throws InterruptedException {
+        doAnswer(invocation -> {
+            List<FeedEvent> events = invocation.getArgument(0);
+            if (events.stream().anyMatch(event -> event.getEntityId() == 2L)) {
+                throw new DataIntegrityViolationException("user deleted");
+            }
+            batches.add(events.stream().map(FeedEvent::getEntityId).toList());
+            return null;
+        }).when(feedRepository).saveAll(anyList());
+        List<Long> notified = new CopyOnWriteArrayList<>();
+        FeedEventWriter writer = writer("async", 10, 3, Duration.ofSeconds(10));
+        writer.addListener(events -> events.forEach(event -> notified.add(event.getEntityId())));
+        writer.start();
+
+        for (long i = 1; i <= 3; i++) {
+            writer.write(event(i));
+        }
+
+        awaitBatches(2);
+        writer.shutdown();
+        assertEquals(List.of(List.of(1L), List.of(3L)), batches);
+        assertEquals(List.of(1L, 3L), notified);
+        assertEquals(2, writer.getFlushedEventCount());
+        assertEquals(1, writer.getFailedEventCount());
+    }
+
+    private FeedEventWriter writer(String mode, int capacity, int batchSize, Duration flushInterval) {
+        return new FeedEventWriter(feedRepository, mode, capacity, batchSize, flushInterval, Duration.ofMillis(20));
+    }
+
+    private void awaitBatches(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (batches.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    private static FeedEvent event(long entityId) {
+        FeedEvent event = new FeedEvent();
+        event.setUserId(1L);
+        event.setEventType(EventType.LIKE);
+        event.setOperation(Operation.ADD);
+        event.setEntityId(entityId);
+        event.setTimestamp(entityId);
+        return event;
+    }
+}
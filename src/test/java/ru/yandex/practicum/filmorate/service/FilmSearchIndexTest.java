@@ -0,0 +1,89 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.yandex.practicum.filmorate.interfaces.DirectorRepository;
+import ru.yandex.practicum.filmorate.interfaces.FilmRepository;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class FilmSearchIndexTest {
+
+    @Mock
+    FilmRepository filmRepository;
+
+    @Mock
+    DirectorRepository directorRepository;
+
+    FilmSearchIndex searchIndex;
+
+    @BeforeEach
+    void setUp() {
+        when(filmRepository.findTitles()).thenReturn(Map.of(
+                1L, "The Matrix",
+                2L, "Матрица: Перезагрузка",
+                3L, "Inception"));
+        when(directorRepository.findAll()).thenReturn(List.of(
+                new Director(10L, "Lana Wachowski"),
+                new Director(20L, "Christopher Nolan")));
+        when(directorRepository.findFilmIdsByDirector()).thenReturn(Map.of(
+                10L, Set.of(1L, 2L),
+                20L, Set.of(3L)));
+        searchIndex = new FilmSearchIndex(filmRepository, directorRepository);
+        searchIndex.reload();
+    }
+
+    @Test
+    void search_matchesSubstringsIgnoringCase() {
+        assertEquals(Set.of(1L), searchIndex.search("MATR", true, false));
+        assertEquals(Set.of(2L), searchIndex.search("перезаг", true, false));
+        assertEquals(Set.of(3L), searchIndex.search("nol", false, true));
+        assertEquals(Set.of(1L, 2L), searchIndex.search("wachowski", true, true));
+        assertEquals(Set.of(), searchIndex.search("matrix reloaded", true, true));
+    }
+
+    @Test
+    void search_handlesShortAndEmptyQueries() {
+        assertEquals(Set.of(1L, 3L), searchIndex.search("e", true, false));
+        assertEquals(Set.of(1L, 2L, 3L), searchIndex.search("", false, true));
+    }
+
+    @Test
+    void search_rejectsCandidatesWithTrigramsOutOfOrder() {
+        // "rix" и "mat" встречаются в "The Matrix", но не подряд
+        assertEquals(Set.of(), searchIndex.search("rixmat", true, false));
+    }
+
+    @Test
+    void saveAndRemove_keepIndexInSync() {
+        Film film = new Film();
+        film.setId(1L);
+        film.setName("Interstellar");
+        film.setDirectors(Set.of(new Director(20L, "Christopher Nolan")));
+        searchIndex.saveFilm(film);
+
+        assertEquals(Set.of(), searchIndex.search("matrix", true, false));
+        assertEquals(Set.of(1L, 3L), searchIndex.search("nolan", false, true));
+        assertEquals(Set.of(2L), searchIndex.search("wachowski", false, true));
+
+        searchIndex.saveDirector(new Director(20L, "C. Nolan"));
+        assertEquals(Set.of(), searchIndex.search("christopher", false, true));
+        assertEquals(Set.of(1L, 3L), searchIndex.search("c. n", false, true));
+
+        searchIndex.removeDirector(20L);
+        searchIndex.removeFilm(2L);
+        assertEquals(Set.of(), searchIndex.search("nolan", false, true));
+        assertEquals(Set.of(), searchIndex.search("перезагрузка", true, true));
+    }
+}
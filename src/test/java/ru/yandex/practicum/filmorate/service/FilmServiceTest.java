@@ -8,10 +8,12 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Director;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.repository.JdbcFilmRepository;
 
 import java.time.Duration;
 import java.time.LocalDate;
@@ -26,6 +28,8 @@ import static org.junit.jupiter.api.Assertions.*;
 public class FilmServiceTest {
     private final FilmService filmService;
     private final UserService userService;
+    private final JdbcFilmRepository filmRepository;
+    private final DirectorService directorService;
 
     private Film film1;
     private Film film2;
@@ -99,4 +103,113 @@ public class FilmServiceTest {
         assertThrows(NotFoundException.class,
                 () -> filmService.removeLike(film1.getId(), 999L));
     }
-}
\ No newline at end of file
+
+    @Test
+    void getPopularFilm_shouldFollowLikesAndFilmId() {
+        User user2 = new User("second@email.com", "secondLogin",
+                LocalDate.of(2000, 1, 1));
+        user2 = userService.create(user2);
+        filmService.addLike(film3.getId(), user1.getId());
+        filmService.addLike(film3.getId(), user2.getId());
+        filmService.addLike(film2.getId(), user1.getId());
+        filmService.addLike(film2.getId(), user1.getId());
+
+        Set<Long> ours = Set.of(film1.getId(), film2.getId(), film3.getId());
+        List<Long> popular = filmService.getPopularFilm(100L).stream()
+                .map(Film::getId)
+                .filter(ours::contains)
+                .toList();
+        assertEquals(List.of(film3.getId(), film2.getId(), film1.getId()), popular);
+
+        filmService.removeLike(film3.getId(), user1.getId());
+        filmService.removeLike(film3.getId(), user2.getId());
+        popular = filmService.getPopularFilm(100L).stream()
+                .map(Film::getId)
+                .filter(ours::contains)
+                .toList();
+        assertEquals(List.of(film2.getId(), film1.getId(), film3.getId()), popular);
+    }
+
+    @Test
+    void getPopular_shouldMatchSqlOrderingForEveryFilter() {
+        filmService.addLike(film3.getId(), user1.getId());
+        filmService.addLike(film2.getId(), user1.getId());
+
+        Film drama = filmService.getFilmById(film1.getId());
+        drama.setGenres(new LinkedHashSet<>(List.of(new Genre(2L, "Драма"))));
+        filmService.update(drama);
+
+        List<Long> genreIds = Arrays.asList(null, 1L, 2L, 3L);
+        List<Long> years = Arrays.asList(null, 1995L, 2001L, 2005L, 1900L);
+        for (Long genreId : genreIds) {
+            for (Long year : years) {
+                List<Long> expected = filmRepository.findPopular(1000L, genreId, year).stream()
+                        .map(Film::getId)
+                        .toList();
+                List<Long> actual = filmService.getPopular(1000L, genreId, year).stream()
+                        .map(Film::getId)
+                        .toList();
+                assertEquals(expected, actual, "genreId=" + genreId + ", year=" + year);
+            }
+        }
+    }
+
+    @Test
+    void getFilmById_shouldReflectChangesAfterCaching() {
+        Director director = directorService.createDirector(new Director(null, "Director"));
+        film1.setDirectors(new HashSet<>(Set.of(director)));
+        filmService.update(film1);
+        assertEquals(0, filmService.getFilmById(film1.getId()).getLikesCount());
+
+        filmService.addLike(film1.getId(), user1.getId());
+        assertEquals(1, filmService.getFilmById(film1.getId()).getLikesCount());
+
+        directorService.updateDirector(new Director(director.getId(), "Renamed"));
+        assertEquals("Renamed", filmService.getFilmById(film1.getId()).getDirectors().iterator().next()
+                .getDirectorName());
+
+        filmService.delete(film1.getId());
+        assertThrows(NotFoundException.class, () -> filmService.getFilmById(film1.getId()));
+    }
+
+    @Test
+    void search_shouldMatchSqlSearch() {
+        Director director = directorService.createDirector(new Director(null, "Стивен Спилберг"));
+        film2.setName("Парк юрского периода");
+        film2.setDirectors(new HashSet<>(Set.of(director)));
+        filmService.update(film2);
+        filmService.addLike(film2.getId(), user1.getId());
+
+        for (String query : List.of("", "film", "FILM 3", "парк", "спил", "рг", "нет такого")) {
+            assertEquals(ids(filmRepository.searchFilmsByTitle(query)),
+                    ids(filmService.searchFilmsByTitle(query)), query);
+            assertEquals(ids(filmRepository.searchFilmsByDirector(query)),
+                    ids(filmService.searchFilmsByDirector(query)), query);
+            assertEquals(ids(filmRepository.searchFilmsByTitleAndDirector(query)),
+                    ids(filmService.searchFilmsByTitleAndDirector(query)), query);
+        }
+    }
+
+    private static List<Long> ids(Collection<Film> films) {
+        return films.stream().map(Film::getId).toList();
+    }
+
+    @Test
+    void getCommonFilms_shouldReturnSharedLikesByPopularity() {
+        User user2 = userService.create(new User("common2@email.com", "common2", LocalDate.of(2000, 1, 1)));
+        User user3 = userService.create(new User("common3@email.com", "common3", LocalDate.of(2000, 1, 1)));
+        for (Film film : List.of(film1, film2, film3)) {
+            filmService.addLike(film.getId(), user1.getId());
+        }
+        filmService.addLike(film1.getId(), user2.getId());
+        filmService.addLike(film3.getId(), user2.getId());
+        filmService.addLike(film3.getId(), user3.getId());
+
+        assertEquals(List.of(film3.getId(), film1.getId()),
+                ids(filmService.getCommonFilms(user1.getId(), user2.getId())));
+
+        filmService.removeLike(film3.getId(), user2.getId());
+        assertEquals(List.of(film1.getId()), ids(filmService.getCommonFilms(user1.getId(), user2.getId())));
+        assertEquals(List.of(), ids(filmService.getCommonFilms(user2.getId(), user3.getId())));
+    }
+}
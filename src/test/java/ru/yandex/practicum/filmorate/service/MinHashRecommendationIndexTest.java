@@ -0,0 +1,74 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.yandex.practicum.filmorate.interfaces.LikeRepository;
+import ru.yandex.practicum.filmorate.model.Like;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+@ExtendWith(MockitoExtension.class)
+class MinHashRecommendationIndexTest {
+
+    @Mock
+    LikeRepository likeRepository;
+
+    private UserLikesIndex likesIndex;
+    private MinHashRecommendationIndex index;
+
+    @BeforeEach
+    void setUp() {
+        List<Like> likes = List.of(
+                new Like(1L, 1L), new Like(2L, 1L), new Like(3L, 1L), new Like(4L, 1L),
+                new Like(1L, 2L), new Like(2L, 2L), new Like(3L, 2L), new Like(4L, 2L), new Like(5L, 2L),
+                new Like(6L, 2L),
+                new Like(7L, 3L), new Like(8L, 3L), new Like(6L, 3L),
+                new Like(6L, 4L), new Like(5L, 4L));
+        doAnswer(invocation -> {
+            Consumer<Like> consumer = invocation.getArgument(0);
+            likes.forEach(consumer);
+            return null;
+        }).when(likeRepository).forEachLike(any());
+        likesIndex = new UserLikesIndex(likeRepository);
+        likesIndex.reload();
+        index = new MinHashRecommendationIndex(likesIndex, 16, 2);
+        index.reload();
+    }
+
+    @Test
+    void nearDuplicateUserIsFoundAndRankedLikeExactMode() {
+        // фильм 6 лайкнули трое, фильм 5 — двое
+        assertEquals(List.of(6L, 5L), index.findRecommendedFilmIdsForUser(1L));
+    }
+
+    @Test
+    void userWithoutLikesGetsNothing() {
+        assertEquals(List.of(), index.findRecommendedFilmIdsForUser(99L));
+    }
+
+    @Test
+    void likesMoveUserBetweenBuckets() {
+        likesIndex.removeUser(2L);
+        likesIndex.addLike(7L, 1L);
+        likesIndex.addLike(8L, 1L);
+        likesIndex.addLike(6L, 1L);
+        likesIndex.removeLike(1L, 1L);
+        likesIndex.removeLike(2L, 1L);
+        likesIndex.removeLike(3L, 1L);
+        likesIndex.removeLike(4L, 1L);
+        likesIndex.awaitUpdates();
+
+        assertEquals(List.of(5L), index.findRecommendedFilmIdsForUser(3L));
+        likesIndex.removeFilm(5L);
+        likesIndex.awaitUpdates();
+        assertEquals(List.of(), index.findRecommendedFilmIdsForUser(3L));
+    }
+}
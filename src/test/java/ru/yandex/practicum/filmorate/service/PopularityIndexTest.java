@@ -0,0 +1,120 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.interfaces.FilmRepository;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmPopularity;
+import ru.yandex.practicum.filmorate.model.Genre;
+
+import java.time.LocalDate;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PopularityIndexTest {
+
+    @Mock
+    FilmRepository filmRepository;
+
+    PopularityIndex popularityIndex;
+
+    @BeforeEach
+    void setUp() {
+        when(filmRepository.findFilmPopularity()).thenReturn(List.of(
+                new FilmPopularity(1L, 2L, 2000, Set.of(1L)),
+                new FilmPopularity(2L, 5L, 2001, Set.of(1L, 2L)),
+                new FilmPopularity(3L, 2L, 2000, Set.of(2L)),
+                new FilmPopularity(4L, 0L, 2000, Set.of())
+        ));
+        popularityIndex = new PopularityIndex(filmRepository);
+        popularityIndex.reload();
+    }
+
+    @Test
+    void top_ordersByLikesDescThenFilmId() {
+        assertEquals(List.of(2L, 1L, 3L, 4L), popularityIndex.top(10));
+        assertEquals(List.of(2L, 1L), popularityIndex.top(2));
+        assertEquals(List.of(), popularityIndex.top(0));
+    }
+
+    @Test
+    void top_readsGenreAndYearPartitions() {
+        assertEquals(List.of(2L, 1L), popularityIndex.top(10, 1L, null));
+        assertEquals(List.of(1L, 3L, 4L), popularityIndex.top(10, null, 2000));
+        assertEquals(List.of(3L), popularityIndex.top(10, 2L, 2000));
+        assertEquals(List.of(), popularityIndex.top(10, 3L, null));
+        assertEquals(List.of(), popularityIndex.top(10, 1L, 1999));
+    }
+
+    @Test
+    void likeChanges_reorderRanking() {
+        popularityIndex.incrementLikes(3L);
+        assertEquals(List.of(2L, 3L, 1L, 4L), popularityIndex.top(4));
+        assertEquals(List.of(2L, 3L), popularityIndex.top(4, 2L, null));
+        assertEquals(List.of(3L, 1L, 4L), popularityIndex.top(4, null, 2000));
+
+        popularityIndex.decrementLikes(3L);
+        popularityIndex.decrementLikes(3L);
+        assertEquals(List.of(2L, 1L, 3L, 4L), popularityIndex.top(4));
+        assertEquals(List.of(1L, 3L, 4L), popularityIndex.top(4, null, 2000));
+
+        popularityIndex.decrementLikes(4L);
+        assertEquals(List.of(2L, 1L, 3L, 4L), popularityIndex.top(4));
+    }
+
+    @Test
+    void likeOfUnknownFilm_loadsItsPartitionsOrIsSkipped() {
+        Film film = new Film();
+        film.setId(5L);
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setGenres(new LinkedHashSet<>(List.of(new Genre(1L, "Комедия"))));
+        when(filmRepository.getFilmById(5L)).thenReturn(film);
+        when(filmRepository.getFilmById(6L)).thenThrow(new NotFoundException("Фильм не найден"));
+
+        popularityIndex.incrementLikes(5L);
+        popularityIndex.incrementLikes(6L);
+        popularityIndex.decrementLikes(7L);
+
+        assertEquals(List.of(2L, 1L, 3L, 5L, 4L), popularityIndex.top(10));
+        assertEquals(List.of(2L, 1L, 5L), popularityIndex.top(10, 1L, null));
+        assertEquals(List.of(1L, 5L), popularityIndex.top(10, 1L, 2000));
+    }
+
+    @Test
+    void saveFilm_movesFilmBetweenPartitionsKeepingLikes() {
+        Film film = new Film();
+        film.setId(1L);
+        film.setReleaseDate(LocalDate.of(2001, 5, 1));
+        film.setGenres(new LinkedHashSet<>(List.of(new Genre(2L, "Драма"))));
+        popularityIndex.saveFilm(film);
+
+        assertEquals(List.of(2L), popularityIndex.top(10, 1L, null));
+        assertEquals(List.of(2L, 1L), popularityIndex.top(10, 2L, 2001));
+        assertEquals(List.of(3L, 4L), popularityIndex.top(10, null, 2000));
+        assertEquals(List.of(2L, 1L, 3L, 4L), popularityIndex.top(10));
+    }
+
+    @Test
+    void saveAndRemoveFilm_updateRanking() {
+        Film film = new Film();
+        film.setId(5L);
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        popularityIndex.saveFilm(film);
+        assertEquals(List.of(2L, 1L, 3L, 4L, 5L), popularityIndex.top(10));
+        assertEquals(List.of(1L, 3L, 4L, 5L), popularityIndex.top(10, null, 2000));
+
+        popularityIndex.removeFilm(2L);
+        assertEquals(List.of(1L, 3L, 4L, 5L), popularityIndex.top(10));
+        assertEquals(List.of(1L), popularityIndex.top(10, 1L, null));
+        assertEquals(List.of(), popularityIndex.top(10, 1L, 2001));
+    }
+}
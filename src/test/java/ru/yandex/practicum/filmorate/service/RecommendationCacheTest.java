@@ -0,0 +1,128 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.lenient;
+
+@ExtendWith(MockitoExtension.class)
+class RecommendationCacheTest {
+
+    @Mock
+    UserLikesIndex userLikesIndex;
+
+    private final Map<Long, RoaringBitmap> likes = new HashMap<>();
+    private final AtomicInteger loads = new AtomicInteger();
+    private final Function<Long, List<Long>> loader = userId -> {
+        loads.incrementAndGet();
+        return List.of(100L + userId);
+    };
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(userLikesIndex.likedFilms(anyLong()))
+                .thenAnswer(invocation -> likes.getOrDefault(invocation.<Long>getArgument(0), new RoaringBitmap()).clone());
+        likes.put(1L, RoaringBitmap.bitmapOf(10, 11));
+        likes.put(2L, RoaringBitmap.bitmapOf(11, 12));
+        likes.put(3L, RoaringBitmap.bitmapOf(20));
+    }
+
+    @Test
+    void likeInvalidatesOnlyDependentUsers() {
+        RecommendationCache cache = new RecommendationCache(userLikesIndex, Duration.ofMinutes(10));
+        cache.get(1L, loader);
+        cache.get(3L, loader);
+        assertEquals(2, loads.get());
+
+        // пользователь 3 не пересекается с 1 ни по лайкам, ни по рекомендации
+        likes.get(3L).add(21);
+        cache.likeChanged(21, 3L);
+        cache.get(1L, loader);
+        assertEquals(2, loads.get());
+
+        // пользователь 2 делит с 1 фильм 11, его новый лайк может сменить соседа
+        likes.get(2L).add(30);
+        cache.likeChanged(30, 2L);
+        cache.get(1L, loader);
+        cache.get(3L, loader);
+        assertEquals(4, loads.get());
+        cache.get(1L, loader);
+        assertEquals(4, loads.get());
+
+        // лайк на рекомендованный фильм меняет порядок кандидатов
+        cache.likeChanged(101, 3L);
+        cache.get(1L, loader);
+        assertEquals(5, loads.get());
+    }
+
+    @Test
+    void expiredEntryIsRecomputed() {
+        RecommendationCache cache = new RecommendationCache(userLikesIndex, Duration.ZERO);
+        cache.get(1L, loader);
+        cache.get(1L, loader);
+        assertEquals(2, loads.get());
+        cache.purgeExpired();
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    void failedLoadIsNotCached() {
+        RecommendationCache cache = new RecommendationCache(userLikesIndex, Duration.ofMinutes(10));
+        assertThrows(IllegalStateException.class, () -> cache.get(1L, userId -> {
+            throw new IllegalStateException("boom");
+        }));
+        assertEquals(List.of(101L), cache.get(1L, loader));
+    }
+
+    @Test
+    void concurrentMissesShareOneComputation() throws Exception {
+        RecommendationCache cache = new RecommendationCache(userLikesIndex, Duration.ofMinutes(10));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Function<Long, List<Long>> slowLoader = userId -> {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return loader.apply(userId);
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List<Long>>> results = new ArrayList<>();
+            results.add(executor.submit(() -> cache.get(1L, slowLoader)));
+            started.await(5, TimeUnit.SECONDS);
+            for (int i = 0; i < 3; i++) {
+                results.add(executor.submit(() -> cache.get(1L, slowLoader)));
+            }
+            release.countDown();
+            for (Future<List<Long>> result : results) {
+                assertEquals(List.of(101L), result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, loads.get());
+    }
+}
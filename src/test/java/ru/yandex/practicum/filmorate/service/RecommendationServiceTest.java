@@ -1,20 +1,25 @@
 package ru.yandex.practicum.filmorate.service;
 
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import ru.yandex.practicum.filmorate.interfaces.FilmRepository;
 import ru.yandex.practicum.filmorate.interfaces.RecommendationRepository;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.RecommendationMode;
+import ru.yandex.practicum.filmorate.model.UserRecommendations;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import org.roaringbitmap.RoaringBitmap;
 
 import java.time.Duration;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -25,12 +30,32 @@ class RecommendationServiceTest {
     @Mock
     RecommendationRepository recommendationRepository;
 
+    @Mock
+    RecommendationRepository approximateRepository;
+
+    @Mock
+    RecommendationRepository queryRepository;
+
     @Mock
     FilmRepository filmRepository;
 
-    @InjectMocks
+    @Mock
+    ColdStartRecommender coldStartRecommender;
+
+    @Mock
+    UserLikesIndex userLikesIndex;
+
     RecommendationService recommendationService;
 
+    @BeforeEach
+    void setUp() {
+        lenient().when(userLikesIndex.likedFilms(anyLong())).thenAnswer(invocation -> new RoaringBitmap());
+        recommendationService = new RecommendationService(recommendationRepository, Optional.empty(),
+                queryRepository, approximateRepository, filmRepository,
+                new RecommendationCache(userLikesIndex, Duration.ofMinutes(10)), coldStartRecommender,
+                "neighbours", "exact", 2, 2);
+    }
+
     private Film film(long id, String name) {
         Film f = new Film();
         f.setId(id);
@@ -57,9 +82,7 @@ class RecommendationServiceTest {
         long userId = 5L;
         List<Long> ids = List.of(3L, 1L, 2L);
         when(recommendationRepository.findRecommendedFilmIdsForUser(userId)).thenReturn(ids);
-        when(filmRepository.getFilmById(3L)).thenReturn(film(3L, "F3"));
-        when(filmRepository.getFilmById(1L)).thenReturn(film(1L, "F1"));
-        when(filmRepository.getFilmById(2L)).thenReturn(film(2L, "F2"));
+        when(filmRepository.findByIds(ids)).thenReturn(List.of(film(3L, "F3"), film(1L, "F1"), film(2L, "F2")));
 
         Collection<Film> out = recommendationService.getRecommendations(userId);
         List<Film> asList = new ArrayList<>(out);
@@ -69,9 +92,7 @@ class RecommendationServiceTest {
         assertEquals(1L, asList.get(1).getId());
         assertEquals(2L, asList.get(2).getId());
 
-        verify(filmRepository).getFilmById(3L);
-        verify(filmRepository).getFilmById(1L);
-        verify(filmRepository).getFilmById(2L);
+        verify(filmRepository).findByIds(ids);
         verifyNoMoreInteractions(filmRepository);
     }
 
@@ -79,7 +100,84 @@ class RecommendationServiceTest {
     void getRecommendations_propagatesRepositoryErrors() {
         long userId = 7L;
         when(recommendationRepository.findRecommendedFilmIdsForUser(userId)).thenReturn(List.of(42L));
-        when(filmRepository.getFilmById(42L)).thenThrow(new RuntimeException("boom"));
+        when(filmRepository.findByIds(List.of(42L))).thenThrow(new RuntimeException("boom"));
         assertThrows(RuntimeException.class, () -> recommendationService.getRecommendations(userId));
     }
+
+    @Test
+    void getRecommendations_secondCallServedFromCache() {
+        long userId = 8L;
+        when(recommendationRepository.findRecommendedFilmIdsForUser(userId)).thenReturn(List.of(1L));
+        when(filmRepository.findByIds(List.of(1L))).thenReturn(List.of(film(1L, "F1")));
+
+        recommendationService.getRecommendations(userId);
+        recommendationService.getRecommendations(userId);
+
+        verify(recommendationRepository, times(1)).findRecommendedFilmIdsForUser(userId);
+        verify(filmRepository, times(2)).findByIds(List.of(1L));
+    }
+
+    @Test
+    void getRecommendations_approximateModeUsesLshIndexWithoutCache() {
+        long userId = 9L;
+        when(approximateRepository.findRecommendedFilmIdsForUser(userId)).thenReturn(List.of(2L));
+        when(filmRepository.findByIds(List.of(2L))).thenReturn(List.of(film(2L, "F2")));
+
+        recommendationService.getRecommendations(userId, RecommendationMode.APPROXIMATE);
+        recommendationService.getRecommendations(userId, RecommendationMode.APPROXIMATE);
+
+        verify(approximateRepository, times(2)).findRecommendedFilmIdsForUser(userId);
+        verifyNoInteractions(recommendationRepository);
+    }
+
+    @Test
+    void getRecommendations_queryEngineComputesExactModeOnRequest() {
+        RecommendationService queryService = new RecommendationService(recommendationRepository, Optional.empty(),
+                queryRepository, approximateRepository, filmRepository,
+                new RecommendationCache(userLikesIndex, Duration.ofMinutes(10)), coldStartRecommender,
+                "query", "exact", 2, 2);
+        long userId = 11L;
+        when(queryRepository.findRecommendedFilmIdsForUser(userId)).thenReturn(List.of(3L));
+        when(filmRepository.findByIds(List.of(3L))).thenReturn(List.of(film(3L, "F3")));
+
+        assertEquals(List.of(3L), queryService.getRecommendations(userId).stream().map(Film::getId).toList());
+        verifyNoInteractions(recommendationRepository);
+        queryService.shutdown();
+    }
+
+    @Test
+    void parseMode_acceptsAnyCaseAndRejectsUnknown() {
+        assertEquals(RecommendationMode.APPROXIMATE, RecommendationService.parseMode("Approximate"));
+        assertThrows(ValidationException.class, () -> RecommendationService.parseMode("fuzzy"));
+    }
+
+    @Test
+    void getRecommendationsBatch_keepsInputOrderAndLoadsFilmsOncePerChunk() {
+        when(recommendationRepository.findRecommendedFilmIdsForUser(anyLong()))
+                .thenAnswer(invocation -> List.of(invocation.<Long>getArgument(0) * 10));
+        when(filmRepository.findByIds(anyList())).thenAnswer(invocation -> invocation.<List<Long>>getArgument(0)
+                .stream()
+                .map(id -> film(id, "F" + id))
+                .toList());
+
+        List<UserRecommendations> out = new ArrayList<>();
+        recommendationService.getRecommendationsBatch(List.of(3L, 1L, 2L), out::add);
+
+        assertEquals(List.of(3L, 1L, 2L), out.stream().map(UserRecommendations::getUserId).toList());
+        assertEquals(30L, out.getFirst().getFilms().getFirst().getId());
+        verify(filmRepository).findByIds(List.of(30L, 10L));
+        verify(filmRepository).findByIds(List.of(20L));
+    }
+
+    @Test
+    void getRecommendations_fallsBackToColdStartWhenEngineFindsNothing() {
+        long userId = 11L;
+        when(recommendationRepository.findRecommendedFilmIdsForUser(userId)).thenReturn(List.of());
+        when(coldStartRecommender.recommend(userId)).thenReturn(List.of(4L));
+        when(filmRepository.findByIds(List.of(4L))).thenReturn(List.of(film(4L, "F4")));
+
+        Collection<Film> out = recommendationService.getRecommendations(userId);
+
+        assertEquals(List.of(4L), out.stream().map(Film::getId).toList());
+    }
 }
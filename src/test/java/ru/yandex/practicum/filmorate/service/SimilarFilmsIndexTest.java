@@ -0,0 +1,97 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.yandex.practicum.filmorate.interfaces.LikeRepository;
+import ru.yandex.practicum.filmorate.model.Like;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+@ExtendWith(MockitoExtension.class)
+class SimilarFilmsIndexTest {
+    private static final int USERS = 20;
+    private static final int FILMS = 30;
+    private static final int TOP_K = 3;
+
+    @Mock
+    LikeRepository likeRepository;
+
+    private final Map<Long, Set<Long>> likersByFilm = new HashMap<>();
+
+    @Test
+    void similar_matchesFullRecomputationAfterEveryChange() {
+        Random random = new Random(11);
+        for (int i = 0; i < 120; i++) {
+            likersByFilm.computeIfAbsent(1L + random.nextInt(FILMS), k -> new HashSet<>())
+                    .add(1L + random.nextInt(USERS));
+        }
+        doAnswer(invocation -> {
+            Consumer<Like> consumer = invocation.getArgument(0);
+            likersByFilm.forEach((filmId, userIds) -> userIds.forEach(userId -> consumer.accept(new Like(filmId, userId))));
+            return null;
+        }).when(likeRepository).forEachLike(any());
+        UserLikesIndex likes = new UserLikesIndex(likeRepository);
+        likes.reload();
+        SimilarFilmsIndex index = new SimilarFilmsIndex(likes, TOP_K, 2);
+        index.reload();
+        assertMatchesOracle(index);
+
+        for (int step = 0; step < 300; step++) {
+            long userId = 1L + random.nextInt(USERS);
+            long filmId = 1L + random.nextInt(FILMS);
+            int action = random.nextInt(20);
+            if (action == 0) {
+                likersByFilm.values().forEach(userIds -> userIds.remove(userId));
+                likes.removeUser(userId);
+            } else if (action == 1) {
+                likersByFilm.remove(filmId);
+                likes.removeFilm(filmId);
+            } else if (action < 12) {
+                likersByFilm.computeIfAbsent(filmId, k -> new HashSet<>()).add(userId);
+                likes.addLike(filmId, userId);
+            } else {
+                likersByFilm.getOrDefault(filmId, new HashSet<>()).remove(userId);
+                likes.removeLike(filmId, userId);
+            }
+            likes.awaitUpdates();
+            assertMatchesOracle(index);
+        }
+        index.shutdown();
+    }
+
+    private void assertMatchesOracle(SimilarFilmsIndex index) {
+        for (long filmId = 1; filmId <= FILMS; filmId++) {
+            assertEquals(similar(filmId), index.similar(filmId, TOP_K), "film " + filmId);
+        }
+    }
+
+    private List<Long> similar(long filmId) {
+        Set<Long> likers = likersByFilm.getOrDefault(filmId, Set.of());
+        Map<Long, Float> scores = new HashMap<>();
+        likersByFilm.forEach((other, otherLikers) -> {
+            long common = otherLikers.stream().filter(likers::contains).count();
+            if (other != filmId && common > 0) {
+                scores.put(other, (float) common / (likers.size() + otherLikers.size() - common));
+            }
+        });
+        return LongStream.rangeClosed(1, FILMS).boxed()
+                .filter(scores::containsKey)
+                .sorted(Comparator.comparing(scores::get, Comparator.reverseOrder()))
+                .limit(TOP_K)
+                .toList();
+    }
+}
@@ -0,0 +1,103 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.roaringbitmap.RoaringBitmap;
+import ru.yandex.practicum.filmorate.interfaces.LikeRepository;
+import ru.yandex.practicum.filmorate.model.Like;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+@ExtendWith(MockitoExtension.class)
+class UserLikesIndexTest {
+
+    @Mock
+    LikeRepository likeRepository;
+
+    UserLikesIndex userLikesIndex;
+
+    @BeforeEach
+    void setUp() {
+        List<Like> likes = List.of(
+                new Like(1L, 10L), new Like(2L, 10L), new Like(3L, 10L), new Like(70000L, 10L),
+                new Like(2L, 20L), new Like(3L, 20L), new Like(70000L, 20L),
+                new Like(1L, 30L));
+        doAnswer(invocation -> {
+            Consumer<Like> consumer = invocation.getArgument(0);
+            likes.forEach(consumer);
+            return null;
+        }).when(likeRepository).forEachLike(any());
+        userLikesIndex = new UserLikesIndex(likeRepository);
+        userLikesIndex.reload();
+    }
+
+    @Test
+    void commonFilmIds_intersectsLikes() {
+        assertEquals(List.of(2L, 3L, 70000L), userLikesIndex.commonFilmIds(10L, 20L));
+        assertEquals(List.of(1L), userLikesIndex.commonFilmIds(30L, 10L));
+        assertEquals(List.of(), userLikesIndex.commonFilmIds(20L, 30L));
+        assertEquals(List.of(), userLikesIndex.commonFilmIds(10L, 99L));
+    }
+
+    @Test
+    void likeChanges_updateIntersection() {
+        userLikesIndex.addLike(1L, 20L);
+        userLikesIndex.removeLike(3L, 10L);
+        assertEquals(List.of(1L, 2L, 70000L), userLikesIndex.commonFilmIds(10L, 20L));
+
+        userLikesIndex.removeFilm(70000L);
+        assertEquals(List.of(1L, 2L), userLikesIndex.commonFilmIds(10L, 20L));
+
+        userLikesIndex.removeUser(20L);
+        assertEquals(List.of(), userLikesIndex.commonFilmIds(10L, 20L));
+    }
+
+    @Test
+    void blockedListener_doesNotBlockLikesOrReads() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> added = new ArrayList<>();
+        userLikesIndex.addListener(new UserLikesIndex.Listener() {
+            @Override
+            public void likeAdded(int film, int user) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                added.add(film);
+            }
+
+            @Override
+            public void likeRemoved(int film, int user) {
+            }
+
+            @Override
+            public void userRemoved(int user, RoaringBitmap films) {
+            }
+
+            @Override
+            public void filmRemoved(int film, RoaringBitmap users) {
+            }
+        });
+
+        userLikesIndex.addLike(4L, 10L);
+        userLikesIndex.addLike(4L, 20L);
+        userLikesIndex.addLike(5L, 20L);
+        assertEquals(List.of(2L, 3L, 4L, 70000L), userLikesIndex.commonFilmIds(10L, 20L));
+
+        release.countDown();
+        userLikesIndex.awaitUpdates();
+        assertEquals(List.of(4, 4, 5), added);
+        userLikesIndex.shutdown();
+    }
+}
\ No newline at end of file
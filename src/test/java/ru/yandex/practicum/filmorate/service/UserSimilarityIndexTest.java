@@ -0,0 +1,118 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.yandex.practicum.filmorate.interfaces.LikeRepository;
+import ru.yandex.practicum.filmorate.model.Like;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+@ExtendWith(MockitoExtension.class)
+class UserSimilarityIndexTest {
+    private static final int USERS = 30;
+    private static final int FILMS = 25;
+
+    @Mock
+    LikeRepository likeRepository;
+
+    private final Map<Long, Set<Long>> likes = new HashMap<>();
+
+    @Test
+    void recommendations_matchFullRecomputationAfterEveryChange() {
+        Random random = new Random(7);
+        for (int i = 0; i < 150; i++) {
+            likes.computeIfAbsent(1L + random.nextInt(USERS), k -> new HashSet<>()).add(1L + random.nextInt(FILMS));
+        }
+        doAnswer(invocation -> {
+            Consumer<Like> consumer = invocation.getArgument(0);
+            likes.forEach((userId, filmIds) -> filmIds.forEach(filmId -> consumer.accept(new Like(filmId, userId))));
+            return null;
+        }).when(likeRepository).forEachLike(any());
+        // маленький список соседей, чтобы чаще срабатывали вытеснение и пересчёт
+        UserLikesIndex likesIndex = new UserLikesIndex(likeRepository);
+        likesIndex.reload();
+        UserSimilarityIndex index = new UserSimilarityIndex(likesIndex, 2, 2);
+        index.reload();
+        assertMatchesOracle(index);
+
+        for (int step = 0; step < 400; step++) {
+            long userId = 1L + random.nextInt(USERS);
+            long filmId = 1L + random.nextInt(FILMS);
+            int action = random.nextInt(20);
+            if (action == 0) {
+                likes.remove(userId);
+                likesIndex.removeUser(userId);
+            } else if (action == 1) {
+                likes.values().forEach(filmIds -> filmIds.remove(filmId));
+                likesIndex.removeFilm(filmId);
+            } else if (action < 12) {
+                likes.computeIfAbsent(userId, k -> new HashSet<>()).add(filmId);
+                likesIndex.addLike(filmId, userId);
+            } else {
+                likes.getOrDefault(userId, new HashSet<>()).remove(filmId);
+                likesIndex.removeLike(filmId, userId);
+            }
+            likesIndex.awaitUpdates();
+            assertMatchesOracle(index);
+        }
+        index.shutdown();
+    }
+
+    private void assertMatchesOracle(UserSimilarityIndex index) {
+        for (long userId = 1; userId <= USERS; userId++) {
+            assertEquals(recommend(userId), index.findRecommendedFilmIdsForUser(userId), "user " + userId);
+        }
+    }
+
+    /**
+     * Тот же алгоритм, что в JdbcRecommendationRepository, над множествами в памяти.
+     */
+    private List<Long> recommend(long userId) {
+        Set<Long> mine = likes.getOrDefault(userId, Set.of());
+        if (mine.isEmpty()) {
+            return List.of();
+        }
+        long best = -1;
+        int bestCommon = 0;
+        int bestExtra = 0;
+        for (Map.Entry<Long, Set<Long>> entry : likes.entrySet()) {
+            if (entry.getKey() == userId) {
+                continue;
+            }
+            int common = (int) entry.getValue().stream().filter(mine::contains).count();
+            int extra = entry.getValue().size() - common;
+            if (common == 0 || extra == 0) {
+                continue;
+            }
+            if (best < 0 || common > bestCommon || (common == bestCommon && extra > bestExtra)
+                    || (common == bestCommon && extra == bestExtra && entry.getKey() > best)) {
+                best = entry.getKey();
+                bestCommon = common;
+                bestExtra = extra;
+            }
+        }
+        if (best < 0) {
+            return List.of();
+        }
+        List<Long> candidates = new ArrayList<>(likes.get(best));
+        candidates.removeAll(mine);
+        candidates.sort(Comparator.comparing((Long filmId) -> likes.values().stream()
+                        .filter(filmIds -> filmIds.contains(filmId)).count()).reversed()
+                .thenComparing(Long::longValue));
+        return candidates;
+    }
+}